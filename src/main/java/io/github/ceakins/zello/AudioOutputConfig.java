@@ -0,0 +1,48 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.metrics.LatencyProbe;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configuration for the {@link AudioOutputManager}, controlling playout latency and device buffering.
+ */
+@Getter
+@Builder
+public class AudioOutputConfig {
+
+    /**
+     * How much audio (in milliseconds) the playout buffer collects before it starts playing a stream,
+     * and the depth it tries to hold while playing. Larger values absorb more network jitter at the
+     * cost of mouth-to-ear latency.
+     */
+    @Builder.Default
+    private int targetLatencyMs = 60;
+
+    /**
+     * How far (in milliseconds) the playout buffer may drift above the target before quiet frames
+     * are dropped to bring latency back down.
+     */
+    @Builder.Default
+    private int latencyToleranceMs = 40;
+
+    /**
+     * The hard capacity of the playout buffer in milliseconds. When more audio than this is queued,
+     * the oldest audio is discarded and counted as an overrun.
+     */
+    @Builder.Default
+    private int maxLatencyMs = 300;
+
+    /**
+     * The size of the speaker line's own buffer in milliseconds. The JDK default is often several
+     * hundred milliseconds, so this is set explicitly to keep device latency small.
+     */
+    @Builder.Default
+    private int lineBufferMs = 40;
+
+    /**
+     * An optional probe that records when marker tones reach playout. Null (the default) disables probing.
+     */
+    private LatencyProbe latencyProbe;
+
+}
@@ -1,28 +1,50 @@
 package io.github.ceakins.zello;
 
 import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.internal.audio.PlayoutBuffer;
+import io.github.ceakins.zello.metrics.LatencyProbe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sound.sampled.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the playback of incoming audio to a specified or default speaker device.
- * It opens an audio line and provides a simple method to write PCM data to it.
+ * <p>
+ * Incoming PCM is queued in a {@link PlayoutBuffer} and fed to a small, explicitly sized speaker
+ * line by a dedicated playout thread. The buffer holds latency near the configured target by
+ * inserting silence on underruns and dropping audio when it falls behind.
  */
 public class AudioOutputManager implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(AudioOutputManager.class);
 
     private final Mixer.Info mixerInfo;
+    private final AudioOutputConfig config;
+    private final PlayoutBuffer playoutBuffer;
     private SourceDataLine speakers;
+    private Thread playoutThread;
+    private volatile boolean isRunning = false;
 
     public AudioOutputManager() {
         this(null);
     }
 
     public AudioOutputManager(Mixer.Info mixerInfo) {
+        this(mixerInfo, AudioOutputConfig.builder().build());
+    }
+
+    /**
+     * Constructs an AudioOutputManager.
+     *
+     * @param mixerInfo The info for the audio output device to use. Can be null for the system default.
+     * @param config The playout latency and buffering configuration.
+     */
+    public AudioOutputManager(Mixer.Info mixerInfo, AudioOutputConfig config) {
         this.mixerInfo = mixerInfo;
+        this.config = config;
+        this.playoutBuffer = new PlayoutBuffer(config.getTargetLatencyMs(), config.getLatencyToleranceMs(), config.getMaxLatencyMs());
     }
 
     public void start() throws LineUnavailableException {
@@ -45,39 +67,131 @@ public class AudioOutputManager implements AutoCloseable {
             logger.info("Opening default system speaker line.");
         }
 
-        speakers.open(format);
+        int lineFrames = Math.max(2, config.getLineBufferMs() / AudioConstants.FRAME_DURATION_MS);
+        speakers.open(format, lineFrames * AudioConstants.FRAME_SIZE_BYTES);
         speakers.start();
-        logger.info("Speaker line started successfully.");
+        logger.info("Speaker line started successfully (requested buffer {} bytes, actual {} bytes).",
+                lineFrames * AudioConstants.FRAME_SIZE_BYTES, speakers.getBufferSize());
+
+        isRunning = true;
+        playoutThread = new Thread(this::playoutLoop);
+        playoutThread.setName("Zello-Audio-Playout-Thread");
+        playoutThread.setDaemon(true);
+        playoutThread.start();
     }
 
     public void stop() {
+        isRunning = false;
         if (speakers != null && speakers.isOpen()) {
             logger.info("Closing speaker line...");
-            speakers.drain();
             speakers.stop();
+            speakers.flush();
             speakers.close();
             logger.info("Speaker line closed.");
         }
+        if (playoutThread != null) {
+            try {
+                playoutThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            playoutThread = null;
+        }
+        playoutBuffer.clear();
     }
 
+    /**
+     * Queues decoded PCM audio for playback. This never blocks on the audio device.
+     */
     public void playAudio(byte[] pcmData) {
-        if (speakers != null && speakers.isOpen()) {
-            speakers.write(pcmData, 0, pcmData.length);
+        if (isRunning) {
+            LatencyProbe probe = config.getLatencyProbe();
+            if (probe != null && probe.isAwaiting(LatencyProbe.Stage.PLAYOUT) && probe.isMarker(pcmData)) {
+                // The frame is heard once everything already buffered ahead of it has played.
+                probe.stamp(LatencyProbe.Stage.PLAYOUT, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getCurrentLatencyMs()));
+            }
+            playoutBuffer.write(pcmData, 0, pcmData.length);
         }
     }
 
     /**
-     * Clears any queued audio data from the speaker line's internal buffer.
-     * This should be called when an incoming audio stream stops to prevent audio looping.
+     * Signals that the current incoming stream has ended. Buffered audio is played out to the end
+     * and the playout buffer then re-primes for the next stream.
+     */
+    public void endOfStream() {
+        playoutBuffer.endOfStream();
+    }
+
+    /**
+     * Clears any queued audio data from the playout buffer and the speaker line's internal buffer.
      */
     public void flush() {
+        playoutBuffer.clear();
         if (speakers != null && speakers.isOpen()) {
             speakers.flush();
         }
     }
 
+    /**
+     * @return The current output latency in milliseconds: audio in the playout buffer plus audio queued in the speaker line.
+     */
+    public int getCurrentLatencyMs() {
+        int lineMs = 0;
+        SourceDataLine line = speakers;
+        if (line != null && line.isOpen()) {
+            int queuedBytes = line.getBufferSize() - line.available();
+            lineMs = queuedBytes * AudioConstants.FRAME_DURATION_MS / AudioConstants.FRAME_SIZE_BYTES;
+        }
+        return playoutBuffer.getBufferedMs() + lineMs;
+    }
+
+    /**
+     * @return How many times the playout buffer ran dry in the middle of a stream.
+     */
+    public long getUnderrunCount() {
+        return playoutBuffer.getUnderrunCount();
+    }
+
+    /**
+     * @return How many times audio arrived faster than it could be played and the oldest audio was discarded.
+     */
+    public long getOverrunCount() {
+        return playoutBuffer.getOverrunCount();
+    }
+
+    /**
+     * @return How many quiet frames were dropped to pull latency back towards the target.
+     */
+    public long getDroppedFrameCount() {
+        return playoutBuffer.getDroppedFrameCount();
+    }
+
+    /**
+     * @return How many frames of silence were inserted to cover underruns.
+     */
+    public long getInsertedSilenceFrameCount() {
+        return playoutBuffer.getInsertedSilenceFrameCount();
+    }
+
+    /**
+     * The playout loop, running on its own dedicated thread. The speaker line's small buffer paces the
+     * loop in real time: each write blocks until the device has room for the next frame.
+     */
+    private void playoutLoop() {
+        byte[] frame = new byte[AudioConstants.FRAME_SIZE_BYTES];
+        while (isRunning) {
+            playoutBuffer.read(frame);
+            SourceDataLine line = speakers;
+            if (line == null || !line.isOpen()) {
+                break;
+            }
+            line.write(frame, 0, frame.length);
+        }
+        logger.debug("Playout thread exiting.");
+    }
+
     @Override
     public void close() {
         stop();
     }
-}
\ No newline at end of file
+}
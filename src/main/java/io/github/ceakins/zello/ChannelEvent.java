@@ -0,0 +1,38 @@
+package io.github.ceakins.zello;
+
+/**
+ * The kinds of event a listener can subscribe to, each covering one group of
+ * {@link io.github.ceakins.zello.events.ZelloChannelListener} callbacks.
+ *
+ * @see Subscription
+ */
+public enum ChannelEvent {
+    /**
+     * {@code onConnected}, {@code onDisconnected} and {@code onError}.
+     */
+    CONNECTION,
+    /**
+     * {@code onTextMessage}.
+     */
+    TEXT,
+    /**
+     * {@code onStreamStarted}, {@code onStreamStartEvent} and {@code onStreamStopped}.
+     */
+    STREAM,
+    /**
+     * {@code onAudioData}, with decoded PCM. Streams are only decoded if a listener subscribes to this.
+     */
+    AUDIO,
+    /**
+     * {@code onOpusPacket}, with the Opus payload as received, which costs nothing to deliver.
+     */
+    OPUS,
+    /**
+     * {@code onImageEvent}, {@code onImageThumbnail} and {@code onImageReceived}.
+     */
+    IMAGE,
+    /**
+     * {@code onRosterChanged}.
+     */
+    ROSTER
+}
@@ -0,0 +1,96 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.model.events.ChannelUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The users present in a channel and their statuses, kept up to date from the server's
+ * {@code on_channel_status} events. Lookups and the online count are constant-time and safe from any
+ * thread.
+ * <p>
+ * Each event is applied incrementally: every user it lists is added or updated, and a user reported
+ * as {@code offline} is removed. The cost of an event depends on the users it lists, not on the size
+ * of the channel. Only actual changes are reported to
+ * {@link io.github.ceakins.zello.events.ZelloChannelListener#onRosterChanged}.
+ */
+public class ChannelRoster {
+
+    static final String OFFLINE = "offline";
+
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * @return The user's status, e.g. "online", or null if the user is not in the channel.
+     */
+    public String getStatus(String username) {
+        return statuses.get(username);
+    }
+
+    public boolean isOnline(String username) {
+        return statuses.containsKey(username);
+    }
+
+    /**
+     * @return The number of users currently in the channel.
+     */
+    public int getOnlineCount() {
+        return statuses.size();
+    }
+
+    /**
+     * @return A copy of the roster, mapping each username to its status.
+     */
+    public Map<String, String> snapshot() {
+        return Map.copyOf(statuses);
+    }
+
+    /**
+     * Applies the users listed in a status event.
+     *
+     * @return The changes, in the order the users were listed; empty if nothing changed.
+     */
+    List<RosterChange> apply(List<ChannelUser> users) {
+        if (users == null || users.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<RosterChange> changes = null;
+        for (ChannelUser user : users) {
+            String name = user.getName();
+            if (name == null) {
+                continue;
+            }
+            String status = user.getStatus() != null ? user.getStatus() : "online";
+            String previous = OFFLINE.equals(status) ? statuses.remove(name) : statuses.put(name, status);
+            String current = OFFLINE.equals(status) ? null : status;
+            if (previous == null ? current != null : !previous.equals(current)) {
+                if (changes == null) {
+                    changes = new ArrayList<>();
+                }
+                changes.add(new RosterChange(name, previous, current));
+            }
+        }
+        return changes != null ? changes : Collections.emptyList();
+    }
+
+    /**
+     * Removes everyone, e.g. when the connection is lost and presence is no longer known.
+     *
+     * @return A leave change for every user that was present.
+     */
+    List<RosterChange> clear() {
+        List<RosterChange> changes = new ArrayList<>(statuses.size());
+        for (String name : statuses.keySet()) {
+            String previous = statuses.remove(name);
+            if (previous != null) {
+                changes.add(new RosterChange(name, previous, null));
+            }
+        }
+        return changes;
+    }
+
+}
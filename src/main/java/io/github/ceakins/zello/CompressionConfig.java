@@ -0,0 +1,52 @@
+package io.github.ceakins.zello;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.zip.Deflater;
+
+/**
+ * Settings for the permessage-deflate WebSocket extension (RFC 7692), which compresses JSON text
+ * messages. Binary audio and image packets are never compressed, since Opus and JPEG data do not shrink.
+ * Compression is negotiated in the handshake, so it only takes effect if the server supports it.
+ */
+@Getter
+@Builder
+public class CompressionConfig {
+
+    /**
+     * The deflate level, from 1 (fastest) to 9 (smallest), or -1 for zlib's default of 6.
+     */
+    @Builder.Default
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * The largest LZ77 window (as a power of two, 8 to 15) the server may use for the messages it sends.
+     * Smaller windows reduce the memory the server holds per connection at some cost in ratio.
+     * The client always compresses with a 15-bit window, the only size {@link Deflater} supports.
+     */
+    @Builder.Default
+    private int serverMaxWindowBits = 15;
+
+    /**
+     * Whether to ask the server to reset its compression context after every message, so it does
+     * not keep a window per connection between messages. Reduces memory at the cost of ratio.
+     */
+    @Builder.Default
+    private boolean serverNoContextTakeover = false;
+
+    /**
+     * Whether the client resets its compression context after every message. Reduces the memory
+     * held by the client and the server's decompressor at the cost of ratio.
+     */
+    @Builder.Default
+    private boolean clientNoContextTakeover = false;
+
+    /**
+     * Text messages shorter than this many bytes are sent uncompressed, since the deflate
+     * overhead outweighs the savings.
+     */
+    @Builder.Default
+    private int minMessageBytes = 64;
+
+}
@@ -0,0 +1,270 @@
+package io.github.ceakins.zello;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A least-recently-used cache of image data, bounded by total bytes rather than entry count.
+ * <p>
+ * Every lookup returns the same shared array for a given key, so any number of consumers can read an
+ * image without each holding its own copy. Callers must treat returned arrays as read-only.
+ * <p>
+ * When a spill directory is configured, entries evicted from memory are written to disk instead of
+ * being dropped, and are loaded back into memory on their next lookup. The spill directory is bounded
+ * by its own byte budget, evicting the least-recently-spilled files first. Spill files are named by the
+ * SHA-256 hash of their key, so any key maps to a distinct, fixed-length file name.
+ * <p>
+ * A single cache may be shared between several channels; keys should then be unique across them.
+ */
+public class ImageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageCache.class);
+
+    private final long maxMemoryBytes;
+    private final Path spillDirectory;
+    private final long maxSpillBytes;
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, SpilledImage> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    // Images evicted from memory whose spill file is still being written; they remain readable meanwhile.
+    private final Map<String, byte[]> spilling = new HashMap<>();
+    private long memoryBytes = 0;
+    private long spillBytes = 0;
+
+    @Getter
+    @AllArgsConstructor
+    private static class SpilledImage {
+        private final Path file;
+        private final long size;
+    }
+
+    /**
+     * Creates a memory-only cache.
+     *
+     * @param maxMemoryBytes The maximum total size of cached images held in memory.
+     */
+    public ImageCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * Creates a cache that spills evicted images to disk.
+     *
+     * @param maxMemoryBytes The maximum total size of cached images held in memory.
+     * @param spillDirectory The directory to spill evicted images to, or null to disable spilling.
+     * @param maxSpillBytes The maximum total size of spilled images on disk.
+     */
+    public ImageCache(long maxMemoryBytes, Path spillDirectory, long maxSpillBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.spillDirectory = spillDirectory;
+        this.maxSpillBytes = maxSpillBytes;
+    }
+
+    /**
+     * Adds an image to the cache, evicting (or spilling) the least-recently-used images as needed.
+     * Images larger than the whole memory budget are not cached. Any spill files are written on the
+     * calling thread.
+     */
+    public void put(String key, byte[] data) {
+        put(key, data, Runnable::run);
+    }
+
+    /**
+     * Adds an image to the cache, writing any images it evicts to the spill directory on the given
+     * executor, so the caller does not wait on disk I/O. Evicted images can still be looked up while
+     * they are being written.
+     *
+     * @param spillExecutor The executor that writes spill files.
+     */
+    public void put(String key, byte[] data, Executor spillExecutor) {
+        if (data.length > maxMemoryBytes) {
+            logger.debug("Not caching image '{}' ({} bytes): larger than the cache budget.", key, data.length);
+            return;
+        }
+        List<Map.Entry<String, byte[]>> evicted;
+        SpilledImage stale;
+        synchronized (this) {
+            byte[] previous = memory.put(key, data);
+            memoryBytes += data.length - (previous == null ? 0 : previous.length);
+            spilling.remove(key);
+            stale = spilled.remove(key);
+            if (stale != null) {
+                spillBytes -= stale.getSize();
+            }
+            evicted = evictToBudget();
+        }
+        if (stale != null) {
+            deleteSpillFile(key, stale.getFile());
+        }
+        if (evicted.isEmpty()) {
+            return;
+        }
+        try {
+            spillExecutor.execute(() -> spill(evicted));
+        } catch (RejectedExecutionException e) {
+            spill(evicted);
+        }
+    }
+
+    /**
+     * Looks up an image.
+     *
+     * @return The shared image data, or null if the image is not cached.
+     */
+    public byte[] get(String key) {
+        SpilledImage spilledImage;
+        synchronized (this) {
+            byte[] data = memory.get(key);
+            if (data == null) {
+                data = spilling.get(key);
+            }
+            spilledImage = spilled.get(key);
+            if (data != null || spilledImage == null) {
+                return data;
+            }
+        }
+        byte[] data;
+        try {
+            data = Files.readAllBytes(spilledImage.getFile());
+        } catch (IOException e) {
+            logger.warn("Failed to read spilled image '{}'", key, e);
+            synchronized (this) {
+                if (spilled.remove(key, spilledImage)) {
+                    spillBytes -= spilledImage.getSize();
+                }
+            }
+            return null;
+        }
+        synchronized (this) {
+            // Another consumer may have loaded it concurrently; keep a single shared copy.
+            byte[] existing = memory.get(key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        put(key, data);
+        return data;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getSpillBytes() {
+        return spillBytes;
+    }
+
+    /**
+     * Removes every cached image from memory and deletes all spill files.
+     */
+    public void clear() {
+        Map<String, SpilledImage> files;
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+            spilling.clear();
+            files = new HashMap<>(spilled);
+            spilled.clear();
+            spillBytes = 0;
+        }
+        files.forEach((key, spilledImage) -> deleteSpillFile(key, spilledImage.getFile()));
+    }
+
+    private List<Map.Entry<String, byte[]>> evictToBudget() {
+        List<Map.Entry<String, byte[]>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            it.remove();
+            memoryBytes -= eldest.getValue().length;
+            if (spillDirectory != null && eldest.getValue().length <= maxSpillBytes) {
+                spilling.put(eldest.getKey(), eldest.getValue());
+                evicted.add(Map.entry(eldest.getKey(), eldest.getValue()));
+            }
+        }
+        return evicted;
+    }
+
+    private void spill(List<Map.Entry<String, byte[]>> evicted) {
+        for (Map.Entry<String, byte[]> entry : evicted) {
+            String key = entry.getKey();
+            byte[] data = entry.getValue();
+            Path file = spillFile(key);
+            synchronized (this) {
+                if (spilling.get(key) != data) {
+                    // Put back into memory, or cleared, before it could be written.
+                    continue;
+                }
+            }
+            try {
+                Files.createDirectories(spillDirectory);
+                Files.write(file, data);
+            } catch (IOException e) {
+                logger.warn("Failed to spill image '{}' to disk", key, e);
+                synchronized (this) {
+                    spilling.remove(key, data);
+                }
+                continue;
+            }
+            List<Map.Entry<String, Path>> dropped = new ArrayList<>();
+            boolean superseded;
+            synchronized (this) {
+                superseded = !spilling.remove(key, data);
+                if (!superseded) {
+                    SpilledImage previous = spilled.put(key, new SpilledImage(file, data.length));
+                    spillBytes += data.length - (previous == null ? 0 : previous.getSize());
+                    Iterator<Map.Entry<String, SpilledImage>> it = spilled.entrySet().iterator();
+                    while (spillBytes > maxSpillBytes && it.hasNext()) {
+                        Map.Entry<String, SpilledImage> eldest = it.next();
+                        it.remove();
+                        spillBytes -= eldest.getValue().getSize();
+                        dropped.add(Map.entry(eldest.getKey(), eldest.getValue().getFile()));
+                    }
+                } else if (spilled.containsKey(key) || spilling.containsKey(key)) {
+                    // A newer copy of this image owns the file now.
+                    continue;
+                }
+            }
+            if (superseded) {
+                deleteSpillFile(key, file);
+            }
+            dropped.forEach(d -> deleteSpillFile(d.getKey(), d.getValue()));
+        }
+    }
+
+    private void deleteSpillFile(String key, Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete spilled image '{}'", key, e);
+        }
+    }
+
+    private Path spillFile(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return spillDirectory.resolve(HexFormat.of().formatHex(hash) + ".jpg");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
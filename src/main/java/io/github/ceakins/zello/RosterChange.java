@@ -0,0 +1,35 @@
+package io.github.ceakins.zello;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A change to one user's entry in a {@link ChannelRoster}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RosterChange {
+
+    private final String username;
+
+    /**
+     * The status before the change, or null if the user has just joined.
+     */
+    private final String previousStatus;
+
+    /**
+     * The status after the change, or null if the user has left.
+     */
+    private final String status;
+
+    public boolean isJoin() {
+        return previousStatus == null;
+    }
+
+    public boolean isLeave() {
+        return status == null;
+    }
+
+}
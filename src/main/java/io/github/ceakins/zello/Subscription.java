@@ -0,0 +1,61 @@
+package io.github.ceakins.zello;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Selects the events a listener receives. Audio is only decoded for streams that at least one
+ * listener wants as PCM, so recorders and relays that subscribe to {@link ChannelEvent#OPUS} instead
+ * of {@link ChannelEvent#AUDIO}, or that filter out speakers, save the decoding work.
+ * <pre>{@code
+ * channel.addListener(recorder, Subscription.builder()
+ *         .events(EnumSet.of(ChannelEvent.STREAM, ChannelEvent.OPUS))
+ *         .speakers(Set.of("dispatch"))
+ *         .build());
+ * }</pre>
+ */
+@Getter
+@Builder
+public class Subscription {
+
+    /**
+     * The kinds of event to deliver. Defaults to all of them.
+     */
+    @Builder.Default
+    private final Set<ChannelEvent> events = EnumSet.allOf(ChannelEvent.class);
+
+    /**
+     * The users whose text, stream, audio and image events are delivered, or null for everyone.
+     */
+    private final Set<String> speakers;
+
+    /**
+     * Further selects the streams whose stream, audio and Opus events are delivered, given the stream ID
+     * and the speaker. Evaluated once per stream, when it starts. Null accepts every stream.
+     */
+    private final BiPredicate<Integer, String> streamFilter;
+
+    /**
+     * @return A subscription to every event.
+     */
+    public static Subscription all() {
+        return builder().build();
+    }
+
+    boolean wants(ChannelEvent event) {
+        return events.contains(event);
+    }
+
+    boolean acceptsSpeaker(String from) {
+        return speakers == null || speakers.contains(from);
+    }
+
+    boolean acceptsStream(int streamId, String from) {
+        return acceptsSpeaker(from) && (streamFilter == null || streamFilter.test(streamId, from));
+    }
+
+}
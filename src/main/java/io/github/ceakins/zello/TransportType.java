@@ -0,0 +1,22 @@
+package io.github.ceakins.zello;
+
+/**
+ * The WebSocket implementation a {@link ZelloChannel} connects with.
+ */
+public enum TransportType {
+    /**
+     * The Java-WebSocket library. Each connection runs two platform threads.
+     */
+    JAVA_WEBSOCKET,
+    /**
+     * The JDK's asynchronous {@link java.net.http.WebSocket}. Connections share an HTTP client and
+     * do not own any threads; callbacks run on virtual threads.
+     */
+    JDK,
+    /**
+     * Netty, with native epoll on Linux and pooled buffers. Connections share one event loop group.
+     * Requires the optional {@code io.netty:netty-codec-http} dependency, and
+     * {@code io.netty:netty-transport-native-epoll} for epoll.
+     */
+    NETTY
+}
@@ -0,0 +1,147 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.metrics.NoopZelloMetrics;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sends one audio source to many channels, encoding each frame once.
+ * <p>
+ * {@link #sendVoiceData} encodes the frame with the group's own encoder and hands the same Opus payload
+ * to every member through {@link ZelloChannel#sendOpusData}, so codec CPU does not grow with the number
+ * of channels. Each member still has its own outgoing stream, with its own stream ID and packet IDs.
+ * Members never block one another: a member whose connection is slow queues the frame in its own
+ * outbound queue, where it is dropped if it misses the send deadline.
+ * <pre>{@code
+ * ZelloBroadcastGroup group = new ZelloBroadcastGroup();
+ * channels.forEach(group::add);
+ * group.start();
+ * // for each captured frame:
+ * group.sendVoiceData(pcm);
+ * group.stop();
+ * }</pre>
+ */
+public class ZelloBroadcastGroup implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZelloBroadcastGroup.class);
+
+    private final List<ZelloChannel> members = new CopyOnWriteArrayList<>();
+    private final AudioEngine audioEngine;
+    private final byte[] encodeBuffer = new byte[AudioConstants.MAX_OPUS_PACKET_SIZE];
+    private int encodingSession = -1;
+
+    public ZelloBroadcastGroup() {
+        this(NoopZelloMetrics.INSTANCE);
+    }
+
+    /**
+     * @param metrics The metrics sink the group's encoder records to.
+     */
+    public ZelloBroadcastGroup(ZelloMetrics metrics) {
+        this(new AudioEngine(metrics));
+    }
+
+    /**
+     * Internal constructor for dependency injection, allowing the codec to be replaced in tests.
+     */
+    ZelloBroadcastGroup(AudioEngine audioEngine) {
+        this.audioEngine = audioEngine;
+    }
+
+    /**
+     * Adds a channel to the group. If the group is transmitting, the channel's stream is started as well.
+     */
+    public synchronized void add(ZelloChannel channel) {
+        members.add(channel);
+        if (isTransmitting()) {
+            channel.startVoiceStream();
+        }
+    }
+
+    /**
+     * Removes a channel from the group, stopping its stream if the group is transmitting.
+     */
+    public synchronized void remove(ZelloChannel channel) {
+        if (members.remove(channel) && isTransmitting()) {
+            channel.stopVoiceStream();
+        }
+    }
+
+    public List<ZelloChannel> getMembers() {
+        return List.copyOf(members);
+    }
+
+    public synchronized boolean isTransmitting() {
+        return encodingSession >= 0;
+    }
+
+    /**
+     * Starts a voice stream on every member. Frames can be sent straight away; each member queues them
+     * until its stream ID arrives.
+     *
+     * @return A future that completes once every member's stream has started, or completes exceptionally
+     * if any member's stream could not be started. Members that did start keep transmitting.
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (isTransmitting()) {
+            throw new IllegalStateException("The broadcast group is already transmitting.");
+        }
+        encodingSession = audioEngine.startEncodingSession();
+        if (encodingSession < 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Could not create an Opus encoder."));
+        }
+        logger.info("Starting broadcast to {} channels", members.size());
+        return CompletableFuture.allOf(members.stream().map(ZelloChannel::startVoiceStream).toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Encodes one frame of PCM and sends it to every member.
+     *
+     * @param pcmData The PCM frame, {@link AudioConstants#FRAME_SIZE_BYTES} long.
+     */
+    public synchronized void sendVoiceData(byte[] pcmData) {
+        if (!isTransmitting()) {
+            logger.warn("Cannot send voice data: the broadcast group is not transmitting.");
+            return;
+        }
+        int opusLength = audioEngine.encode(encodingSession, pcmData, encodeBuffer, 0);
+        if (opusLength < 0) {
+            return;
+        }
+        for (ZelloChannel member : members) {
+            if (member.getState() == ConnectionState.CONNECTED) {
+                member.sendOpusData(encodeBuffer, 0, opusLength);
+            }
+        }
+    }
+
+    /**
+     * Stops every member's voice stream.
+     */
+    public synchronized void stop() {
+        if (!isTransmitting()) {
+            return;
+        }
+        members.forEach(ZelloChannel::stopVoiceStream);
+        audioEngine.stopEncodingSession(encodingSession);
+        encodingSession = -1;
+        logger.info("Broadcast stopped.");
+    }
+
+    /**
+     * Stops any transmission and releases the group's encoder. The member channels stay connected.
+     */
+    @Override
+    public synchronized void close() {
+        stop();
+        audioEngine.close();
+    }
+
+}
@@ -2,11 +2,31 @@ package io.github.ceakins.zello;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.BinaryPacketHandler;
+import io.github.ceakins.zello.internal.HeartbeatMonitor;
+import io.github.ceakins.zello.internal.JdkWebSocketTransport;
 import io.github.ceakins.zello.internal.JsonUtils;
+import io.github.ceakins.zello.internal.NettyWebSocketTransport;
+import io.github.ceakins.zello.internal.OutboundScheduler;
 import io.github.ceakins.zello.internal.WebSocketClientFactory;
 import io.github.ceakins.zello.internal.ZelloMessageHandler;
+import io.github.ceakins.zello.internal.ZelloScheduler;
+import io.github.ceakins.zello.internal.ZelloTransport;
 import io.github.ceakins.zello.internal.ZelloWebSocketClient;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
 import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.internal.audio.DecodeBuffers;
+import io.github.ceakins.zello.internal.audio.DecodeStage;
+import io.github.ceakins.zello.internal.image.ImagePreparer;
+import io.github.ceakins.zello.internal.image.ImageSource;
+import io.github.ceakins.zello.internal.image.ImageUploader;
+import io.github.ceakins.zello.internal.image.IncomingImageAssembler;
+import io.github.ceakins.zello.internal.image.PreparedImage;
+import io.github.ceakins.zello.internal.jfr.AudioPacketEvent;
+import io.github.ceakins.zello.internal.jfr.CommandEvent;
+import io.github.ceakins.zello.internal.jfr.ConnectionStateEvent;
+import io.github.ceakins.zello.metrics.LatencyProbe;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
 import io.github.ceakins.zello.model.commands.*;
 import io.github.ceakins.zello.model.events.*;
 import lombok.AllArgsConstructor;
@@ -15,49 +35,167 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public class ZelloChannel implements ZelloMessageHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ZelloChannel.class);
     private static final String USER_AGENT = "zello-channels-java-sdk/1.0.0";
-    private static final int MAX_IMAGE_PACKET_SIZE = 16384;
+    private static final int MAX_IMAGE_PACKET_SIZE = 8192;
 
     @Getter
     @AllArgsConstructor
     private static class PendingImage {
         private final byte[] thumbnailData;
-        private final byte[] fullImageData;
+        private final ImageSource fullImage;
+        private final CompletableFuture<Integer> result;
+        private final long createdNanos;
+    }
+
+    @FunctionalInterface
+    private interface ImagePreparation {
+        PreparedImage prepare() throws IOException;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class InFlightCommand {
+        private final String command;
+        private final long sentNanos;
+    }
+
+    @AllArgsConstructor
+    private static class PendingVoicePacket {
+        private final byte[] packet;
+        private final int opusLength;
+        private final boolean marker;
+    }
+
+    /**
+     * An outgoing voice stream. Each stream has its own encoder and numbers its own packets, and everything
+     * below is guarded by the stream's monitor, so frames sent from several threads are encoded, numbered
+     * and queued in one consistent order without any lock shared between streams or channels.
+     */
+    private static class OutgoingStream {
+        private final String codecHeader;
+        private final int packetDurationMs;
+        // Created with the first PCM frame, so streams fed with sendOpusData never hold an encoder.
+        private int encodingSession = -1;
+        private byte[] encodeBuffer;
+        private final CompletableFuture<Integer> ready = new CompletableFuture<>();
+        // Encoded frames waiting for the server to assign the stream's ID; null once it has.
+        private ArrayDeque<PendingVoicePacket> pending = new ArrayDeque<>();
+        private int streamId = -1;
+        private int nextPacketId = 0;
+        private boolean stopWhenStarted = false;
+        private boolean ended = false;
+
+        OutgoingStream(String codecHeader, int packetDurationMs) {
+            this.codecHeader = codecHeader;
+            this.packetDurationMs = packetDurationMs;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Subscriber {
+        private final ZelloChannelListener listener;
+        private final Subscription subscription;
+    }
+
+    /**
+     * An incoming stream, with the listeners it is delivered to worked out once rather than per packet.
+     */
+    private static class IncomingStream {
+        private static final Subscriber[] NONE = new Subscriber[0];
+
+        private final int streamId;
+        private final String from;
+        private volatile Subscriber[] pcmSubscribers = NONE;
+        private volatile Subscriber[] opusSubscribers = NONE;
+        // Whether a decoder exists for the stream, and whether the stream has ended and must never get one
+        // again. Both are changed under the stream's monitor, which is also held while decoding.
+        private volatile boolean decoding;
+        private boolean ended;
+        private volatile long lastPacketNanos;
+
+        IncomingStream(int streamId, String from) {
+            this.streamId = streamId;
+            this.from = from;
+            this.lastPacketNanos = System.nanoTime();
+        }
+
+        void match(List<Subscriber> subscribers) {
+            pcmSubscribers = matching(subscribers, ChannelEvent.AUDIO);
+            opusSubscribers = matching(subscribers, ChannelEvent.OPUS);
+        }
+
+        private Subscriber[] matching(List<Subscriber> subscribers, ChannelEvent event) {
+            return subscribers.stream()
+                    .filter(s -> s.getSubscription().wants(event) && s.getSubscription().acceptsStream(streamId, from))
+                    .toArray(Subscriber[]::new);
+        }
     }
 
     private final Map<Integer, PendingImage> pendingImages = new ConcurrentHashMap<>();
     private final Map<Integer, Consumer<JSONObject>> commandCallbacks = new ConcurrentHashMap<>();
-    private final Map<Integer, String> activeIncomingStreams = new ConcurrentHashMap<>();
+    private final Map<Integer, IncomingStream> activeIncomingStreams = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<Integer, InFlightCommand> inFlightCommands = new ConcurrentHashMap<>();
+    // Applied to every transport this channel creates; a null handler skips its packet type. Guarded by itself.
+    private final Map<Integer, BinaryPacketHandler> binaryHandlers = new HashMap<>();
+    private final ChannelRoster roster = new ChannelRoster();
 
     private final ZelloChannelConfig config;
-    private ZelloChannelListener listener;
     private final AudioEngine audioEngine;
-    private ZelloWebSocketClient webSocketClient;
+    private final ZelloMetrics metrics;
+    private final LatencyProbe latencyProbe;
+    private ZelloTransport webSocketClient;
+    private volatile OutboundScheduler outbound;
     private final AtomicInteger sequence = new AtomicInteger(1);
     private volatile ConnectionState state = ConnectionState.DISCONNECTED;
-    private volatile int outgoingStreamId = -1;
-    private volatile int outgoingPacketId = 0;
+    private final AtomicReference<OutgoingStream> outgoingStream = new AtomicReference<>();
+    // Decoding scratch space, used on the WebSocket read thread unless a decode stage is configured, whose
+    // workers have buffers of their own. Each outgoing stream has its own encoding buffer.
+    private final DecodeBuffers decodeBuffers = new DecodeBuffers();
+    // Created by connect() and closed once the connection has closed, so each connection gets fresh workers.
+    private volatile DecodeStage decodeStage;
 
     private final WebSocketClientFactory webSocketClientFactory;
+    private final ScheduledExecutorService outboundExecutor;
+    private final ImagePreparer imagePreparer;
+    private final ImageUploader imageUploader;
+    private final ThreadPoolExecutor imageExecutor;
+    private final Semaphore imageSlots;
+    private final IncomingImageAssembler incomingImages;
+    private final ImageCache imageCache;
+    private volatile ScheduledFuture<?> housekeepingTask;
+    private volatile HeartbeatMonitor heartbeat;
 
     /**
      * Constructs a new ZelloChannel with the specified configuration for production use.
@@ -65,7 +203,7 @@ public class ZelloChannel implements ZelloMessageHandler {
      * @param config The non-null configuration object containing all connection details.
      */
     public ZelloChannel(ZelloChannelConfig config) {
-        this(config, new AudioEngine(), ZelloWebSocketClient::new);
+        this(config, new AudioEngine(config.getMetrics()), transportFactory(config));
     }
 
     /**
@@ -76,25 +214,127 @@ public class ZelloChannel implements ZelloMessageHandler {
      * @param webSocketClientFactory A factory to produce the WebSocket client (can be a mock factory).
      */
     ZelloChannel(ZelloChannelConfig config, AudioEngine audioEngine, WebSocketClientFactory webSocketClientFactory) {
+        this(config, audioEngine, webSocketClientFactory, ZelloScheduler.get());
+    }
+
+    /**
+     * Internal constructor used by {@link ZelloConnectionManager} to run the channel on shared I/O resources.
+     *
+     * @param outboundExecutor The executor that drains the channel's outbound queues when the socket is busy.
+     */
+    ZelloChannel(ZelloChannelConfig config, AudioEngine audioEngine, WebSocketClientFactory webSocketClientFactory,
+                 ScheduledExecutorService outboundExecutor) {
         this.config = config;
         this.audioEngine = audioEngine;
         this.webSocketClientFactory = webSocketClientFactory;
+        this.outboundExecutor = outboundExecutor;
+        this.metrics = config.getMetrics();
+        this.latencyProbe = config.getLatencyProbe();
+        this.imagePreparer = new ImagePreparer(ImagePreparer.DEFAULT_THUMBNAIL_WIDTH, config.getMaxImageBytes());
+        this.imageUploader = new ImageUploader(MAX_IMAGE_PACKET_SIZE, config.getImageUploadTimeoutMs());
+        this.imageExecutor = createImageExecutor(config);
+        this.imageSlots = new Semaphore(Math.max(1, config.getMaxPendingImages()));
+        this.incomingImages = new IncomingImageAssembler(config.getMaxIncomingImageBytes(),
+                config.getMaxPendingIncomingImageBytes());
+        this.imageCache = config.getImageCache();
     }
 
+    /**
+     * Replaces all listeners with this one, subscribed to every event.
+     *
+     * @param listener The listener, or null to remove all listeners.
+     */
     public void setListener(ZelloChannelListener listener) {
-        this.listener = listener;
+        subscribers.clear();
+        if (listener != null) {
+            subscribers.add(new Subscriber(listener, Subscription.all()));
+        }
+        matchStreams();
+    }
+
+    /**
+     * Adds a listener subscribed to every event.
+     */
+    public void addListener(ZelloChannelListener listener) {
+        addListener(listener, Subscription.all());
+    }
+
+    /**
+     * Adds a listener that receives only the events its subscription selects. A listener added while
+     * streams are in progress starts receiving their audio with the next packet.
+     */
+    public void addListener(ZelloChannelListener listener, Subscription subscription) {
+        subscribers.add(new Subscriber(listener, subscription));
+        matchStreams();
+    }
+
+    public void removeListener(ZelloChannelListener listener) {
+        subscribers.removeIf(s -> s.getListener() == listener);
+        matchStreams();
     }
 
     public ConnectionState getState() {
         return this.state;
     }
 
+    /**
+     * @return The account this channel logs on with, as supplied in its configuration.
+     */
+    public String getUsername() {
+        return config.getUsername();
+    }
+
+    /**
+     * @return The metrics sink this channel records to, as supplied in its configuration.
+     */
+    public ZelloMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return The users in the channel, kept up to date while connected.
+     */
+    public ChannelRoster getRoster() {
+        return this.roster;
+    }
+
+    /**
+     * @return The number of Opus decoders currently held for incoming streams.
+     */
+    public int getDecoderCount() {
+        return audioEngine.getDecoderCount();
+    }
+
+    /**
+     * @return An estimate of the native (off-heap) memory held by this channel's Opus encoder and decoders, in bytes.
+     */
+    public long getNativeCodecBytes() {
+        return audioEngine.getEncoderNativeBytes() + audioEngine.getDecoderNativeBytes();
+    }
+
+    /**
+     * @return The smoothed round-trip time to the server measured by the heartbeat, in nanoseconds, or -1
+     * if the heartbeat is disabled or no pong has been received on the current connection yet.
+     * @see ZelloChannelConfig#getHeartbeatIntervalMs()
+     */
+    public long getSmoothedRttNanos() {
+        HeartbeatMonitor monitor = heartbeat;
+        return monitor != null ? monitor.getSmoothedRttNanos() : -1;
+    }
+
+    /**
+     * @return The latency probe from this channel's configuration, or null if probing is disabled.
+     */
+    public LatencyProbe getLatencyProbe() {
+        return this.latencyProbe;
+    }
+
     public void connect() throws URISyntaxException {
         if (state != ConnectionState.DISCONNECTED) {
             throw new IllegalStateException("Cannot connect when not in DISCONNECTED state. Current state: " + state);
         }
         logger.info("Connecting to channel '{}' at {}", config.getChannel(), config.getServerUrl());
-        state = ConnectionState.CONNECTING;
+        setState(ConnectionState.CONNECTING);
         Map<String, String> headers = new HashMap<>();
         headers.put("User-Agent", USER_AGENT);
         headers.put("Pragma", "zello-api-v1");
@@ -103,52 +343,229 @@ public class ZelloChannel implements ZelloMessageHandler {
         logger.debug("-----------------------------------");
 
         this.webSocketClient = webSocketClientFactory.create(new URI(config.getServerUrl()), headers, this);
+        synchronized (binaryHandlers) {
+            binaryHandlers.forEach(webSocketClient::registerBinaryHandler);
+        }
+        this.outbound = new OutboundScheduler(webSocketClient, config.getAudioSendDeadlineMs(), metrics, outboundExecutor);
+        this.decodeStage = config.getDecodeThreads() > 0
+                ? new DecodeStage(config.getChannel(), config.getDecodeThreads(), config.getDecodeQueueCapacity()) : null;
         this.webSocketClient.connect();
     }
 
+    /**
+     * Registers a handler for a binary packet type, replacing any existing handler for that type, so that
+     * extension packet types can be consumed without ever reaching the audio path. The handler applies to
+     * the current connection, if any, and to every later one.
+     *
+     * @param type The packet type byte (0-255).
+     * @param handler The handler, or null to skip packets of this type.
+     */
+    public void registerBinaryHandler(int type, BinaryPacketHandler handler) {
+        if (type < 0 || type > 0xFF) {
+            throw new IllegalArgumentException("Binary packet type must be between 0 and 255: " + type);
+        }
+        synchronized (binaryHandlers) {
+            binaryHandlers.put(type, handler);
+            if (webSocketClient != null) {
+                webSocketClient.registerBinaryHandler(type, handler);
+            }
+        }
+    }
+
     public void disconnect() {
         if (webSocketClient != null) {
-            state = ConnectionState.DISCONNECTING;
+            setState(ConnectionState.DISCONNECTING);
             webSocketClient.close();
         }
         audioEngine.close();
     }
 
-    public void startVoiceStream() {
+    /**
+     * Asks the server to start an outgoing voice stream. Audio can be sent with {@link #sendVoiceData}
+     * straight away: frames sent before the server has assigned the stream's ID are encoded and queued,
+     * up to {@link ZelloChannelConfig#getMaxPendingVoiceFrames()}, and sent the moment the ID arrives, so
+     * capture can start in parallel with the round trip without clipping the first words.
+     *
+     * @return A future that completes with the stream ID once the stream has started, or completes
+     * exceptionally if the server refuses it or the connection closes first. Calling this again while the
+     * stream is still starting returns the same future.
+     */
+    public CompletableFuture<Integer> startVoiceStream() {
+        return startVoiceStream(StartStreamCommand.DEFAULT_CODEC_HEADER, StartStreamCommand.DEFAULT_PACKET_DURATION);
+    }
+
+    /**
+     * Starts an outgoing voice stream that announces the given codec header and packet duration instead
+     * of those of the built-in encoder, for relaying Opus audio produced elsewhere with {@link #sendOpusData}.
+     * Such a stream must not be fed with {@link #sendVoiceData}, whose frames would not match the header.
+     *
+     * @param codecHeader      The Base64-encoded codec header, as received in an on_stream_start event.
+     * @param packetDurationMs The duration of each packet in milliseconds.
+     * @see #startVoiceStream()
+     */
+    public CompletableFuture<Integer> startVoiceStream(String codecHeader, int packetDurationMs) {
         if (state != ConnectionState.CONNECTED) {
             logger.warn("Cannot start voice stream while not connected.");
-            return;
+            return CompletableFuture.failedFuture(new IllegalStateException("Cannot start voice stream while not connected."));
+        }
+        OutgoingStream current = outgoingStream.get();
+        if (current != null) {
+            synchronized (current) {
+                if (current.pending != null && !current.ended && current.codecHeader.equals(codecHeader)
+                        && current.packetDurationMs == packetDurationMs) {
+                    current.stopWhenStarted = false;
+                    return current.ready;
+                }
+            }
         }
+        OutgoingStream stream = new OutgoingStream(codecHeader, packetDurationMs);
+        endOutgoingStream(outgoingStream.getAndSet(stream), new IllegalStateException("Replaced by a new voice stream."));
         logger.debug("Sending start_stream command...");
-        this.outgoingPacketId = 0;
-        sendCommand(new StartStreamCommand());
+        StartStreamCommand command = new StartStreamCommand(codecHeader, packetDurationMs);
+        if (!sendCommand(command, sequence.getAndIncrement(), response -> onStreamStartResponse(stream, response))) {
+            failOutgoingStream(stream, new IllegalStateException("Cannot start voice stream while websocket is closed."));
+        }
+        return stream.ready;
     }
 
+    /**
+     * Stops the outgoing voice stream. If the server has not assigned the stream's ID yet, the queued
+     * frames are still sent and the stream is stopped as soon as the ID arrives.
+     */
     public void stopVoiceStream() {
-        if (state != ConnectionState.CONNECTED || outgoingStreamId == -1) {
+        stopOutgoingStream(outgoingStream.get());
+    }
+
+    private void stopOutgoingStream(OutgoingStream stream) {
+        if (stream == null) {
             return;
         }
-        logger.debug("Sending stop_stream command for stream ID {}", outgoingStreamId);
-        sendCommand(new StopStreamCommand(outgoingStreamId, config.getChannel()));
-        this.outgoingStreamId = -1;
+        int streamId;
+        synchronized (stream) {
+            if (stream.ended) {
+                return;
+            }
+            if (stream.pending != null) {
+                stream.stopWhenStarted = true;
+                return;
+            }
+            streamId = stream.streamId;
+        }
+        outgoingStream.compareAndSet(stream, null);
+        endOutgoingStream(stream, null);
+        if (state == ConnectionState.CONNECTED) {
+            logger.debug("Sending stop_stream command for stream ID {}", streamId);
+            sendCommand(new StopStreamCommand(streamId, config.getChannel()));
+        }
     }
 
+    /**
+     * Encodes one frame of PCM and sends it on the outgoing stream, or queues it if the stream is still
+     * starting. Safe to call from several threads; frames are numbered in the order they are encoded.
+     */
     public void sendVoiceData(byte[] pcmData) {
-        if (state != ConnectionState.CONNECTED || outgoingStreamId == -1) {
+        OutgoingStream stream = outgoingStream.get();
+        if (state != ConnectionState.CONNECTED || stream == null) {
             logger.warn("Cannot send voice data: not connected or stream not started.");
             return;
         }
-        byte[] opusData = audioEngine.encode(pcmData);
-        if (opusData != null && webSocketClient != null && webSocketClient.isOpen()) {
-            ByteBuffer packet = ByteBuffer.allocate(9 + opusData.length);
-            packet.order(ByteOrder.BIG_ENDIAN);
-            packet.put((byte) 0x01);
-            packet.putInt(outgoingStreamId);
-            packet.putInt(outgoingPacketId);
-            packet.put(opusData);
-            logger.trace("Sending audio packet: streamId={}, packetId={}, opusSize={}", outgoingStreamId, outgoingPacketId, opusData.length);
-            webSocketClient.send(packet.array());
-            outgoingPacketId++;
+        LatencyProbe probe = latencyProbe;
+        boolean marker = probe != null && probe.isAwaiting(LatencyProbe.Stage.ENCODE) && probe.isMarker(pcmData);
+        synchronized (stream) {
+            if (stream.ended) {
+                return;
+            }
+            if (stream.encodingSession < 0) {
+                stream.encodingSession = audioEngine.startEncodingSession();
+                if (stream.encodingSession < 0) {
+                    logger.warn("Cannot send voice data: could not create an Opus encoder.");
+                    return;
+                }
+                stream.encodeBuffer = new byte[AudioConstants.MAX_OPUS_PACKET_SIZE];
+            }
+            int opusLength = audioEngine.encode(stream.encodingSession, pcmData, stream.encodeBuffer, 0);
+            if (opusLength < 0) {
+                return;
+            }
+            if (marker) {
+                probe.stamp(LatencyProbe.Stage.ENCODE, System.nanoTime());
+            }
+            sendOrQueue(stream, stream.encodeBuffer, 0, opusLength, marker);
+        }
+    }
+
+    /**
+     * Sends one packet that is already Opus-encoded on the outgoing stream, or queues it if the stream is
+     * still starting, exactly as {@link #sendVoiceData} does after encoding. The packet must match the codec
+     * header and packet duration the stream was started with: the built-in encoder's 16 kHz mono, 20 ms
+     * frames for {@link #startVoiceStream()}, or the values given to {@link #startVoiceStream(String, int)}.
+     * This lets one encoded frame be sent to many channels, as {@link ZelloBroadcastGroup} does, and relayed
+     * packets be forwarded as received, as {@link ZelloChannelRelay} does.
+     *
+     * @param opusData The array holding the frame, which is copied before this method returns.
+     */
+    public void sendOpusData(byte[] opusData, int offset, int length) {
+        OutgoingStream stream = outgoingStream.get();
+        if (state != ConnectionState.CONNECTED || stream == null) {
+            logger.warn("Cannot send voice data: not connected or stream not started.");
+            return;
+        }
+        synchronized (stream) {
+            if (!stream.ended) {
+                sendOrQueue(stream, opusData, offset, length, false);
+            }
+        }
+    }
+
+    /**
+     * Copies an encoded frame into a packet and sends it, or queues it until the stream's ID arrives.
+     * Called holding the stream's monitor.
+     */
+    private void sendOrQueue(OutgoingStream stream, byte[] opusData, int offset, int opusLength, boolean marker) {
+        // The packet itself is the one unavoidable allocation: the socket holds on to it until it is written.
+        byte[] packet = new byte[9 + opusLength];
+        System.arraycopy(opusData, offset, packet, 9, opusLength);
+        ArrayDeque<PendingVoicePacket> pending = stream.pending;
+        if (pending == null) {
+            sendVoicePacket(stream, packet, opusLength, marker);
+            return;
+        }
+        if (pending.size() >= config.getMaxPendingVoiceFrames()) {
+            pending.removeFirst();
+            metrics.recordAudioFrameExpired();
+        }
+        pending.addLast(new PendingVoicePacket(packet, opusLength, marker));
+    }
+
+    /**
+     * Fills in the header of an encoded packet and sends it on the outgoing stream. Called holding the stream's monitor.
+     */
+    private void sendVoicePacket(OutgoingStream stream, byte[] packet, int opusLength, boolean marker) {
+        if (webSocketClient != null && webSocketClient.isOpen()) {
+            LatencyProbe probe = latencyProbe;
+            ByteBuffer header = ByteBuffer.wrap(packet, 0, 9);
+            header.order(ByteOrder.BIG_ENDIAN);
+            header.put((byte) 0x01);
+            header.putInt(stream.streamId);
+            header.putInt(stream.nextPacketId);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Sending audio packet: streamId={}, packetId={}, opusSize={}", stream.streamId, stream.nextPacketId, opusLength);
+            }
+            if (!outbound.sendAudio(packet)) {
+                return;
+            }
+            if (marker) {
+                probe.stamp(LatencyProbe.Stage.SEND, System.nanoTime());
+            }
+            AudioPacketEvent event = new AudioPacketEvent();
+            if (event.shouldCommit()) {
+                event.direction = "out";
+                event.streamId = stream.streamId;
+                event.packetId = stream.nextPacketId;
+                event.size = opusLength;
+                event.commit();
+            }
+            stream.nextPacketId++;
         }
     }
 
@@ -165,34 +582,189 @@ public class ZelloChannel implements ZelloMessageHandler {
         sendCommand(new SendTextMessageCommand(config.getChannel(), message), ackCallback);
     }
 
-    public void sendImage(byte[] jpegData) {
+    /**
+     * Sends a JPEG image to the channel.
+     * <p>
+     * The thumbnail and any re-encoding are prepared on a background executor, so this method returns
+     * immediately. At most {@link ZelloChannelConfig#getMaxPendingImages()} images may be in flight
+     * (being prepared, awaiting an image ID, or uploading) at once; further images are rejected.
+     *
+     * @param jpegData The encoded JPEG image.
+     * @return A future that completes with the server-assigned image ID once the image data has been sent,
+     * or completes exceptionally if preparation, the send_image command, or the upload fails or times out.
+     */
+    public CompletableFuture<Integer> sendImage(byte[] jpegData) {
+        return submitImage(() -> imagePreparer.prepare(jpegData));
+    }
+
+    /**
+     * Sends a JPEG image stored in a file. The file is streamed in bounded packets and is never loaded
+     * into memory as a whole, unless it has to be re-encoded to fit {@link ZelloChannelConfig#getMaxImageBytes()}.
+     * The file must not change until the returned future completes.
+     *
+     * @param jpegFile The file containing the JPEG image.
+     * @return A future as described in {@link #sendImage(byte[])}.
+     */
+    public CompletableFuture<Integer> sendImage(Path jpegFile) {
+        return submitImage(() -> imagePreparer.prepare(jpegFile, false));
+    }
+
+    /**
+     * Sends a JPEG image read from a stream. The stream is spooled to a temporary file on a background
+     * thread, so memory use does not grow with the image size, and is closed once it has been read.
+     *
+     * @param jpegStream The stream to read the JPEG image from.
+     * @return A future as described in {@link #sendImage(byte[])}.
+     */
+    public CompletableFuture<Integer> sendImage(InputStream jpegStream) {
+        return submitImage(() -> {
+            Path spoolFile = Files.createTempFile("zello-image-", ".jpg");
+            try (InputStream input = jpegStream) {
+                Files.copy(input, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(spoolFile);
+                throw e;
+            }
+            return imagePreparer.prepare(spoolFile, true);
+        });
+    }
+
+    private CompletableFuture<Integer> submitImage(ImagePreparation preparation) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
         if (state != ConnectionState.CONNECTED) {
             logger.warn("Cannot send image while not connected.");
-            return;
+            result.completeExceptionally(new IllegalStateException("Cannot send image while not connected."));
+            return result;
+        }
+        if (!imageSlots.tryAcquire()) {
+            logger.warn("Too many images in flight; rejecting image.");
+            result.completeExceptionally(new IllegalStateException("Too many images in flight (max " + config.getMaxPendingImages() + ")."));
+            return result;
         }
+        result.whenComplete((imageId, error) -> imageSlots.release());
+        imageExecutor.execute(() -> prepareAndSendImage(preparation, result));
+        return result;
+    }
+
+    private void prepareAndSendImage(ImagePreparation preparation, CompletableFuture<Integer> result) {
         try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpegData));
-            if (image == null) {
-                throw new IOException("Could not decode provided image data.");
-            }
-            int width = image.getWidth();
-            int height = image.getHeight();
-            byte[] thumbnailData = createThumbnail(image, 100);
-            SendImageCommand command = SendImageCommand.builder().channel(config.getChannel()).width(width).height(height).contentLength(jpegData.length).thumbnailContentLength(thumbnailData.length).build();
+            PreparedImage image = preparation.prepare();
+            SendImageCommand command = SendImageCommand.builder().channel(config.getChannel()).width(image.getWidth()).height(image.getHeight()).contentLength((int) image.getFullImage().length()).thumbnailContentLength(image.getThumbnailData().length).build();
             int seq = sequence.getAndIncrement();
-            command.setSequence(seq);
-            pendingImages.put(seq, new PendingImage(thumbnailData, jpegData));
-            sendCommand(command);
-        } catch (IOException e) {
+            pendingImages.put(seq, new PendingImage(image.getThumbnailData(), image.getFullImage(), result, System.nanoTime()));
+            if (!sendCommand(command, seq, null)) {
+                failPendingImage(seq, new IllegalStateException("Cannot send image while websocket is closed."));
+            }
+        } catch (Exception e) {
             logger.error("Failed to process image for sending", e);
-            if (listener != null) listener.onError("Failed to process image for sending", e);
+            result.completeExceptionally(e);
+            notifyListeners(ChannelEvent.CONNECTION, l -> l.onError("Failed to process image for sending", e));
+        }
+    }
+
+    private void uploadImage(int imageId, PendingImage image) {
+        try {
+            imageUploader.upload(outbound, imageId, image.getThumbnailData(), image.getFullImage());
+            image.getResult().complete(imageId);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to upload image {}", imageId, e);
+            image.getResult().completeExceptionally(e);
+        } finally {
+            image.getFullImage().release();
+        }
+    }
+
+    private void failPendingImage(int seq, Throwable cause) {
+        PendingImage image = pendingImages.remove(seq);
+        if (image != null) {
+            image.getFullImage().release();
+            image.getResult().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Returns a received image from the image cache.
+     *
+     * @param imageId The image ID from an {@link OnImageEvent}.
+     * @return The full-size JPEG data, shared between all callers and not to be modified, or null if not cached.
+     */
+    public byte[] getCachedImage(int imageId) {
+        return imageCache.get(imageCacheKey(imageId, false));
+    }
+
+    /**
+     * Returns a received thumbnail from the image cache.
+     *
+     * @param imageId The image ID from an {@link OnImageEvent}.
+     * @return The thumbnail JPEG data, shared between all callers and not to be modified, or null if not cached.
+     */
+    public byte[] getCachedThumbnail(int imageId) {
+        return imageCache.get(imageCacheKey(imageId, true));
+    }
+
+    private String imageCacheKey(int imageId, boolean thumbnail) {
+        return config.getServerUrl() + "|" + config.getChannel() + "|" + imageId + (thumbnail ? "|thumbnail" : "|full");
+    }
+
+    /**
+     * Expires images whose send_image command has gone unanswered for longer than the upload timeout,
+     * so that their data and in-flight slots are not held forever, and incoming streams that have gone
+     * quiet without a stop event.
+     */
+    private void housekeeping() {
+        expirePendingImages();
+        incomingImages.expireIdle(config.getImageUploadTimeoutMs());
+        reapIdleStreams(System.nanoTime());
+    }
+
+    /**
+     * Ends every incoming stream whose last packet arrived more than the idle timeout before {@code now},
+     * as if the server had stopped it. Runs on the shared scheduler, so the end itself is handed off
+     * without blocking: to the stream's decode worker, or to the callback pool when decoding is not
+     * staged. A stream whose worker has no room is retried on the next pass.
+     */
+    void reapIdleStreams(long now) {
+        long timeoutMs = config.getIncomingStreamIdleTimeoutMs();
+        if (timeoutMs <= 0) {
+            return;
+        }
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (IncomingStream stream : activeIncomingStreams.values()) {
+            if (now - stream.lastPacketNanos <= timeoutNanos) {
+                continue;
+            }
+            int streamId = stream.streamId;
+            DecodeStage stage = decodeStage;
+            if (stage == null) {
+                ZelloScheduler.callbacks().execute(() -> finishIncomingStream(streamId, stream));
+            } else if (!stage.submit(streamId, buffers -> finishIncomingStream(streamId, stream))) {
+                continue;
+            }
+            if (activeIncomingStreams.remove(streamId, stream)) {
+                logger.warn("No audio received for stream {} from {} in {} ms; treating it as stopped.", streamId, stream.from, timeoutMs);
+                metrics.recordIdleStreamReaped();
+            }
+        }
+    }
+
+    private void expirePendingImages() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getImageUploadTimeoutMs());
+        long now = System.nanoTime();
+        for (Map.Entry<Integer, PendingImage> entry : pendingImages.entrySet()) {
+            if (now - entry.getValue().getCreatedNanos() > timeoutNanos) {
+                logger.warn("No image_id received for send_image seq {} within {} ms; expiring.", entry.getKey(), config.getImageUploadTimeoutMs());
+                failPendingImage(entry.getKey(), new TimeoutException("No image_id received within " + config.getImageUploadTimeoutMs() + " ms."));
+            }
         }
     }
 
     @Override
     public void onOpen() {
         logger.info("WebSocket connection established. Sending logon command...");
-        state = ConnectionState.LOGGING_IN;
+        setState(ConnectionState.LOGGING_IN);
+        outbound.start();
+        housekeepingTask = ZelloScheduler.get().scheduleWithFixedDelay(this::housekeeping, 1, 1, TimeUnit.SECONDS);
+        startHeartbeat();
         sendCommand(new LogonCommand(config));
     }
 
@@ -200,6 +772,18 @@ public class ZelloChannel implements ZelloMessageHandler {
     public void onServerResponse(JSONObject response) {
         logger.debug("Received server response: {}", response);
         int seq = response.optInt("seq", -1);
+        InFlightCommand inFlight = seq != -1 ? inFlightCommands.remove(seq) : null;
+        if (inFlight != null) {
+            metrics.recordCommandRoundTrip(inFlight.getCommand(), System.nanoTime() - inFlight.getSentNanos());
+            CommandEvent event = new CommandEvent();
+            if (event.shouldCommit()) {
+                event.phase = "ack";
+                event.command = inFlight.getCommand();
+                event.seq = seq;
+                event.success = !response.has("error") && response.optBoolean("success", true);
+                event.commit();
+            }
+        }
         if (seq != -1 && commandCallbacks.containsKey(seq)) {
             commandCallbacks.remove(seq).accept(response);
             return;
@@ -208,72 +792,274 @@ public class ZelloChannel implements ZelloMessageHandler {
         if (isError) {
             String error = response.optString("error", "An unknown error occurred.");
             logger.error("A command failed (seq={}): {}", seq, error);
-            if (listener != null) listener.onError("A command failed: " + error, null);
-            pendingImages.remove(seq);
+            notifyListeners(ChannelEvent.CONNECTION, l -> l.onError("A command failed: " + error, null));
+            failPendingImage(seq, new IllegalStateException("send_image failed: " + error));
             return;
         }
-        if (response.has("stream_id")) {
-            this.outgoingStreamId = response.getInt("stream_id");
-            logger.info("Outgoing stream started successfully with ID: {}", outgoingStreamId);
-        }
         if (response.has("image_id") && seq != -1) {
             int imageId = response.getInt("image_id");
             PendingImage image = pendingImages.remove(seq);
             if (image != null) {
                 logger.info("Received image_id '{}' for seq {}. Starting binary upload.", imageId, seq);
-                sendBinaryImageData(imageId, image.getThumbnailData(), image.getFullImageData());
+                imageExecutor.execute(() -> uploadImage(imageId, image));
             }
         }
     }
 
+    /**
+     * Handles the answer to start_stream: on success, sends the frames queued while waiting and completes
+     * the stream's future; on failure, discards them.
+     */
+    private void onStreamStartResponse(OutgoingStream stream, JSONObject response) {
+        if (response.has("error") || !response.optBoolean("success", true) || !response.has("stream_id")) {
+            String error = response.optString("error", "no stream_id in response");
+            logger.error("Could not start outgoing stream: {}", error);
+            failOutgoingStream(stream, new IllegalStateException("start_stream failed: " + error));
+            notifyListeners(ChannelEvent.CONNECTION, l -> l.onError("A command failed: " + error, null));
+            return;
+        }
+        int streamId = response.getInt("stream_id");
+        boolean stop;
+        int flushed;
+        synchronized (stream) {
+            if (stream.ended || stream.pending == null) {
+                return;
+            }
+            stream.streamId = streamId;
+            flushed = stream.pending.size();
+            for (PendingVoicePacket packet : stream.pending) {
+                sendVoicePacket(stream, packet.packet, packet.opusLength, packet.marker);
+            }
+            stream.pending = null;
+            stop = stream.stopWhenStarted;
+        }
+        logger.info("Outgoing stream started successfully with ID: {} ({} queued frames sent)", streamId, flushed);
+        stream.ready.complete(streamId);
+        if (stop) {
+            stopOutgoingStream(stream);
+        }
+    }
+
+    private void failOutgoingStream(OutgoingStream stream, Throwable cause) {
+        outgoingStream.compareAndSet(stream, null);
+        endOutgoingStream(stream, cause);
+    }
+
+    /**
+     * Marks a stream ended and releases its encoder, if it has one. If the stream never started, its future fails with the cause.
+     */
+    private void endOutgoingStream(OutgoingStream stream, Throwable cause) {
+        if (stream == null) {
+            return;
+        }
+        int encodingSession;
+        synchronized (stream) {
+            if (stream.ended) {
+                return;
+            }
+            stream.ended = true;
+            stream.pending = null;
+            encodingSession = stream.encodingSession;
+        }
+        if (encodingSession >= 0) {
+            audioEngine.stopEncodingSession(encodingSession);
+        }
+        stream.ready.completeExceptionally(cause != null ? cause : new IllegalStateException("Voice stream stopped before it started."));
+    }
+
     @Override
     public void onServerCommand(ServerCommand command) {
         if (command instanceof OnChannelStatusEvent event) {
-            if ("online".equals(event.getStatus())) {
+            if ("online".equals(event.getStatus()) && state != ConnectionState.CONNECTED) {
                 logger.info("Logon successful. Channel is online.");
-                state = ConnectionState.CONNECTED;
-                if (listener != null) listener.onConnected();
+                setState(ConnectionState.CONNECTED);
+                notifyListeners(ChannelEvent.CONNECTION, ZelloChannelListener::onConnected);
             }
+            notifyRosterChanges(ChannelRoster.OFFLINE.equals(event.getStatus()) ? roster.clear() : roster.apply(event.getUsers()));
         } else if (command instanceof OnTextMessageEvent event) {
-            if (listener != null) listener.onTextMessage(event.getFrom(), event.getMessage());
+            notifyListeners(ChannelEvent.TEXT, event.getFrom(), l -> l.onTextMessage(event.getFrom(), event.getMessage()));
         } else if (command instanceof OnStreamStartEvent event) {
-            activeIncomingStreams.put(event.getStreamId(), event.getFrom());
-            audioEngine.startDecodingSession(event.getStreamId());
-            if (listener != null) listener.onStreamStarted(event.getStreamId(), event.getFrom());
+            IncomingStream stream = new IncomingStream(event.getStreamId(), event.getFrom());
+            stream.match(subscribers);
+            // The decoder is created with the first packet, and only if a listener wants PCM.
+            IncomingStream previous = activeIncomingStreams.put(event.getStreamId(), stream);
+            if (previous != null) {
+                onDecodeThread(previous.streamId, buffers -> retire(previous));
+            }
+            notifyStreamListeners(event.getStreamId(), event.getFrom(), l -> {
+                l.onStreamStarted(event.getStreamId(), event.getFrom());
+                l.onStreamStartEvent(event);
+            });
         } else if (command instanceof OnStreamStopEvent event) {
-            String from = activeIncomingStreams.remove(event.getStreamId());
-            audioEngine.stopDecodingSession(event.getStreamId());
-            if (listener != null) listener.onStreamStopped(event.getStreamId(), from);
+            endIncomingStream(event.getStreamId(), activeIncomingStreams.remove(event.getStreamId()));
         } else if (command instanceof OnErrorEvent event) {
             logger.error("Received an error event from the server: {}", event.getError());
-            if (listener != null) listener.onError("Server error: " + event.getError(), null);
+            notifyListeners(ChannelEvent.CONNECTION, l -> l.onError("Server error: " + event.getError(), null));
         } else if (command instanceof OnImageEvent event) {
             logger.info("Received image from {}", event.getFrom());
-            if (listener != null) listener.onImageEvent(event);
+            incomingImages.onImageAnnounced(event.getImageId(), event.getFrom());
+            notifyListeners(ChannelEvent.IMAGE, event.getFrom(), l -> l.onImageEvent(event));
+        }
+    }
+
+    @Override
+    public void onAudioPacket(int streamId, ByteBuffer opusData) {
+        long receivedNanos = latencyProbe != null ? System.nanoTime() : 0;
+        IncomingStream stream = activeIncomingStreams.get(streamId);
+        if (stream == null) {
+            logger.debug("Received audio for stream {}, which has not started.", streamId);
+            return;
+        }
+        stream.lastPacketNanos = System.nanoTime();
+        Subscriber[] opusSubscribers = stream.opusSubscribers;
+        if (opusSubscribers.length > 0) {
+            int position = opusData.position();
+            int limit = opusData.limit();
+            for (Subscriber subscriber : opusSubscribers) {
+                long start = System.nanoTime();
+                subscriber.getListener().onOpusPacket(streamId, opusData);
+                metrics.recordListenerCallback(System.nanoTime() - start);
+                opusData.limit(limit).position(position);
+            }
+        }
+        if (stream.pcmSubscribers.length == 0) {
+            if (stream.decoding) {
+                onDecodeThread(streamId, buffers -> stopDecoding(stream));
+            }
+            return;
+        }
+        DecodeStage stage = decodeStage;
+        if (stage == null) {
+            decode(stream, opusData, receivedNanos, decodeBuffers);
+            return;
+        }
+        // The transport reuses the packet's buffer once this method returns, so the worker gets a copy.
+        byte[] packet = new byte[opusData.remaining()];
+        opusData.get(opusData.position(), packet);
+        if (!stage.submit(streamId, buffers -> decode(stream, ByteBuffer.wrap(packet), receivedNanos, buffers))) {
+            metrics.recordDecodeQueueOverflow();
+            logger.debug("Decode queue full; dropping a frame of stream {}.", streamId);
+        }
+    }
+
+    /**
+     * Decodes a packet and delivers the PCM to the stream's subscribers, starting the stream's decoder if
+     * this is the first packet anyone wants decoded. Runs on the thread that owns the stream's decoder,
+     * holding the stream's monitor so that a stream ended concurrently never gets a new decoder.
+     */
+    private void decode(IncomingStream stream, ByteBuffer opusData, long receivedNanos, DecodeBuffers buffers) {
+        synchronized (stream) {
+            if (!stream.ended) {
+                decodeAndDeliver(stream, opusData, receivedNanos, buffers);
+            }
+        }
+    }
+
+    private void decodeAndDeliver(IncomingStream stream, ByteBuffer opusData, long receivedNanos, DecodeBuffers buffers) {
+        Subscriber[] pcmSubscribers = stream.pcmSubscribers;
+        if (pcmSubscribers.length == 0) {
+            stopDecoding(stream);
+            return;
+        }
+        int streamId = stream.streamId;
+        if (!stream.decoding) {
+            audioEngine.startDecodingSession(streamId);
+            stream.decoding = true;
+        }
+        int length = audioEngine.decode(streamId, opusData, buffers.getDecodeBuffer());
+        if (length < 0) {
+            return;
+        }
+        byte[] pcmData = buffers.listenerCopy(length, config.isReuseAudioBuffers());
+        LatencyProbe probe = latencyProbe;
+        if (probe != null && probe.isAwaiting(LatencyProbe.Stage.RECEIVE) && probe.isMarker(pcmData)) {
+            // Only the decoded audio identifies the marker, so its arrival time is recorded retroactively.
+            probe.stamp(LatencyProbe.Stage.RECEIVE, receivedNanos);
+            long decodedNanos = System.nanoTime();
+            probe.stamp(LatencyProbe.Stage.DECODE, decodedNanos);
+            probe.stamp(LatencyProbe.Stage.DISPATCH, decodedNanos);
+        }
+        for (Subscriber subscriber : pcmSubscribers) {
+            long start = System.nanoTime();
+            subscriber.getListener().onAudioData(streamId, pcmData);
+            metrics.recordListenerCallback(System.nanoTime() - start);
         }
     }
 
     @Override
-    public void onAudioPacket(int streamId, byte[] audioData) {
-        byte[] pcmData = audioEngine.decode(streamId, audioData);
-        if (listener != null && pcmData != null) {
-            listener.onAudioData(streamId, pcmData);
+    public void onImagePacket(int imageId, int imageType, byte[] imageData) {
+        IncomingImageAssembler.CompletedImage image = incomingImages.onImagePacket(imageId, imageType, imageData);
+        if (image == null) {
+            return;
+        }
+        logger.debug("Received complete {} ({} bytes) for image {}", image.isThumbnail() ? "thumbnail" : "image", image.getData().length, imageId);
+        // Spill files for whatever this evicts are written on the image workers, not the receive thread.
+        imageCache.put(imageCacheKey(imageId, image.isThumbnail()), image.getData(), imageExecutor);
+        if (image.isThumbnail()) {
+            notifyListeners(ChannelEvent.IMAGE, image.getFrom(), l -> l.onImageThumbnail(imageId, image.getFrom(), image.getData()));
+        } else {
+            notifyListeners(ChannelEvent.IMAGE, image.getFrom(), l -> l.onImageReceived(imageId, image.getFrom(), image.getData()));
+        }
+    }
+
+    @Override
+    public void onPong(ByteBuffer payload) {
+        HeartbeatMonitor monitor = heartbeat;
+        if (monitor != null) {
+            monitor.onPong(payload);
         }
     }
 
     @Override
     public void onClose(String reason) {
-        state = ConnectionState.DISCONNECTED;
-        if (listener != null) {
-            listener.onDisconnected(reason);
+        setState(ConnectionState.DISCONNECTED);
+        inFlightCommands.clear();
+        HeartbeatMonitor monitor = heartbeat;
+        if (monitor != null) {
+            monitor.stop();
+        }
+        OutboundScheduler scheduler = outbound;
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        ScheduledFuture<?> task = housekeepingTask;
+        if (task != null) {
+            task.cancel(false);
         }
+        for (Integer seq : pendingImages.keySet()) {
+            failPendingImage(seq, new IllegalStateException("Connection closed: " + reason));
+        }
+        endOutgoingStream(outgoingStream.getAndSet(null), new IllegalStateException("Connection closed: " + reason));
+        incomingImages.clear();
+        for (IncomingStream stream : activeIncomingStreams.values()) {
+            onDecodeThread(stream.streamId, buffers -> retire(stream));
+        }
+        activeIncomingStreams.clear();
+        DecodeStage stage = decodeStage;
+        if (stage != null) {
+            // The workers release the decoders queued above before they exit.
+            stage.close();
+        }
+        notifyRosterChanges(roster.clear());
+        notifyListeners(ChannelEvent.CONNECTION, l -> l.onDisconnected(reason));
     }
 
     @Override
     public void onError(String errorMessage, Throwable t) {
-        if (listener != null) {
-            listener.onError(errorMessage, t);
+        notifyListeners(ChannelEvent.CONNECTION, l -> l.onError(errorMessage, t));
+    }
+
+    private void startHeartbeat() {
+        if (config.getHeartbeatIntervalMs() <= 0) {
+            return;
         }
+        ZelloTransport transport = webSocketClient;
+        // Some transports call onClose from abort(), and the whole teardown, listeners included, must not
+        // run on the scheduler the heartbeat shares with every other channel.
+        HeartbeatMonitor monitor = new HeartbeatMonitor(transport, config.getHeartbeatIntervalMs(), config.getHeartbeatMaxMissedPongs(),
+                metrics, outboundExecutor, () -> ZelloScheduler.callbacks().execute(() -> transport.abort("Heartbeat timed out")));
+        heartbeat = monitor;
+        monitor.start();
     }
 
     private void sendCommand(Command command) {
@@ -281,11 +1067,20 @@ public class ZelloChannel implements ZelloMessageHandler {
     }
 
     private void sendCommand(Command command, Consumer<JSONObject> ackCallback) {
+        sendCommand(command, sequence.getAndIncrement(), ackCallback);
+    }
+
+    /**
+     * Sends a command with a sequence number the caller has already reserved, so that any state keyed by
+     * that sequence number can be registered before the server has a chance to respond.
+     *
+     * @return true if the command was handed to the websocket.
+     */
+    private boolean sendCommand(Command command, int seq, Consumer<JSONObject> ackCallback) {
         if (webSocketClient == null || !webSocketClient.isOpen()) {
             logger.error("Cannot send command while websocket is closed.");
-            return;
+            return false;
         }
-        int seq = sequence.getAndIncrement();
         command.setSequence(seq);
         if (ackCallback != null) {
             commandCallbacks.put(seq, ackCallback);
@@ -293,42 +1088,172 @@ public class ZelloChannel implements ZelloMessageHandler {
         try {
             String jsonToSend = JsonUtils.commandToJson(command);
             logger.debug("Sending command: {}", jsonToSend);
-            webSocketClient.send(jsonToSend);
+            inFlightCommands.put(seq, new InFlightCommand(command.getCommand(), System.nanoTime()));
+            if (!outbound.sendControl(jsonToSend)) {
+                inFlightCommands.remove(seq);
+                commandCallbacks.remove(seq);
+                logger.error("Cannot send command while websocket is closed.");
+                return false;
+            }
+            CommandEvent event = new CommandEvent();
+            if (event.shouldCommit()) {
+                event.phase = "send";
+                event.command = command.getCommand();
+                event.seq = seq;
+                event.success = true;
+                event.commit();
+            }
         } catch (JsonProcessingException e) {
             String errorMsg = "Failed to serialize command: " + command.getCommand();
             logger.error(errorMsg, e);
             onError(errorMsg, e);
+            return false;
         }
+        return true;
     }
 
-    private void sendBinaryImageData(int imageId, byte[] thumbnailData, byte[] fullImageData) {
-        if (webSocketClient == null || !webSocketClient.isOpen()) return;
-        final int IMAGE_TYPE_FULL = 0x01;
-        final int IMAGE_TYPE_THUMBNAIL = 0x02;
-        logger.debug("Sending thumbnail ({} bytes) for imageId {}", thumbnailData.length, imageId);
-        webSocketClient.send(createImagePacket(imageId, IMAGE_TYPE_THUMBNAIL, thumbnailData));
-        logger.debug("Sending full image ({} bytes) for imageId {}", fullImageData.length, imageId);
-        webSocketClient.send(createImagePacket(imageId, IMAGE_TYPE_FULL, fullImageData));
+    private void setState(ConnectionState newState) {
+        ConnectionState previousState = this.state;
+        this.state = newState;
+        ConnectionStateEvent event = new ConnectionStateEvent();
+        if (event.shouldCommit()) {
+            event.channel = config.getChannel();
+            event.previousState = previousState.name();
+            event.newState = newState.name();
+            event.commit();
+        }
+    }
+
+    static WebSocketClientFactory transportFactory(ZelloChannelConfig config) {
+        ZelloMetrics metrics = config.getMetrics();
+        CompressionConfig compression = config.getCompression();
+        return switch (config.getTransport()) {
+            case JAVA_WEBSOCKET -> (serverUri, headers, handler) -> new ZelloWebSocketClient(serverUri, headers, handler, metrics, compression);
+            case JDK -> {
+                if (compression != null) {
+                    logger.warn("The JDK transport does not support permessage-deflate; connecting without compression.");
+                }
+                yield (serverUri, headers, handler) -> new JdkWebSocketTransport(serverUri, headers, handler, metrics);
+            }
+            case NETTY -> (serverUri, headers, handler) -> new NettyWebSocketTransport(serverUri, headers, handler, metrics, compression);
+        };
+    }
+
+    private static ThreadPoolExecutor createImageExecutor(ZelloChannelConfig config) {
+        int threads = Math.max(1, config.getImageWorkerThreads());
+        // The queue itself is unbounded; admission is limited by imageSlots, and each image submits at most two tasks.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.setName("Zello-Image-Worker-" + config.getChannel());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
-    private byte[] createImagePacket(int imageId, int imageType, byte[] data) {
-        ByteBuffer packet = ByteBuffer.allocate(9 + data.length);
-        packet.order(ByteOrder.BIG_ENDIAN);
-        packet.put((byte) 0x02);
-        packet.putInt(imageId);
-        packet.putInt(imageType);
-        packet.put(data);
-        return packet.array();
+    private void notifyRosterChanges(List<RosterChange> changes) {
+        if (!changes.isEmpty()) {
+            notifyListeners(ChannelEvent.ROSTER, l -> l.onRosterChanged(changes));
+        }
     }
 
-    private byte[] createThumbnail(BufferedImage originalImage, int targetWidth) throws IOException {
-        int targetHeight = (int) ((double) originalImage.getHeight() / (double) originalImage.getWidth() * targetWidth);
-        Image resultingImage = originalImage.getScaledInstance(targetWidth, targetHeight, Image.SCALE_SMOOTH);
-        BufferedImage outputImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(outputImage, "jpeg", os);
-            return os.toByteArray();
+    private void notifyListeners(ChannelEvent event, Consumer<ZelloChannelListener> callback) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.getSubscription().wants(event)) {
+                notifyListener(subscriber.getListener(), callback);
+            }
+        }
+    }
+
+    private void notifyListeners(ChannelEvent event, String from, Consumer<ZelloChannelListener> callback) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.getSubscription().wants(event) && subscriber.getSubscription().acceptsSpeaker(from)) {
+                notifyListener(subscriber.getListener(), callback);
+            }
+        }
+    }
+
+    private void notifyStreamListeners(int streamId, String from, Consumer<ZelloChannelListener> callback) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.getSubscription().wants(ChannelEvent.STREAM) && subscriber.getSubscription().acceptsStream(streamId, from)) {
+                notifyListener(subscriber.getListener(), callback);
+            }
+        }
+    }
+
+    /**
+     * Invokes a callback on a listener and records how long the application spent in it.
+     */
+    private void notifyListener(ZelloChannelListener listener, Consumer<ZelloChannelListener> callback) {
+        long start = System.nanoTime();
+        callback.accept(listener);
+        metrics.recordListenerCallback(System.nanoTime() - start);
+    }
+
+    private void matchStreams() {
+        for (IncomingStream stream : activeIncomingStreams.values()) {
+            stream.match(subscribers);
+        }
+    }
+
+    /**
+     * Releases a stream's decoder and tells listeners it stopped. Both are queued behind the stream's last
+     * frames, so listeners hear about the stop after its audio.
+     *
+     * @param stream The stream, already removed from the active streams, or null if it was not known.
+     */
+    private void endIncomingStream(int streamId, IncomingStream stream) {
+        onDecodeThread(streamId, buffers -> finishIncomingStream(streamId, stream));
+    }
+
+    /**
+     * Releases a stream's decoder and tells listeners it stopped, unless it has already ended.
+     */
+    private void finishIncomingStream(int streamId, IncomingStream stream) {
+        if (stream != null && !retire(stream)) {
+            return;
+        }
+        String from = stream != null ? stream.from : null;
+        notifyStreamListeners(streamId, from, l -> l.onStreamStopped(streamId, from));
+    }
+
+    /**
+     * Runs an action on the thread that decodes the stream: the decode stage's worker for it, or the
+     * calling thread when decoding is not staged. Staged actions are never dropped.
+     */
+    private void onDecodeThread(int streamId, DecodeStage.Task action) {
+        DecodeStage stage = decodeStage;
+        if (stage == null) {
+            action.run(decodeBuffers);
+        } else {
+            stage.execute(streamId, action);
+        }
+    }
+
+    private void stopDecoding(IncomingStream stream) {
+        synchronized (stream) {
+            if (stream.decoding) {
+                stream.decoding = false;
+                audioEngine.stopDecodingSession(stream.streamId);
+            }
+        }
+    }
+
+    /**
+     * Marks a stream ended and releases its decoder.
+     *
+     * @return false if the stream had already ended.
+     */
+    private boolean retire(IncomingStream stream) {
+        synchronized (stream) {
+            if (stream.ended) {
+                return false;
+            }
+            stream.ended = true;
+            stopDecoding(stream);
+            return true;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package io.github.ceakins.zello;
 
+import io.github.ceakins.zello.metrics.LatencyProbe;
+import io.github.ceakins.zello.metrics.NoopZelloMetrics;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
@@ -10,7 +13,7 @@ import lombok.ToString;
  */
 @Getter
 @Builder
-@ToString(exclude = {"password", "authToken"}) // Exclude sensitive info from toString()
+@ToString(exclude = {"password", "authToken", "metrics", "imageCache", "latencyProbe"}) // Exclude sensitive info from toString()
 public class ZelloChannelConfig {
 
     /**
@@ -40,4 +43,141 @@ public class ZelloChannelConfig {
      */
     private final String channel;
 
+    /**
+     * The sink for performance measurements taken on the SDK's hot paths.
+     * Defaults to a no-op implementation; use {@link io.github.ceakins.zello.metrics.InMemoryZelloMetrics}
+     * or your own implementation to collect them.
+     */
+    @Builder.Default
+    private final ZelloMetrics metrics = NoopZelloMetrics.INSTANCE;
+
+    /**
+     * The WebSocket implementation to connect with. Defaults to {@link TransportType#JAVA_WEBSOCKET}.
+     */
+    @Builder.Default
+    private final TransportType transport = TransportType.JAVA_WEBSOCKET;
+
+    /**
+     * Enables permessage-deflate compression of JSON messages, if the server supports it.
+     * Null (the default) disables compression. Not supported by {@link TransportType#JDK}.
+     */
+    private final CompressionConfig compression;
+
+    /**
+     * Whether the PCM array passed to {@link io.github.ceakins.zello.events.ZelloChannelListener#onAudioData}
+     * is reused for every frame instead of freshly allocated. This removes the last per-frame allocation on
+     * the receive path, but the array is then only valid until the callback returns, so listeners must copy
+     * anything they keep (as {@link AudioOutputManager#playAudio} does). Defaults to false.
+     */
+    @Builder.Default
+    private final boolean reuseAudioBuffers = false;
+
+    /**
+     * The number of threads that decode incoming audio. 0 (the default) decodes on the thread that receives
+     * it, which is cheapest for a few streams. With many simultaneous talkers, decoding in parallel keeps the
+     * receive thread free: streams are spread over the threads, each stream staying on one thread so its
+     * frames are delivered in order, and {@code onAudioData} and {@code onStreamStopped} are then called on
+     * the decode threads.
+     */
+    @Builder.Default
+    private final int decodeThreads = 0;
+
+    /**
+     * How many frames may wait for each decode thread before further frames are dropped. Only used when
+     * {@link #decodeThreads} is above 0.
+     */
+    @Builder.Default
+    private final int decodeQueueCapacity = 64;
+
+    /**
+     * How long, in milliseconds, an incoming stream may go without audio before it is treated as stopped.
+     * This releases the stream's decoder and notifies listeners with {@code onStreamStopped} when the
+     * server's stop event is lost. 0 disables the check.
+     */
+    @Builder.Default
+    private final long incomingStreamIdleTimeoutMs = 10000;
+
+    /**
+     * An optional probe that timestamps marker tones at each stage of the send and receive pipelines.
+     * Null (the default) disables probing entirely.
+     */
+    private final LatencyProbe latencyProbe;
+
+    /**
+     * How long, in milliseconds, an outgoing voice frame may wait behind other traffic before it is dropped
+     * instead of sent. Frames delivered later than this are more disruptive to listeners than a short gap.
+     */
+    @Builder.Default
+    private final long audioSendDeadlineMs = 250;
+
+    /**
+     * How many outgoing voice frames to hold while waiting for the server to assign a new stream's ID.
+     * The oldest frames are dropped beyond this. The default of 100 frames is two seconds of audio.
+     */
+    @Builder.Default
+    private final int maxPendingVoiceFrames = 100;
+
+    /**
+     * How often, in milliseconds, to send a WebSocket ping to measure round-trip time and check that the
+     * connection is alive. 0 disables the heartbeat.
+     */
+    @Builder.Default
+    private final long heartbeatIntervalMs = 5000;
+
+    /**
+     * How many pings in a row may go unanswered before the connection is considered dead and closed, so a
+     * half-open connection is noticed within {@code (heartbeatMaxMissedPongs + 1) * heartbeatIntervalMs}.
+     */
+    @Builder.Default
+    private final int heartbeatMaxMissedPongs = 3;
+
+    /**
+     * The largest full-size image, in bytes, that will be uploaded as-is. Larger images are re-encoded
+     * at lower quality and, if necessary, lower resolution until they fit. 0 (the default) disables re-encoding.
+     */
+    @Builder.Default
+    private final int maxImageBytes = 0;
+
+    /**
+     * The number of background threads used to prepare images (thumbnail generation and re-encoding).
+     * Idle threads are released after a short timeout.
+     */
+    @Builder.Default
+    private final int imageWorkerThreads = 1;
+
+    /**
+     * How many images may be in flight at once (being prepared, awaiting their image ID, or uploading)
+     * before further sendImage calls are rejected. This bounds the memory held by pending uploads.
+     */
+    @Builder.Default
+    private final int maxPendingImages = 8;
+
+    /**
+     * How long, in milliseconds, to wait for the server to answer a send_image command, and for the
+     * WebSocket send buffer to drain during an upload, before the image is failed and its data released.
+     */
+    @Builder.Default
+    private final long imageUploadTimeoutMs = 30000;
+
+    /**
+     * The cache that received images are stored in, so repeated lookups via
+     * {@link ZelloChannel#getCachedImage(int)} share one copy. Defaults to a 16 MiB in-memory cache per
+     * channel; pass one instance to several configurations to share it, or configure a spill directory.
+     */
+    @Builder.Default
+    private final ImageCache imageCache = new ImageCache(16L * 1024 * 1024);
+
+    /**
+     * The largest incoming image, in bytes, that will be reassembled. Larger images are discarded.
+     */
+    @Builder.Default
+    private final int maxIncomingImageBytes = 10 * 1024 * 1024;
+
+    /**
+     * The most data, in bytes, held across all incoming images still being reassembled. An image that
+     * would exceed it is discarded, so announcing many images at once cannot exhaust memory.
+     */
+    @Builder.Default
+    private final long maxPendingIncomingImageBytes = 32L * 1024 * 1024;
+
 }
\ No newline at end of file
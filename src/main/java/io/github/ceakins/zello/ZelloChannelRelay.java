@@ -0,0 +1,212 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.model.commands.StartStreamCommand;
+import io.github.ceakins.zello.model.events.OnImageEvent;
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+
+/**
+ * Relays voice from one channel to another without transcoding, for example from a consumer Zello
+ * channel to a ZelloWork network.
+ * <p>
+ * Each stream that starts on the source channel is mapped onto a new outgoing stream on the target,
+ * started with the source stream's codec header and packet duration, and its Opus packets are forwarded
+ * as received. Nothing is decoded or re-encoded, so relaying costs no codec CPU and adds no generation
+ * loss. One stream is relayed at a time; streams that start while another is being relayed are skipped,
+ * as a radio would. The target channel should be dedicated to the relay, since the relay stops whatever
+ * it is transmitting when the relayed stream ends.
+ * <pre>{@code
+ * ZelloChannelRelay relay = new ZelloChannelRelay(consumer, work, ZelloRelayConfig.builder()
+ *         .ignoredSpeakers(Set.of("work-to-consumer-relay"))
+ *         .build());
+ * relay.start();
+ * }</pre>
+ */
+public class ZelloChannelRelay implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZelloChannelRelay.class);
+
+    private final ZelloChannel source;
+    private final ZelloChannel target;
+    private final ZelloRelayConfig config;
+    private final ZelloChannelListener listener = new SourceListener();
+    // Only used on the source channel's receiving thread, which delivers one packet at a time.
+    private byte[] packetBuffer = new byte[AudioConstants.MAX_OPUS_PACKET_SIZE];
+    private volatile int relayedStreamId = -1;
+    private boolean started = false;
+
+    public ZelloChannelRelay(ZelloChannel source, ZelloChannel target) {
+        this(source, target, ZelloRelayConfig.builder().build());
+    }
+
+    public ZelloChannelRelay(ZelloChannel source, ZelloChannel target, ZelloRelayConfig config) {
+        if (source == target) {
+            throw new IllegalArgumentException("A relay's source and target must be different channels.");
+        }
+        this.source = source;
+        this.target = target;
+        this.config = config;
+    }
+
+    /**
+     * Starts listening to the source channel. Only stream events and raw Opus packets are subscribed to,
+     * so the source channel does not decode any audio on the relay's behalf.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        source.addListener(listener, Subscription.builder()
+                .events(EnumSet.of(ChannelEvent.CONNECTION, ChannelEvent.STREAM, ChannelEvent.OPUS))
+                .build());
+        started = true;
+    }
+
+    /**
+     * @return The ID of the source stream being relayed, or -1 if none is.
+     */
+    public int getRelayedStreamId() {
+        return relayedStreamId;
+    }
+
+    /**
+     * Stops listening to the source channel and stops any stream being relayed. The channels stay connected.
+     */
+    @Override
+    public synchronized void close() {
+        if (!started) {
+            return;
+        }
+        source.removeListener(listener);
+        started = false;
+        endRelay(relayedStreamId);
+    }
+
+    /**
+     * @return Whether a stream passes the configured loop-prevention and filtering rules.
+     */
+    boolean shouldRelay(OnStreamStartEvent event) {
+        String from = event.getFrom();
+        if (config.getIgnoredSpeakers().contains(from)) {
+            return false;
+        }
+        if (config.isIgnoreRelayAccounts() && from != null
+                && (from.equals(source.getUsername()) || from.equals(target.getUsername()))) {
+            return false;
+        }
+        return config.getStreamFilter().test(event);
+    }
+
+    private synchronized void beginRelay(OnStreamStartEvent event) {
+        if (!started) {
+            return;
+        }
+        if (relayedStreamId != -1) {
+            logger.debug("Skipping stream {} from {}: stream {} is being relayed.", event.getStreamId(), event.getFrom(), relayedStreamId);
+            return;
+        }
+        if (!shouldRelay(event)) {
+            logger.debug("Not relaying stream {} from {}.", event.getStreamId(), event.getFrom());
+            return;
+        }
+        if (target.getState() != ConnectionState.CONNECTED) {
+            logger.warn("Cannot relay stream {} from {}: the target channel is not connected.", event.getStreamId(), event.getFrom());
+            return;
+        }
+        // Older servers leave out the codec details; their streams use the same format as the built-in encoder.
+        String codecHeader = event.getCodecHeader() != null ? event.getCodecHeader() : StartStreamCommand.DEFAULT_CODEC_HEADER;
+        int packetDuration = event.getPacketDuration() > 0 ? event.getPacketDuration() : StartStreamCommand.DEFAULT_PACKET_DURATION;
+        int sourceStreamId = event.getStreamId();
+        relayedStreamId = sourceStreamId;
+        logger.info("Relaying stream {} from {}.", sourceStreamId, event.getFrom());
+        target.startVoiceStream(codecHeader, packetDuration).whenComplete((streamId, error) -> {
+            if (error != null) {
+                logger.warn("Could not start the relayed stream on the target channel: {}", error.getMessage());
+                // Drop the rest of the stream rather than sending it to a target that has no stream for it.
+                endRelay(sourceStreamId);
+            }
+        });
+    }
+
+    private void relayPacket(int streamId, ByteBuffer opusData) {
+        if (streamId != relayedStreamId) {
+            return;
+        }
+        int length = opusData.remaining();
+        if (opusData.hasArray()) {
+            target.sendOpusData(opusData.array(), opusData.arrayOffset() + opusData.position(), length);
+            return;
+        }
+        if (length > packetBuffer.length) {
+            packetBuffer = new byte[length];
+        }
+        opusData.get(opusData.position(), packetBuffer, 0, length);
+        target.sendOpusData(packetBuffer, 0, length);
+    }
+
+    private synchronized void endRelay(int streamId) {
+        if (streamId == -1 || streamId != relayedStreamId) {
+            return;
+        }
+        relayedStreamId = -1;
+        target.stopVoiceStream();
+        logger.info("Relayed stream {} ended.", streamId);
+    }
+
+    /**
+     * The relay's subscription to the source channel, kept private so the callbacks are not part of the relay's API.
+     */
+    private class SourceListener implements ZelloChannelListener {
+
+        @Override
+        public void onStreamStartEvent(OnStreamStartEvent event) {
+            beginRelay(event);
+        }
+
+        @Override
+        public void onOpusPacket(int streamId, ByteBuffer opusData) {
+            relayPacket(streamId, opusData);
+        }
+
+        @Override
+        public void onStreamStopped(int streamId, String from) {
+            endRelay(streamId);
+        }
+
+        @Override
+        public void onDisconnected(String reason) {
+            endRelay(relayedStreamId);
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onError(String errorMessage, Throwable t) {
+        }
+
+        @Override
+        public void onTextMessage(String from, String message) {
+        }
+
+        @Override
+        public void onStreamStarted(int streamId, String from) {
+        }
+
+        @Override
+        public void onAudioData(int streamId, byte[] audioData) {
+        }
+
+        @Override
+        public void onImageEvent(OnImageEvent event) {
+        }
+    }
+
+}
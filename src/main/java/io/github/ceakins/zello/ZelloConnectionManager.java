@@ -0,0 +1,122 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.internal.JdkWebSocketTransport;
+import io.github.ceakins.zello.internal.NettyWebSocketTransport;
+import io.github.ceakins.zello.internal.WebSocketClientFactory;
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many {@link ZelloChannel} connections on a small, fixed set of threads, for applications that
+ * monitor hundreds of channels. The thread count depends only on the number of I/O threads, not on
+ * the number of channels.
+ * <p>
+ * Channels created here use the JDK WebSocket transport. Connections are spread round-robin over one
+ * HTTP client per I/O thread, each with its own NIO selector thread, and all callbacks and outbound
+ * queue draining run on a shared pool of worker threads. Each connection handles one incoming message
+ * at a time and each drain task sends one outgoing message before yielding, so a busy channel cannot
+ * starve the others. Channels configured with {@link TransportType#NETTY} use Netty's shared event
+ * loop group instead, and are the only managed channels that support compression.
+ * <pre>{@code
+ * try (ZelloConnectionManager manager = new ZelloConnectionManager()) {
+ *     ZelloChannel channel = manager.createChannel(config);
+ *     channel.connect();
+ * }
+ * }</pre>
+ */
+public class ZelloConnectionManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZelloConnectionManager.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int ioThreads;
+    private final ScheduledThreadPoolExecutor workers;
+    private final HttpClient[] selectors;
+    private final AtomicInteger nextSelector = new AtomicInteger();
+    private final AtomicInteger channelCount = new AtomicInteger();
+
+    /**
+     * Creates a manager with one I/O thread per available processor.
+     */
+    public ZelloConnectionManager() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param ioThreads The number of selector threads, and of worker threads.
+     */
+    public ZelloConnectionManager(int ioThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be at least 1: " + ioThreads);
+        }
+        this.ioThreads = ioThreads;
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = new ScheduledThreadPoolExecutor(ioThreads, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("Zello-IO-Worker-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers.setRemoveOnCancelPolicy(true);
+        this.selectors = new HttpClient[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            selectors[i] = HttpClient.newBuilder().executor(workers).connectTimeout(CONNECT_TIMEOUT).build();
+        }
+        logger.info("Zello connection manager started with {} I/O threads", ioThreads);
+    }
+
+    /**
+     * Creates a channel that runs on this manager's threads. The channel is not connected yet.
+     */
+    public ZelloChannel createChannel(ZelloChannelConfig config) {
+        ZelloMetrics metrics = config.getMetrics();
+        CompressionConfig compression = config.getCompression();
+        WebSocketClientFactory factory;
+        if (config.getTransport() == TransportType.NETTY) {
+            factory = (serverUri, headers, handler) -> new NettyWebSocketTransport(serverUri, headers, handler, metrics, compression);
+        } else {
+            if (compression != null) {
+                logger.warn("Managed channels use the JDK transport, which does not support permessage-deflate; "
+                        + "connecting without compression. Use TransportType.NETTY for compression.");
+            }
+            factory = (serverUri, headers, handler) -> new JdkWebSocketTransport(serverUri, headers, handler, metrics, nextSelector());
+        }
+        channelCount.incrementAndGet();
+        return new ZelloChannel(config, new AudioEngine(metrics), factory, workers);
+    }
+
+    public int getIoThreadCount() {
+        return ioThreads;
+    }
+
+    /**
+     * @return The number of channels created by this manager.
+     */
+    public int getChannelCount() {
+        return channelCount.get();
+    }
+
+    /**
+     * Stops the manager's threads. Disconnect the channels first; connections still open are aborted.
+     */
+    @Override
+    public void close() {
+        for (HttpClient client : selectors) {
+            client.shutdownNow();
+        }
+        workers.shutdownNow();
+        logger.info("Zello connection manager stopped.");
+    }
+
+    private HttpClient nextSelector() {
+        return selectors[Math.floorMod(nextSelector.getAndIncrement(), selectors.length)];
+    }
+
+}
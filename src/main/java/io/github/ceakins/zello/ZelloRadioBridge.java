@@ -1,15 +1,21 @@
 package io.github.ceakins.zello;
 
+import io.github.ceakins.zello.dsp.AudioProcessorChain;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.internal.audio.FramePool;
+import io.github.ceakins.zello.internal.jfr.VoxEvent;
+import io.github.ceakins.zello.metrics.LatencyProbe;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sound.sampled.Mixer;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * An advanced audio bridge that provides local buffering, a dedicated transmission thread,
@@ -17,11 +23,15 @@ import java.util.concurrent.LinkedBlockingQueue;
  * to a Zello channel.
  * <p>
  * This class orchestrates a {@link ZelloChannel} and an {@link AudioInputManager}
- * to create a resilient audio streaming solution.
+ * to create a resilient audio streaming solution. Captured audio can be cleaned up by an
+ * {@link AudioProcessorChain} before it reaches VOX and the encoder.
  */
 public class ZelloRadioBridge {
 
     private static final Logger logger = LoggerFactory.getLogger(ZelloRadioBridge.class);
+    // 30 seconds of audio; beyond this the oldest queued audio is dropped.
+    private static final int MAX_QUEUED_FRAMES = 1500;
+    private static final int MAX_POOLED_FRAMES = 64;
 
     private enum VoxState {
         LISTENING,
@@ -31,14 +41,18 @@ public class ZelloRadioBridge {
     private final ZelloChannel zelloChannel;
     private final AudioInputManager audioInputManager;
     private final ZelloRadioBridgeConfig config;
+    private final ZelloMetrics metrics;
+    private final LatencyProbe latencyProbe;
     private final ExecutorService transmissionExecutor = Executors.newSingleThreadExecutor();
-    private final LinkedBlockingQueue<byte[]> audioBuffer = new LinkedBlockingQueue<>();
+    private final ArrayBlockingQueue<byte[]> audioBuffer = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+    // Frames circulate from capture through the pre-roll buffer and queue to the transmission thread and back.
+    private final FramePool framePool = new FramePool(AudioConstants.FRAME_SIZE_BYTES, MAX_POOLED_FRAMES);
     private volatile boolean isRunning = false;
     private volatile VoxState voxState = VoxState.LISTENING;
     private volatile long lastSoundTime = 0;
 
     // --- Pre-roll buffer for smooth VOX activation ---
-    private final LinkedList<byte[]> preRollBuffer = new LinkedList<>();
+    private final ArrayDeque<byte[]> preRollBuffer = new ArrayDeque<>();
 
     /**
      * Constructs the radio bridge.
@@ -48,9 +62,20 @@ public class ZelloRadioBridge {
      * @param config The configuration for the bridge's behavior (e.g., VOX settings).
      */
     public ZelloRadioBridge(ZelloChannel zelloChannel, Mixer.Info audioInputMixer, ZelloRadioBridgeConfig config) {
+        this(zelloChannel, config, callback -> new AudioInputManager(audioInputMixer, callback));
+    }
+
+    /**
+     * Internal constructor for dependency injection, allowing the audio input to be replaced in tests.
+     *
+     * @param audioInputFactory Creates the audio input, given the callback that receives captured frames.
+     */
+    ZelloRadioBridge(ZelloChannel zelloChannel, ZelloRadioBridgeConfig config, Function<Consumer<byte[]>, AudioInputManager> audioInputFactory) {
         this.zelloChannel = zelloChannel;
         this.config = config;
-        this.audioInputManager = new AudioInputManager(audioInputMixer, this::processIncomingAudio);
+        this.metrics = zelloChannel.getMetrics();
+        this.latencyProbe = zelloChannel.getLatencyProbe();
+        this.audioInputManager = audioInputFactory.apply(this::processIncomingAudio);
     }
 
     /**
@@ -61,6 +86,9 @@ public class ZelloRadioBridge {
             return;
         }
         logger.info("Starting Zello Radio Bridge...");
+        if (config.getAudioProcessors() != null) {
+            config.getAudioProcessors().reset();
+        }
         isRunning = true;
         transmissionExecutor.submit(this::transmitLoop);
         audioInputManager.start();
@@ -91,34 +119,57 @@ public class ZelloRadioBridge {
         }
 
         // Always work with a copy to prevent the shared buffer in AudioInputManager from being overwritten.
-        byte[] pcmDataCopy = pcmData.clone();
-
-        // Always maintain the pre-roll buffer
-        preRollBuffer.add(pcmDataCopy);
-        while (preRollBuffer.size() > config.getPreRollFrameCount()) {
-            preRollBuffer.removeFirst();
+        // Copies come from a pool and are returned once sent or discarded, so steady-state capture does not allocate.
+        byte[] pcmDataCopy;
+        if (pcmData.length == AudioConstants.FRAME_SIZE_BYTES) {
+            pcmDataCopy = framePool.acquire();
+            System.arraycopy(pcmData, 0, pcmDataCopy, 0, pcmData.length);
+        } else {
+            pcmDataCopy = pcmData.clone();
+        }
+        // Processed before the latency probe can mark the frame, so the marker survives intact.
+        AudioProcessorChain processors = config.getAudioProcessors();
+        if (processors != null) {
+            processors.process(pcmDataCopy, 0, pcmDataCopy.length);
+        }
+        if (latencyProbe != null) {
+            pcmDataCopy = latencyProbe.onCapture(pcmDataCopy);
         }
 
         double rms = calculateRms(pcmDataCopy);
-        logger.trace("VOX RMS level: {}", rms);
+        if (logger.isTraceEnabled()) {
+            logger.trace("VOX RMS level: {}", rms);
+        }
 
         if (voxState == VoxState.LISTENING) {
+            // Maintain the pre-roll buffer while the gate is closed
+            preRollBuffer.addLast(pcmDataCopy);
+            while (preRollBuffer.size() > config.getPreRollFrameCount()) {
+                framePool.release(preRollBuffer.removeFirst());
+            }
+
             if (rms > config.getVoxOpenThreshold()) {
                 // Sound detected, open the gate
                 logger.info("VOX Opened (RMS: {})", String.format("%.4f", rms));
                 voxState = VoxState.TRANSMITTING;
-                zelloChannel.startVoiceStream();
+                metrics.recordVoxTransition(true);
+                emitVoxEvent(true, rms);
+                zelloChannel.startVoiceStream().exceptionally(e -> {
+                    logger.warn("Could not start transmission: {}", e.getMessage());
+                    return null;
+                });
                 lastSoundTime = System.currentTimeMillis();
 
                 // Immediately dump the entire pre-roll buffer to the transmission queue to send the start of the sound.
+                // The channel holds these frames until the server has assigned the stream ID, so none are lost.
                 for (byte[] frame : preRollBuffer) {
-                    audioBuffer.offer(frame);
+                    enqueue(frame);
                 }
                 preRollBuffer.clear();
             }
         } else { // voxState is TRANSMITTING
-            // While transmitting, add the safe copy of the audio directly to the main buffer
-            audioBuffer.offer(pcmDataCopy);
+            // While transmitting, add the copy of the audio directly to the main buffer
+            enqueue(pcmDataCopy);
             if (rms > config.getVoxCloseThreshold()) {
                 // Update the time of the last sound
                 lastSoundTime = System.currentTimeMillis();
@@ -127,8 +178,14 @@ public class ZelloRadioBridge {
                 if (System.currentTimeMillis() - lastSoundTime > config.getVoxHangTimeMs()) {
                     logger.info("VOX Closed (Timeout)");
                     voxState = VoxState.LISTENING;
+                    metrics.recordVoxTransition(false);
+                    emitVoxEvent(false, rms);
                     zelloChannel.stopVoiceStream();
-                    audioBuffer.clear(); // Clear any buffered silence
+                    // Clear any buffered silence
+                    byte[] frame;
+                    while ((frame = audioBuffer.poll()) != null) {
+                        framePool.release(frame);
+                    }
                 }
             }
         }
@@ -142,9 +199,15 @@ public class ZelloRadioBridge {
         while (isRunning && !Thread.currentThread().isInterrupted()) {
             try {
                 byte[] pcmData = audioBuffer.take();
+                metrics.recordBridgeQueueDepth(audioBuffer.size());
+                if (latencyProbe != null) {
+                    latencyProbe.observe(LatencyProbe.Stage.DEQUEUE, pcmData);
+                }
                 if (zelloChannel.getState() == ConnectionState.CONNECTED) {
                     zelloChannel.sendVoiceData(pcmData);
                 }
+                // sendVoiceData encodes synchronously, so the frame can be reused straight away.
+                framePool.release(pcmData);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.warn("Transmission thread interrupted.");
@@ -153,15 +216,35 @@ public class ZelloRadioBridge {
         }
     }
 
+    private void enqueue(byte[] frame) {
+        if (latencyProbe != null) {
+            latencyProbe.observe(LatencyProbe.Stage.VOX, frame);
+        }
+        while (!audioBuffer.offer(frame)) {
+            byte[] oldest = audioBuffer.poll();
+            if (oldest != null) {
+                framePool.release(oldest);
+            }
+        }
+    }
+
+    private void emitVoxEvent(boolean open, double rms) {
+        VoxEvent event = new VoxEvent();
+        if (event.shouldCommit()) {
+            event.open = open;
+            event.rms = rms;
+            event.commit();
+        }
+    }
+
     /**
      * Calculates the Root Mean Square (RMS) of a PCM audio frame.
      * This is used as a measure of loudness for the VOX system.
      */
     private double calculateRms(byte[] pcmData) {
         long sumOfSquares = 0;
-        ByteBuffer buffer = ByteBuffer.wrap(pcmData).order(ByteOrder.LITTLE_ENDIAN);
         for (int i = 0; i < pcmData.length / 2; i++) {
-            short sample = buffer.getShort();
+            short sample = (short) ((pcmData[2 * i] & 0xFF) | (pcmData[2 * i + 1] << 8));
             sumOfSquares += (long) sample * sample;
         }
         double meanSquare = (double) sumOfSquares / (pcmData.length / 2);
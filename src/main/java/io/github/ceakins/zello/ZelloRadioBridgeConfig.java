@@ -1,5 +1,6 @@
 package io.github.ceakins.zello;
 
+import io.github.ceakins.zello.dsp.AudioProcessorChain;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -38,4 +39,11 @@ public class ZelloRadioBridgeConfig {
     @Builder.Default
     private int preRollFrameCount = 10;
 
+    /**
+     * Processing applied to each captured frame before VOX and encoding, such as
+     * {@link AudioProcessorChain#voice()}. Cleaner audio opens VOX less often on noise and encodes more
+     * efficiently. Null, the default, sends the audio as captured.
+     */
+    private AudioProcessorChain audioProcessors;
+
 }
\ No newline at end of file
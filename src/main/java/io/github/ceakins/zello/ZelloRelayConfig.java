@@ -0,0 +1,37 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Configuration for a {@link ZelloChannelRelay}: which streams it forwards, and how it avoids relaying
+ * audio back to where it came from.
+ */
+@Getter
+@Builder
+public class ZelloRelayConfig {
+
+    /**
+     * Speakers whose streams are never relayed, such as the accounts of relays running the other way.
+     */
+    @Builder.Default
+    private Set<String> ignoredSpeakers = Set.of();
+
+    /**
+     * Whether to ignore streams from the source and target channels' own accounts. This stops a pair of
+     * relays between two channels that share accounts from passing a stream back and forth.
+     */
+    @Builder.Default
+    private boolean ignoreRelayAccounts = true;
+
+    /**
+     * Further selects the streams to relay, given their on_stream_start event. Accepts every stream by default.
+     */
+    @Builder.Default
+    private Predicate<OnStreamStartEvent> streamFilter = event -> true;
+
+}
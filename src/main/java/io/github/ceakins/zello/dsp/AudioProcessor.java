@@ -0,0 +1,28 @@
+package io.github.ceakins.zello.dsp;
+
+/**
+ * One stage of processing applied to captured audio before it is encoded, such as a filter or a gain control.
+ * <p>
+ * Audio is 16 kHz mono, as floats from -1.0 to 1.0. A stage is called once per frame on the capture
+ * thread and must work in place without allocating. Stages keep state between frames, so an instance
+ * belongs to one audio source.
+ *
+ * @see AudioProcessorChain
+ */
+public interface AudioProcessor {
+
+    /**
+     * Processes a block of samples in place.
+     *
+     * @param samples The buffer holding the block.
+     * @param length  The number of samples in the block, starting at index 0.
+     */
+    void process(float[] samples, int length);
+
+    /**
+     * Forgets the state carried over from earlier blocks, before audio from a new source or after a gap.
+     */
+    default void reset() {
+    }
+
+}
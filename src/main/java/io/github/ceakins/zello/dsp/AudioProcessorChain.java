@@ -0,0 +1,83 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+
+import java.util.List;
+
+/**
+ * Runs captured PCM frames through a series of {@link AudioProcessor} stages, in order.
+ * <p>
+ * {@link #process(byte[], int, int)} converts a frame of 16-bit little-endian PCM into the chain's own
+ * float buffer, runs every stage over it, and writes the result back into the same frame, clipping to
+ * the 16-bit range. The buffer is reused for every frame, so the chain does not allocate once it has
+ * seen its largest frame.
+ * <pre>{@code
+ * ZelloRadioBridgeConfig config = ZelloRadioBridgeConfig.builder()
+ *         .audioProcessors(AudioProcessorChain.voice())
+ *         .build();
+ * }</pre>
+ */
+public class AudioProcessorChain implements AudioProcessor {
+
+    private final AudioProcessor[] stages;
+    private float[] buffer = new float[AudioConstants.SAMPLES_PER_FRAME];
+
+    public AudioProcessorChain(List<AudioProcessor> stages) {
+        this.stages = stages.toArray(new AudioProcessor[0]);
+    }
+
+    public static AudioProcessorChain of(AudioProcessor... stages) {
+        return new AudioProcessorChain(List.of(stages));
+    }
+
+    /**
+     * @return A chain for radio-sourced voice with every built-in stage at its defaults: a high-pass filter
+     * for hum and sub-audible tones, the noise suppressor for steady hiss, a noise gate for squelch tails,
+     * and automatic gain control last, so it never raises the residual noise between words.
+     */
+    public static AudioProcessorChain voice() {
+        return of(new HighPassFilter(), new SpectralNoiseSuppressor(), new NoiseGate(), new AutomaticGainControl());
+    }
+
+    public List<AudioProcessor> getStages() {
+        return List.of(stages);
+    }
+
+    /**
+     * Processes a frame of 16-bit little-endian PCM in place.
+     */
+    public void process(byte[] pcm, int offset, int length) {
+        int samples = length / 2;
+        if (samples > buffer.length) {
+            buffer = new float[samples];
+        }
+        float[] block = buffer;
+        for (int i = 0; i < samples; i++) {
+            int index = offset + 2 * i;
+            block[i] = (short) ((pcm[index] & 0xFF) | (pcm[index + 1] << 8)) / 32768f;
+        }
+        process(block, samples);
+        for (int i = 0; i < samples; i++) {
+            int sample = Math.round(block[i] * 32768f);
+            sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            int index = offset + 2 * i;
+            pcm[index] = (byte) sample;
+            pcm[index + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    @Override
+    public void process(float[] samples, int length) {
+        for (AudioProcessor stage : stages) {
+            stage.process(samples, length);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (AudioProcessor stage : stages) {
+            stage.reset();
+        }
+    }
+
+}
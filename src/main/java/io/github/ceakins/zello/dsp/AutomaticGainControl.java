@@ -0,0 +1,90 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+
+/**
+ * Evens out the level of speech, bringing quiet and loud transmitters to the same loudness.
+ * <p>
+ * The gain is worked out once per block from its RMS level: it drops quickly when the audio gets
+ * louder and rises slowly when it gets quieter, and it is held while the level is below -50 dBFS,
+ * so pauses and gated noise are not pumped up. Within a block the gain ramps from its previous
+ * value, and it is capped so that no sample exceeds -1 dBFS.
+ */
+public class AutomaticGainControl implements AudioProcessor {
+
+    private static final double ATTACK_MS = 20;
+    private static final double RELEASE_MS = 1500;
+    private static final float SILENCE_LEVEL = (float) NoiseGate.decibelsToGain(-50);
+    private static final float PEAK_LIMIT = (float) NoiseGate.decibelsToGain(-1);
+
+    private final float targetLevel;
+    private final float maxGain;
+    private final float minGain;
+    private float gain = 1f;
+
+    /**
+     * Creates a control that aims for -20 dBFS RMS with up to 24 dB of gain.
+     */
+    public AutomaticGainControl() {
+        this(-20, 24);
+    }
+
+    /**
+     * @param targetLevelDb The RMS level to bring speech to, in dBFS.
+     * @param maxGainDb     The most the audio is amplified, in dB. It may be attenuated by as much.
+     */
+    public AutomaticGainControl(double targetLevelDb, double maxGainDb) {
+        if (maxGainDb < 0) {
+            throw new IllegalArgumentException("maxGainDb must not be negative: " + maxGainDb);
+        }
+        this.targetLevel = (float) NoiseGate.decibelsToGain(targetLevelDb);
+        this.maxGain = (float) NoiseGate.decibelsToGain(maxGainDb);
+        this.minGain = 1f / maxGain;
+    }
+
+    /**
+     * @return The gain applied at the end of the last block, as a linear factor.
+     */
+    public float getGain() {
+        return gain;
+    }
+
+    @Override
+    public void process(float[] samples, int length) {
+        if (length == 0) {
+            return;
+        }
+        double sumOfSquares = 0;
+        float peak = 0;
+        for (int i = 0; i < length; i++) {
+            float sample = samples[i];
+            sumOfSquares += sample * sample;
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        float rms = (float) Math.sqrt(sumOfSquares / length);
+        float startGain = gain;
+        float endGain = gain;
+        if (rms > SILENCE_LEVEL) {
+            float desired = Math.max(minGain, Math.min(maxGain, targetLevel / rms));
+            double timeMs = desired < gain ? ATTACK_MS : RELEASE_MS;
+            float step = (float) (1 - Math.exp(-1000.0 * length / (timeMs * AudioConstants.SAMPLE_RATE)));
+            endGain = gain + step * (desired - gain);
+        }
+        if (peak > 0) {
+            float ceiling = PEAK_LIMIT / peak;
+            startGain = Math.min(startGain, ceiling);
+            endGain = Math.min(endGain, ceiling);
+        }
+        float increment = (endGain - startGain) / length;
+        for (int i = 0; i < length; i++) {
+            samples[i] *= startGain + increment * (i + 1);
+        }
+        gain = endGain;
+    }
+
+    @Override
+    public void reset() {
+        gain = 1f;
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+
+/**
+ * A second-order Butterworth high-pass filter, which removes mains hum, DC offset and the sub-audible
+ * CTCSS tones many radios add below voice frequencies.
+ */
+public class HighPassFilter implements AudioProcessor {
+
+    /**
+     * The default cutoff. Telephone-grade voice starts at 300 Hz, and every CTCSS tone is below 260 Hz.
+     */
+    public static final double DEFAULT_CUTOFF_HZ = 300;
+
+    private final float b0;
+    private final float b1;
+    private final float b2;
+    private final float a1;
+    private final float a2;
+    // Transposed direct form II state.
+    private float z1;
+    private float z2;
+
+    public HighPassFilter() {
+        this(DEFAULT_CUTOFF_HZ);
+    }
+
+    /**
+     * @param cutoffHz The frequency below which audio is attenuated, at 12 dB per octave.
+     */
+    public HighPassFilter(double cutoffHz) {
+        if (cutoffHz <= 0 || cutoffHz >= AudioConstants.SAMPLE_RATE / 2.0) {
+            throw new IllegalArgumentException("cutoffHz must be between 0 and " + AudioConstants.SAMPLE_RATE / 2 + ": " + cutoffHz);
+        }
+        // Bilinear-transform coefficients from the Audio EQ Cookbook, with Q = 1/sqrt(2).
+        double w0 = 2 * Math.PI * cutoffHz / AudioConstants.SAMPLE_RATE;
+        double alpha = Math.sin(w0) / Math.sqrt(2);
+        double cos = Math.cos(w0);
+        double a0 = 1 + alpha;
+        this.b0 = (float) ((1 + cos) / 2 / a0);
+        this.b1 = (float) (-(1 + cos) / a0);
+        this.b2 = b0;
+        this.a1 = (float) (-2 * cos / a0);
+        this.a2 = (float) ((1 - alpha) / a0);
+    }
+
+    @Override
+    public void process(float[] samples, int length) {
+        float s1 = z1;
+        float s2 = z2;
+        for (int i = 0; i < length; i++) {
+            float x = samples[i];
+            float y = b0 * x + s1;
+            s1 = b1 * x - a1 * y + s2;
+            s2 = b2 * x - a2 * y;
+            samples[i] = y;
+        }
+        z1 = s1;
+        z2 = s2;
+    }
+
+    @Override
+    public void reset() {
+        z1 = 0;
+        z2 = 0;
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+
+/**
+ * Attenuates audio while its level stays below a threshold, silencing squelch tails and background
+ * noise between words.
+ * <p>
+ * The gate opens when the signal's envelope rises above the open threshold and closes once it has
+ * stayed below the lower close threshold for the hold time, so it does not chatter on a level near
+ * either one. Its gain ramps rather than jumps, which avoids clicks.
+ */
+public class NoiseGate implements AudioProcessor {
+
+    private static final double ENVELOPE_ATTACK_MS = 1;
+    private static final double ENVELOPE_RELEASE_MS = 50;
+    private static final double GAIN_ATTACK_MS = 2;
+    private static final double GAIN_RELEASE_MS = 80;
+
+    private final float openThreshold;
+    private final float closeThreshold;
+    private final int holdSamples;
+    private final float floorGain;
+    private final float envelopeAttack = coefficient(ENVELOPE_ATTACK_MS);
+    private final float envelopeRelease = coefficient(ENVELOPE_RELEASE_MS);
+    private final float gainAttack = coefficient(GAIN_ATTACK_MS);
+    private final float gainRelease = coefficient(GAIN_RELEASE_MS);
+    private float envelope;
+    private float gain;
+    private int holdRemaining;
+    private boolean open;
+
+    /**
+     * Creates a gate that opens at -45 dBFS, closes at -50 dBFS after 150 ms, and attenuates by 30 dB when closed.
+     */
+    public NoiseGate() {
+        this(-45, -50, 150, -30);
+    }
+
+    /**
+     * @param openThresholdDb  The level, in dBFS, at which the gate opens.
+     * @param closeThresholdDb The level, in dBFS, below which the gate starts to close. At most the open threshold.
+     * @param holdMs           How long the level must stay below the close threshold before the gate closes.
+     * @param floorDb          The gain applied while the gate is closed, in dB; negative infinity mutes.
+     */
+    public NoiseGate(double openThresholdDb, double closeThresholdDb, long holdMs, double floorDb) {
+        if (closeThresholdDb > openThresholdDb) {
+            throw new IllegalArgumentException("closeThresholdDb must not be above openThresholdDb: " + closeThresholdDb);
+        }
+        this.openThreshold = (float) decibelsToGain(openThresholdDb);
+        this.closeThreshold = (float) decibelsToGain(closeThresholdDb);
+        this.holdSamples = (int) (holdMs * AudioConstants.SAMPLE_RATE / 1000);
+        this.floorGain = (float) decibelsToGain(floorDb);
+        this.gain = floorGain;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void process(float[] samples, int length) {
+        for (int i = 0; i < length; i++) {
+            float level = Math.abs(samples[i]);
+            envelope += (level > envelope ? envelopeAttack : envelopeRelease) * (level - envelope);
+            if (envelope >= openThreshold) {
+                open = true;
+                holdRemaining = holdSamples;
+            } else if (open && envelope < closeThreshold && --holdRemaining <= 0) {
+                open = false;
+            }
+            float target = open ? 1f : floorGain;
+            gain += (target > gain ? gainAttack : gainRelease) * (target - gain);
+            samples[i] *= gain;
+        }
+    }
+
+    @Override
+    public void reset() {
+        envelope = 0;
+        gain = floorGain;
+        holdRemaining = 0;
+        open = false;
+    }
+
+    static double decibelsToGain(double decibels) {
+        return Math.pow(10, decibels / 20);
+    }
+
+    /**
+     * @return The per-sample smoothing coefficient of a one-pole filter with the given time constant.
+     */
+    static float coefficient(double timeMs) {
+        return (float) (1 - Math.exp(-1000 / (timeMs * AudioConstants.SAMPLE_RATE)));
+    }
+
+}
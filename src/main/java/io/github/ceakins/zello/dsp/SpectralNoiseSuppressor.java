@@ -0,0 +1,123 @@
+package io.github.ceakins.zello.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Removes steady background noise, such as receiver hiss, fan noise or an open squelch, while leaving
+ * speech in place.
+ * <p>
+ * Audio is analysed in 16 ms windows that overlap by half. For each frequency bin the suppressor keeps
+ * a noise estimate that follows the minimum of the bin's power, averaged over about 80 ms: it drops straight away in
+ * pauses and rises by under 3 dB per second during speech, so speech does not become part of it. Each
+ * bin is then attenuated by how far its power stands above the noise (spectral subtraction), by at most
+ * the configured depth, and the windows are overlap-added back together. The output lags the input
+ * by one window, 256 samples. Every buffer is allocated up front.
+ */
+public class SpectralNoiseSuppressor implements AudioProcessor {
+
+    private static final int WINDOW = 256;
+    private static final int HOP = WINDOW / 2;
+    private static final int BINS = WINDOW / 2 + 1;
+    private static final float POWER_SMOOTHING = 0.6f;
+    private static final float TRACKING_SMOOTHING = 0.9f;
+    // The minimum of a fluctuating power sits below its mean; this brings the estimate back up to it.
+    private static final float MINIMUM_BIAS = 2f;
+    // Per hop of 8 ms: about 2.7 dB per second.
+    private static final float NOISE_RISE = 1.005f;
+    private static final float MIN_NOISE = 1e-12f;
+    private static final float OVER_SUBTRACTION = 2f;
+
+    private final Fft fft = new Fft(WINDOW);
+    private final float floorGain;
+    // A square-root Hann window, applied before analysis and after synthesis; its square overlap-adds to one.
+    private final float[] window = new float[WINDOW];
+    private final float[] input = new float[WINDOW];
+    private final float[] output = new float[HOP];
+    private final float[] overlap = new float[HOP];
+    private final float[] re = new float[WINDOW];
+    private final float[] im = new float[WINDOW];
+    private final float[] power = new float[BINS];
+    private final float[] tracked = new float[BINS];
+    private final float[] noise = new float[BINS];
+    private int filled;
+    private boolean primed;
+
+    /**
+     * Creates a suppressor that attenuates noise by up to 15 dB.
+     */
+    public SpectralNoiseSuppressor() {
+        this(15);
+    }
+
+    /**
+     * @param maxSuppressionDb The most any frequency is attenuated, in dB. Deeper suppression removes more
+     *                         noise but makes what remains sound more watery.
+     */
+    public SpectralNoiseSuppressor(double maxSuppressionDb) {
+        if (maxSuppressionDb < 0) {
+            throw new IllegalArgumentException("maxSuppressionDb must not be negative: " + maxSuppressionDb);
+        }
+        this.floorGain = (float) NoiseGate.decibelsToGain(-maxSuppressionDb);
+        for (int n = 0; n < WINDOW; n++) {
+            window[n] = (float) Math.sin(Math.PI * n / WINDOW);
+        }
+    }
+
+    @Override
+    public void process(float[] samples, int length) {
+        for (int i = 0; i < length; i++) {
+            input[WINDOW - HOP + filled] = samples[i];
+            samples[i] = output[filled];
+            if (++filled == HOP) {
+                processWindow();
+                System.arraycopy(input, HOP, input, 0, WINDOW - HOP);
+                filled = 0;
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(input, 0);
+        Arrays.fill(output, 0);
+        Arrays.fill(overlap, 0);
+        filled = 0;
+        primed = false;
+    }
+
+    private void processWindow() {
+        for (int n = 0; n < WINDOW; n++) {
+            re[n] = input[n] * window[n];
+            im[n] = 0;
+        }
+        fft.transform(re, im, false);
+        for (int k = 0; k < BINS; k++) {
+            float binPower = re[k] * re[k] + im[k] * im[k];
+            if (primed) {
+                power[k] = POWER_SMOOTHING * power[k] + (1 - POWER_SMOOTHING) * binPower;
+                tracked[k] = TRACKING_SMOOTHING * tracked[k] + (1 - TRACKING_SMOOTHING) * binPower;
+                noise[k] = Math.min(tracked[k], Math.max(noise[k] * NOISE_RISE, MIN_NOISE));
+            } else {
+                power[k] = binPower;
+                tracked[k] = binPower;
+                noise[k] = Math.max(binPower, MIN_NOISE);
+            }
+            float subtracted = OVER_SUBTRACTION * MINIMUM_BIAS * noise[k];
+            float gain = power[k] > 0 ? (float) Math.sqrt(Math.max(0f, 1 - subtracted / power[k])) : 0f;
+            gain = Math.max(gain, floorGain);
+            re[k] *= gain;
+            im[k] *= gain;
+            if (k > 0 && k < WINDOW / 2) {
+                re[WINDOW - k] *= gain;
+                im[WINDOW - k] *= gain;
+            }
+        }
+        primed = true;
+        fft.transform(re, im, true);
+        for (int n = 0; n < HOP; n++) {
+            output[n] = overlap[n] + re[n] * window[n];
+            overlap[n] = re[HOP + n] * window[HOP + n];
+        }
+    }
+
+}
@@ -1,6 +1,11 @@
 package io.github.ceakins.zello.events;
 
+import io.github.ceakins.zello.RosterChange;
 import io.github.ceakins.zello.model.events.OnImageEvent;
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * An interface for receiving events from a Zello channel.
@@ -19,10 +24,31 @@ public interface ZelloChannelListener {
 
     void onStreamStarted(int streamId, String from);
 
+    /**
+     * Called right after {@link #onStreamStarted} with the full on_stream_start event, including the
+     * stream's codec header and packet duration, for relaying the stream without decoding it.
+     *
+     * @param event The event as received from the server.
+     */
+    default void onStreamStartEvent(OnStreamStartEvent event) {
+    }
+
     void onStreamStopped(int streamId, String from);
 
     void onAudioData(int streamId, byte[] audioData);
 
+    /**
+     * Called for each audio packet with its Opus payload as received, before any decoding. Useful for
+     * recording or relaying audio without the cost of decoding it; subscribe without
+     * {@link io.github.ceakins.zello.ChannelEvent#AUDIO} to skip decoding altogether.
+     *
+     * @param streamId The stream the packet belongs to.
+     * @param opusData The Opus payload, from its position to its limit. The buffer is only valid during
+     *                 the call; copy it to keep it.
+     */
+    default void onOpusPacket(int streamId, ByteBuffer opusData) {
+    }
+
     /**
      * Called when an image is received from a user in the channel.
      *
@@ -30,4 +56,35 @@ public interface ZelloChannelListener {
      */
     void onImageEvent(OnImageEvent event);
 
+    /**
+     * Called when the thumbnail of an incoming image has been fully received.
+     * The array is shared with the channel's image cache and must not be modified.
+     *
+     * @param imageId The image ID from the corresponding {@link OnImageEvent}.
+     * @param from The sender, or null if the on_image event was not seen.
+     * @param jpegData The thumbnail JPEG data.
+     */
+    default void onImageThumbnail(int imageId, String from, byte[] jpegData) {
+    }
+
+    /**
+     * Called when the full-size data of an incoming image has been fully received.
+     * The array is shared with the channel's image cache and must not be modified.
+     *
+     * @param imageId The image ID from the corresponding {@link OnImageEvent}.
+     * @param from The sender, or null if the on_image event was not seen.
+     * @param jpegData The full-size JPEG data.
+     */
+    default void onImageReceived(int imageId, String from, byte[] jpegData) {
+    }
+
+    /**
+     * Called when users join, leave, or change status. Only the users whose entry changed are included;
+     * see {@link io.github.ceakins.zello.ZelloChannel#getRoster()} for the full roster.
+     *
+     * @param changes The changes, never empty.
+     */
+    default void onRosterChanged(List<RosterChange> changes) {
+    }
+
 }
\ No newline at end of file
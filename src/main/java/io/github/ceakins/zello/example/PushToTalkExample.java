@@ -83,10 +83,9 @@ public class PushToTalkExample {
             @Override
             public void onStreamStopped(int streamId, String from) {
                 logger.info("AUDIO: Stream stopped from {}", from);
-                // --- THIS IS THE CRITICAL FIX ---
-                // Flush the speaker buffer to discard any lingering audio and prevent looping.
+                // Let the playout buffer play out the tail of the stream, then re-prime for the next one.
                 if (PLAY_INCOMING_AUDIO && finalAudioOutput != null) {
-                    finalAudioOutput.flush();
+                    finalAudioOutput.endOfStream();
                 }
             }
 
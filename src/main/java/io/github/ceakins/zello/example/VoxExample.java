@@ -97,7 +97,7 @@ public class VoxExample {
             public void onStreamStopped(int streamId, String from) {
                 logger.info("AUDIO: Stream stopped from {}", from);
                 if (PLAY_INCOMING_AUDIO && finalAudioOutput != null) {
-                    finalAudioOutput.flush();
+                    finalAudioOutput.endOfStream();
                 }
             }
 
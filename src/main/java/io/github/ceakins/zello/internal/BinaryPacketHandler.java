@@ -0,0 +1,22 @@
+package io.github.ceakins.zello.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Handles one type of binary packet received from the server.
+ *
+ * @see io.github.ceakins.zello.ZelloChannel#registerBinaryHandler(int, BinaryPacketHandler)
+ * @see ZelloTransport#registerBinaryHandler(int, BinaryPacketHandler)
+ */
+@FunctionalInterface
+public interface BinaryPacketHandler {
+
+    /**
+     * Handles a binary packet. Called on the WebSocket read thread, so implementations must not block.
+     *
+     * @param packet The packet in big-endian order, positioned just after the type byte.
+     *               The buffer is only valid for the duration of the call.
+     */
+    void handle(ByteBuffer packet);
+
+}
@@ -0,0 +1,126 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.exceptions.InvalidFrameException;
+import org.java_websocket.extensions.CompressionExtension;
+import org.java_websocket.extensions.ExtensionRequestData;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.FramedataImpl1;
+import org.java_websocket.framing.TextFrame;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+/**
+ * Adapts {@link PerMessageDeflate} to the Java-WebSocket library. Unlike the library's own
+ * permessage-deflate extension, it compresses only text frames and honours the parameters the server
+ * responds with.
+ */
+class DeflateExtension extends CompressionExtension {
+
+    private final CompressionConfig config;
+    private final ZelloMetrics metrics;
+    private final PerMessageDeflate codec;
+    // Whether the message being received is compressed; continuation frames do not carry RSV1.
+    private boolean decompressing;
+
+    DeflateExtension(CompressionConfig config, ZelloMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.codec = new PerMessageDeflate(config, metrics);
+    }
+
+    @Override
+    public String getProvidedExtensionAsClient() {
+        return codec.offer();
+    }
+
+    @Override
+    public boolean acceptProvidedExtensionAsClient(String response) {
+        if (response == null) {
+            return false;
+        }
+        for (String extension : response.split(",")) {
+            ExtensionRequestData data = ExtensionRequestData.parseExtensionRequest(extension);
+            if (PerMessageDeflate.EXTENSION_NAME.equalsIgnoreCase(data.getExtensionName())) {
+                return codec.accept(data.getExtensionParameters());
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void encodeFrame(Framedata frame) {
+        // Whole text messages only; the SDK never fragments outgoing messages.
+        if (!(frame instanceof TextFrame text) || !frame.isFin()) {
+            return;
+        }
+        byte[] payload = bytes(frame.getPayloadData());
+        if (!codec.shouldCompress(payload.length)) {
+            return;
+        }
+        text.setRSV1(true);
+        text.setPayload(ByteBuffer.wrap(codec.compress(payload)));
+    }
+
+    @Override
+    public void decodeFrame(Framedata frame) throws InvalidDataException {
+        if (!(frame instanceof DataFrame)) {
+            return;
+        }
+        if (frame.isRSV1()) {
+            decompressing = true;
+        } else if (!decompressing) {
+            return;
+        }
+        try {
+            byte[] payload = codec.decompress(bytes(frame.getPayloadData()), frame.isFin());
+            ((FramedataImpl1) frame).setPayload(ByteBuffer.wrap(payload));
+        } catch (DataFormatException e) {
+            throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, e.getMessage());
+        } finally {
+            if (frame.isFin()) {
+                decompressing = false;
+            }
+        }
+    }
+
+    @Override
+    public void isFrameValid(Framedata frame) throws InvalidDataException {
+        if (frame instanceof DataFrame && frame.isRSV1() && decompressing) {
+            throw new InvalidFrameException("RSV1 can only be set on the first frame of a message");
+        }
+        super.isFrameValid(frame);
+    }
+
+    @Override
+    public void reset() {
+        // Called when the connection closes, possibly while frames are still being processed, so
+        // the zlib state is left for the garbage collector rather than ended here.
+        decompressing = false;
+        codec.reset();
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new DeflateExtension(config, metrics);
+    }
+
+    @Override
+    public String toString() {
+        return PerMessageDeflate.EXTENSION_NAME;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
+
+}
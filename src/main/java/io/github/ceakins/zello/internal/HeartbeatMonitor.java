@@ -0,0 +1,119 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pings the server at a fixed interval to measure round-trip time and to notice a dead connection.
+ * A half-open TCP connection can go unnoticed for minutes, since nothing fails until the send buffer
+ * fills or the OS gives up. When too many pings in a row go unanswered, the monitor calls its timeout
+ * callback instead.
+ * <p>
+ * Each ping carries the time it was sent, so a pong can be matched to it without any bookkeeping.
+ * The smoothed round-trip time is an exponentially weighted moving average with a gain of 1/8, as
+ * used for TCP's SRTT (RFC 6298).
+ */
+public class HeartbeatMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatMonitor.class);
+
+    private final ZelloTransport transport;
+    private final long intervalMs;
+    private final int maxMissedPongs;
+    private final ZelloMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable onTimeout;
+    private final AtomicInteger unansweredPings = new AtomicInteger();
+    private final AtomicBoolean timedOut = new AtomicBoolean(false);
+    private volatile long smoothedRttNanos = -1;
+    private volatile long lastRttNanos = -1;
+    private volatile ScheduledFuture<?> task;
+
+    /**
+     * @param onTimeout Called once, on the scheduler, when {@code maxMissedPongs} pings in a row have gone unanswered.
+     */
+    public HeartbeatMonitor(ZelloTransport transport, long intervalMs, int maxMissedPongs, ZelloMetrics metrics,
+                            ScheduledExecutorService scheduler, Runnable onTimeout) {
+        this.transport = transport;
+        this.intervalMs = intervalMs;
+        this.maxMissedPongs = Math.max(1, maxMissedPongs);
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+        this.onTimeout = onTimeout;
+    }
+
+    public void start() {
+        task = scheduler.scheduleAtFixedRate(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledFuture<?> current = task;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+
+    /**
+     * Handles a pong from the server. Pongs that do not answer one of this monitor's pings are ignored.
+     */
+    public void onPong(ByteBuffer payload) {
+        if (payload.remaining() != Long.BYTES) {
+            return;
+        }
+        long rtt = System.nanoTime() - payload.getLong(payload.position());
+        if (rtt < 0) {
+            return;
+        }
+        unansweredPings.set(0);
+        lastRttNanos = rtt;
+        long smoothed = smoothedRttNanos;
+        smoothedRttNanos = smoothed < 0 ? rtt : smoothed + (rtt - smoothed) / 8;
+        metrics.recordHeartbeatRtt(rtt);
+    }
+
+    /**
+     * @return The smoothed round-trip time in nanoseconds, or -1 before the first pong.
+     */
+    public long getSmoothedRttNanos() {
+        return smoothedRttNanos;
+    }
+
+    /**
+     * @return The most recent round-trip time in nanoseconds, or -1 before the first pong.
+     */
+    public long getLastRttNanos() {
+        return lastRttNanos;
+    }
+
+    void tick() {
+        try {
+            if (timedOut.get() || !transport.isOpen()) {
+                return;
+            }
+            if (unansweredPings.get() >= maxMissedPongs) {
+                if (!timedOut.compareAndSet(false, true)) {
+                    return;
+                }
+                stop();
+                logger.warn("No pong received for {} pings sent {} ms apart; closing the connection.", maxMissedPongs, intervalMs);
+                metrics.recordHeartbeatTimeout();
+                onTimeout.run();
+                return;
+            }
+            unansweredPings.incrementAndGet();
+            transport.sendPing(ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array());
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task, so log it and try again next time.
+            logger.debug("Heartbeat ping failed: {}", e.getMessage());
+        }
+    }
+
+}
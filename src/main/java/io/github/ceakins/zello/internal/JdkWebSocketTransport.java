@@ -0,0 +1,306 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A transport built on the JDK's asynchronous {@link java.net.http.WebSocket}. Connections do not own
+ * any threads: I/O runs on the {@link HttpClient}'s selector thread and callbacks run on its executor,
+ * which for the default shared client creates a virtual thread per task.
+ * <p>
+ * The JDK WebSocket accepts only one outstanding send at a time, so sends are chained: each message is
+ * handed over once the previous one has been written.
+ * <p>
+ * The JDK WebSocket cannot negotiate extensions, so permessage-deflate compression is not available.
+ */
+public class JdkWebSocketTransport implements ZelloTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdkWebSocketTransport.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private static final class DefaultClient {
+        private static final HttpClient INSTANCE = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+    }
+
+    private final URI serverUri;
+    private final Map<String, String> httpHeaders;
+    private final ZelloMessageHandler messageHandler;
+    private final ZelloMetrics metrics;
+    private final HttpClient httpClient;
+    private final ZelloPacketDispatcher dispatcher;
+
+    private final ArrayDeque<Object> sendQueue = new ArrayDeque<>();
+    private boolean sending = false;
+    private final AtomicBoolean closeNotified = new AtomicBoolean(false);
+    private volatile CompletableFuture<WebSocket> connecting;
+    private volatile WebSocket webSocket;
+    private volatile boolean open = false;
+
+    // Partial messages being reassembled. Only touched by listener callbacks, which the JDK never runs concurrently.
+    private StringBuilder partialText;
+    private ByteBuffer partialBinary;
+
+    public JdkWebSocketTransport(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics) {
+        this(serverUri, httpHeaders, messageHandler, metrics, DefaultClient.INSTANCE);
+    }
+
+    /**
+     * @param httpClient The client to open the connection with. Clients can be shared between connections.
+     */
+    public JdkWebSocketTransport(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics, HttpClient httpClient) {
+        this.serverUri = serverUri;
+        this.httpHeaders = httpHeaders;
+        this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        this.httpClient = httpClient;
+        this.dispatcher = new ZelloPacketDispatcher(messageHandler, metrics);
+    }
+
+    @Override
+    public void connect() {
+        WebSocket.Builder builder = httpClient.newWebSocketBuilder().connectTimeout(CONNECT_TIMEOUT);
+        httpHeaders.forEach(builder::header);
+        connecting = builder.buildAsync(serverUri, new Listener());
+        connecting.whenComplete((ws, error) -> {
+            if (error != null) {
+                logger.error("WebSocket connection to {} failed", serverUri, error);
+                messageHandler.onError("A WebSocket error occurred", error);
+                notifyClosed(String.valueOf(error.getMessage()));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        WebSocket ws = webSocket;
+        if (ws == null) {
+            CompletableFuture<WebSocket> pending = connecting;
+            if (pending != null && pending.cancel(false)) {
+                notifyClosed("Connection cancelled");
+            }
+            return;
+        }
+        open = false;
+        ws.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        // The server normally answers with its own close frame; give up on it after a while.
+        ZelloScheduler.get().schedule(() -> {
+            if (!closeNotified.get()) {
+                ws.abort();
+                notifyClosed("Close handshake timed out");
+            }
+        }, CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void abort(String reason) {
+        WebSocket ws = webSocket;
+        if (ws != null) {
+            ws.abort();
+        } else {
+            CompletableFuture<WebSocket> pending = connecting;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+        notifyClosed(reason);
+    }
+
+    @Override
+    public boolean isOpen() {
+        WebSocket ws = webSocket;
+        return open && ws != null && !ws.isOutputClosed();
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        synchronized (sendQueue) {
+            return sending;
+        }
+    }
+
+    @Override
+    public void send(String text) {
+        enqueue(text);
+        metrics.recordTextOut(text.length());
+    }
+
+    @Override
+    public void send(byte[] data) {
+        enqueue(data);
+        metrics.recordPacketOut(data.length);
+    }
+
+    @Override
+    public void sendPing(byte[] payload) {
+        WebSocket ws = webSocket;
+        if (ws == null) {
+            throw new IllegalStateException("WebSocket is not connected.");
+        }
+        // Control frames can be sent while a data message is outstanding, so pings bypass the send queue.
+        ws.sendPing(ByteBuffer.wrap(payload)).exceptionally(error -> {
+            logger.debug("WebSocket ping failed: {}", error.getMessage());
+            return null;
+        });
+    }
+
+    @Override
+    public void registerBinaryHandler(int type, BinaryPacketHandler handler) {
+        dispatcher.registerBinaryHandler(type, handler);
+    }
+
+    @Override
+    public long getUnknownPacketCount() {
+        return dispatcher.getUnknownPacketCount();
+    }
+
+    @Override
+    public long getMalformedPacketCount() {
+        return dispatcher.getMalformedPacketCount();
+    }
+
+    private void enqueue(Object message) {
+        if (webSocket == null) {
+            throw new IllegalStateException("WebSocket is not connected.");
+        }
+        synchronized (sendQueue) {
+            if (sending) {
+                sendQueue.addLast(message);
+                return;
+            }
+            sending = true;
+        }
+        transmit(message);
+    }
+
+    private void transmit(Object message) {
+        CompletableFuture<WebSocket> sent = message instanceof String text
+                ? webSocket.sendText(text, true)
+                : webSocket.sendBinary(ByteBuffer.wrap((byte[]) message), true);
+        sent.whenComplete((ws, error) -> {
+            if (error != null) {
+                logger.warn("WebSocket send failed: {}", error.getMessage());
+            }
+            Object next;
+            synchronized (sendQueue) {
+                next = sendQueue.pollFirst();
+                if (next == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            transmit(next);
+        });
+    }
+
+    private void notifyClosed(String reason) {
+        open = false;
+        if (closeNotified.compareAndSet(false, true)) {
+            synchronized (sendQueue) {
+                sendQueue.clear();
+                sending = false;
+            }
+            messageHandler.onClose(reason);
+        }
+    }
+
+    private class Listener implements WebSocket.Listener {
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            logger.info("WebSocket connection opened to {}", serverUri);
+            webSocket = ws;
+            open = true;
+            messageHandler.onOpen();
+            ws.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            if (!last || partialText != null) {
+                if (partialText == null) {
+                    partialText = new StringBuilder();
+                }
+                partialText.append(data);
+            }
+            if (last) {
+                String message = partialText != null ? partialText.toString() : data.toString();
+                partialText = null;
+                dispatcher.onText(message);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+            if (last && partialBinary == null) {
+                // The common case: a whole packet in one frame, dispatched without copying.
+                dispatcher.onBinary(data);
+            } else {
+                partialBinary = append(partialBinary, data);
+                if (last) {
+                    partialBinary.flip();
+                    dispatcher.onBinary(partialBinary);
+                    partialBinary = null;
+                }
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPong(WebSocket ws, ByteBuffer message) {
+            messageHandler.onPong(message);
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            logger.info("WebSocket connection closed. Code: {}, Reason: {}", statusCode, reason);
+            if (!ws.isOutputClosed()) {
+                ws.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            }
+            notifyClosed(reason);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            logger.error("WebSocket error occurred", error);
+            messageHandler.onError("A WebSocket error occurred", error);
+            notifyClosed(String.valueOf(error.getMessage()));
+        }
+
+        private ByteBuffer append(ByteBuffer buffer, ByteBuffer data) {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(Math.max(1024, data.remaining() * 2));
+            } else if (buffer.remaining() < data.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + data.remaining()));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer.put(data);
+        }
+    }
+
+}
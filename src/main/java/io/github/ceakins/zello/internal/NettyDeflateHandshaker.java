@@ -0,0 +1,118 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionDecoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+/**
+ * Adapts {@link PerMessageDeflate} to Netty's WebSocket extension handler. Netty's own
+ * permessage-deflate extension compresses binary frames as well; this one compresses only text frames.
+ * One handshaker is created per connection.
+ */
+class NettyDeflateHandshaker implements WebSocketClientExtensionHandshaker {
+
+    private final PerMessageDeflate codec;
+
+    NettyDeflateHandshaker(CompressionConfig config, ZelloMetrics metrics) {
+        this.codec = new PerMessageDeflate(config, metrics);
+    }
+
+    @Override
+    public WebSocketExtensionData newRequestData() {
+        return new WebSocketExtensionData(PerMessageDeflate.EXTENSION_NAME, codec.offerParameters());
+    }
+
+    @Override
+    public WebSocketClientExtension handshakeExtension(WebSocketExtensionData data) {
+        if (!PerMessageDeflate.EXTENSION_NAME.equals(data.name()) || !codec.accept(data.parameters())) {
+            return null;
+        }
+        return new WebSocketClientExtension() {
+            @Override
+            public int rsv() {
+                return WebSocketExtension.RSV1;
+            }
+
+            @Override
+            public WebSocketExtensionEncoder newExtensionEncoder() {
+                return new Encoder();
+            }
+
+            @Override
+            public WebSocketExtensionDecoder newExtensionDecoder() {
+                return new Decoder();
+            }
+        };
+    }
+
+    private class Encoder extends WebSocketExtensionEncoder {
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, WebSocketFrame frame, List<Object> out) {
+            // Whole text messages only; the SDK never fragments outgoing messages.
+            if (!(frame instanceof TextWebSocketFrame) || !frame.isFinalFragment()
+                    || !codec.shouldCompress(frame.content().readableBytes())) {
+                out.add(frame.retain());
+                return;
+            }
+            byte[] compressed = codec.compress(ByteBufUtil.getBytes(frame.content()));
+            out.add(new TextWebSocketFrame(true, frame.rsv() | WebSocketExtension.RSV1, Unpooled.wrappedBuffer(compressed)));
+        }
+    }
+
+    private class Decoder extends WebSocketExtensionDecoder {
+
+        // Whether the message being received is compressed; continuation frames do not carry RSV1.
+        private boolean decompressing;
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, WebSocketFrame frame, List<Object> out) {
+            boolean data = frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame
+                    || frame instanceof ContinuationWebSocketFrame;
+            if (!data) {
+                out.add(frame.retain());
+                return;
+            }
+            boolean compressed = (frame.rsv() & WebSocketExtension.RSV1) != 0;
+            if (compressed && (decompressing || frame instanceof ContinuationWebSocketFrame)) {
+                throw new CodecException("RSV1 can only be set on the first frame of a message");
+            }
+            if (!compressed && !(decompressing && frame instanceof ContinuationWebSocketFrame)) {
+                out.add(frame.retain());
+                return;
+            }
+            decompressing = !frame.isFinalFragment();
+            byte[] payload;
+            try {
+                payload = codec.decompress(ByteBufUtil.getBytes(frame.content()), frame.isFinalFragment());
+            } catch (DataFormatException e) {
+                throw new CodecException("Invalid compressed WebSocket message", e);
+            }
+            int rsv = frame.rsv() & ~WebSocketExtension.RSV1;
+            if (frame instanceof TextWebSocketFrame) {
+                out.add(new TextWebSocketFrame(frame.isFinalFragment(), rsv, Unpooled.wrappedBuffer(payload)));
+            } else if (frame instanceof BinaryWebSocketFrame) {
+                out.add(new BinaryWebSocketFrame(frame.isFinalFragment(), rsv, Unpooled.wrappedBuffer(payload)));
+            } else {
+                out.add(new ContinuationWebSocketFrame(frame.isFinalFragment(), rsv, Unpooled.wrappedBuffer(payload)));
+            }
+        }
+    }
+
+}
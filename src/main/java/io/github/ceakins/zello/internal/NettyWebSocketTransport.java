@@ -0,0 +1,341 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolConfig;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transport built on Netty, for deployments with many connections. All connections share one event
+ * loop group sized to the number of cores, using native epoll on Linux when the
+ * {@code netty-transport-native-epoll} library is present and NIO otherwise. Buffers come from Netty's
+ * pooled allocator. Supports permessage-deflate compression of text messages.
+ * <p>
+ * Netty is an optional dependency of the SDK; it must be added to the application to use this transport.
+ */
+public class NettyWebSocketTransport implements ZelloTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyWebSocketTransport.class);
+    // Above the default incoming image limit, so a whole image can arrive as a single message.
+    private static final int MAX_MESSAGE_BYTES = 16 << 20;
+    private static final int HANDSHAKE_RESPONSE_BYTES = 8192;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private static final class EventLoops {
+        private static final boolean NATIVE = isEpollAvailable();
+        private static final EventLoopGroup GROUP;
+        private static final Class<? extends Channel> CHANNEL_TYPE;
+
+        static {
+            ThreadFactory threadFactory = new DefaultThreadFactory("Zello-Netty", true);
+            if (NATIVE) {
+                GROUP = EpollSupport.newGroup(threadFactory);
+                CHANNEL_TYPE = EpollSupport.channelType();
+            } else {
+                GROUP = new NioEventLoopGroup(0, threadFactory);
+                CHANNEL_TYPE = NioSocketChannel.class;
+            }
+            logger.debug("Netty transport using {}", NATIVE ? "native epoll" : "NIO");
+        }
+
+        private static boolean isEpollAvailable() {
+            try {
+                return Epoll.isAvailable();
+            } catch (LinkageError e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Keeps the epoll classes out of {@link EventLoops} so they are only loaded when epoll is available.
+     */
+    private static final class EpollSupport {
+        private static EventLoopGroup newGroup(ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(0, threadFactory);
+        }
+
+        private static Class<? extends Channel> channelType() {
+            return EpollSocketChannel.class;
+        }
+    }
+
+    private final URI serverUri;
+    private final Map<String, String> httpHeaders;
+    private final ZelloMessageHandler messageHandler;
+    private final ZelloMetrics metrics;
+    private final ZelloPacketDispatcher dispatcher;
+    private final CompressionConfig compression;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicBoolean closeNotified = new AtomicBoolean(false);
+    private volatile Channel channel;
+    private volatile boolean open = false;
+    private volatile boolean closeSent = false;
+    private volatile String closeReason;
+
+    public NettyWebSocketTransport(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics) {
+        this(serverUri, httpHeaders, messageHandler, metrics, null);
+    }
+
+    /**
+     * @param compression The permessage-deflate settings to offer the server, or null to disable compression.
+     */
+    public NettyWebSocketTransport(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics, CompressionConfig compression) {
+        this.serverUri = serverUri;
+        this.httpHeaders = httpHeaders;
+        this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        this.dispatcher = new ZelloPacketDispatcher(messageHandler, metrics);
+        this.compression = compression;
+    }
+
+    /**
+     * @return true if connections use native epoll rather than NIO.
+     */
+    public static boolean isNativeTransport() {
+        return EventLoops.NATIVE;
+    }
+
+    @Override
+    public void connect() {
+        boolean secure = "wss".equalsIgnoreCase(serverUri.getScheme());
+        String host = serverUri.getHost();
+        int port = serverUri.getPort() != -1 ? serverUri.getPort() : (secure ? 443 : 80);
+        SslContext sslContext;
+        try {
+            sslContext = secure ? SslContextBuilder.forClient().build() : null;
+        } catch (SSLException e) {
+            messageHandler.onError("Failed to initialize TLS", e);
+            notifyClosed(e.getMessage());
+            return;
+        }
+        HttpHeaders headers = new DefaultHttpHeaders();
+        httpHeaders.forEach(headers::add);
+        WebSocketClientProtocolConfig protocolConfig = WebSocketClientProtocolConfig.newBuilder()
+                .webSocketUri(serverUri)
+                .version(WebSocketVersion.V13)
+                .customHeaders(headers)
+                .maxFramePayloadLength(MAX_MESSAGE_BYTES)
+                .handleCloseFrames(false)
+                .dropPongFrames(false)
+                .allowExtensions(compression != null)
+                .build();
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(EventLoops.GROUP)
+                .channel(EventLoops.CHANNEL_TYPE)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        if (sslContext != null) {
+                            pipeline.addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        pipeline.addLast(new HttpClientCodec(), new HttpObjectAggregator(HANDSHAKE_RESPONSE_BYTES));
+                        if (compression != null) {
+                            pipeline.addLast(new WebSocketClientExtensionHandler(new NettyDeflateHandshaker(compression, metrics)));
+                        }
+                        pipeline.addLast(new WebSocketClientProtocolHandler(protocolConfig),
+                                new WebSocketFrameAggregator(MAX_MESSAGE_BYTES),
+                                new FrameHandler());
+                    }
+                });
+        ChannelFuture connected = bootstrap.connect(host, port);
+        channel = connected.channel();
+        connected.addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                logger.error("WebSocket connection to {} failed", serverUri, future.cause());
+                messageHandler.onError("A WebSocket error occurred", future.cause());
+                notifyClosed(String.valueOf(future.cause().getMessage()));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        Channel ch = channel;
+        if (ch == null) {
+            return;
+        }
+        if (!open) {
+            ch.close();
+            return;
+        }
+        open = false;
+        closeSent = true;
+        ch.writeAndFlush(new CloseWebSocketFrame(1000, ""));
+        // The server normally answers with its own close frame; give up on it after a while.
+        ch.eventLoop().schedule(() -> ch.close(), CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void abort(String reason) {
+        Channel ch = channel;
+        closeReason = reason;
+        if (ch != null) {
+            ch.close();
+        } else {
+            notifyClosed(reason);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        Channel ch = channel;
+        return open && ch != null && ch.isActive();
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        return pendingWrites.get() > 0;
+    }
+
+    @Override
+    public void send(String text) {
+        write(new TextWebSocketFrame(text));
+        metrics.recordTextOut(text.length());
+    }
+
+    @Override
+    public void send(byte[] data) {
+        // The frame encoder masks the payload into a pooled buffer, so the array itself can be wrapped.
+        write(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(data)));
+        metrics.recordPacketOut(data.length);
+    }
+
+    @Override
+    public void sendPing(byte[] payload) {
+        write(new PingWebSocketFrame(Unpooled.wrappedBuffer(payload)));
+    }
+
+    @Override
+    public void registerBinaryHandler(int type, BinaryPacketHandler handler) {
+        dispatcher.registerBinaryHandler(type, handler);
+    }
+
+    @Override
+    public long getUnknownPacketCount() {
+        return dispatcher.getUnknownPacketCount();
+    }
+
+    @Override
+    public long getMalformedPacketCount() {
+        return dispatcher.getMalformedPacketCount();
+    }
+
+    private void write(WebSocketFrame frame) {
+        Channel ch = channel;
+        if (ch == null) {
+            frame.release();
+            throw new IllegalStateException("WebSocket is not connected.");
+        }
+        pendingWrites.incrementAndGet();
+        ch.writeAndFlush(frame).addListener(future -> {
+            pendingWrites.decrementAndGet();
+            if (!future.isSuccess()) {
+                logger.warn("WebSocket send failed: {}", future.cause().getMessage());
+            }
+        });
+    }
+
+    private void notifyClosed(String reason) {
+        open = false;
+        if (closeNotified.compareAndSet(false, true)) {
+            messageHandler.onClose(reason);
+        }
+    }
+
+    private class FrameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt == WebSocketClientProtocolHandler.ClientHandshakeStateEvent.HANDSHAKE_COMPLETE) {
+                logger.info("WebSocket connection opened to {}", serverUri);
+                open = true;
+                messageHandler.onOpen();
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
+            if (frame instanceof BinaryWebSocketFrame) {
+                dispatcher.onBinary(frame.content().nioBuffer());
+            } else if (frame instanceof TextWebSocketFrame text) {
+                dispatcher.onText(text.text());
+            } else if (frame instanceof PongWebSocketFrame) {
+                messageHandler.onPong(frame.content().nioBuffer());
+            } else if (frame instanceof CloseWebSocketFrame close) {
+                logger.info("WebSocket connection closed. Code: {}, Reason: {}", close.statusCode(), close.reasonText());
+                closeReason = close.reasonText();
+                open = false;
+                if (closeSent) {
+                    ctx.close();
+                } else {
+                    closeSent = true;
+                    ctx.writeAndFlush(new CloseWebSocketFrame(1000, "")).addListener(ChannelFutureListener.CLOSE);
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            String reason = closeReason;
+            notifyClosed(reason != null ? reason : "Connection closed");
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            logger.error("WebSocket error occurred", cause);
+            messageHandler.onError("A WebSocket error occurred", cause);
+            ctx.close();
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders everything the SDK sends over a connection into three priority classes: audio, then control
+ * (JSON commands), then bulk (image data).
+ * <p>
+ * Every transport has a single unbounded FIFO send queue, so anything handed to it is sent in order no
+ * matter how urgent it is. This scheduler therefore only passes a message to the socket when the
+ * socket's own queue is empty; until then messages wait here, where a voice frame can overtake queued
+ * image chunks. Bulk data is accepted one chunk at a time, so at most a single chunk can sit in front of
+ * a voice frame. Audio frames carry a deadline and are dropped if they are still queued when it passes,
+ * since a frame played seconds late is worse than a short gap.
+ * <p>
+ * When nothing is queued and the socket is idle, messages are sent directly on the calling thread.
+ * Otherwise the queues are drained by short tasks on a shared executor, one message per task, so
+ * connections take turns and no connection needs a thread of its own. While the socket stays busy, the
+ * drain task polls it at a doubling interval, from 1 ms up to 10 ms, so that many connections uploading
+ * at once do not keep a shared executor busy.
+ */
+public class OutboundScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundScheduler.class);
+    private static final long MIN_BUSY_SOCKET_POLL_MICROS = 1000;
+    // Well under a voice frame, so a frame queued behind a busy socket is not held back for long.
+    private static final long MAX_BUSY_SOCKET_POLL_MICROS = 10_000;
+    private static final int MAX_QUEUED_BULK_PACKETS = 1;
+
+    @AllArgsConstructor
+    private static class AudioFrame {
+        private final byte[] packet;
+        private final long deadlineNanos;
+    }
+
+    private final ZelloTransport client;
+    private final long audioDeadlineNanos;
+    private final ZelloMetrics metrics;
+    private final ScheduledExecutorService executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition bulkSpaceAvailable = lock.newCondition();
+    private final ArrayDeque<AudioFrame> audioQueue = new ArrayDeque<>();
+    private final ArrayDeque<String> controlQueue = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> bulkQueue = new ArrayDeque<>();
+    private final LongAdder expiredAudioFrames = new LongAdder();
+    private boolean started = false;
+    private boolean drainScheduled = false;
+    private long busyPollMicros = MIN_BUSY_SOCKET_POLL_MICROS;
+    private boolean closed = false;
+
+    /**
+     * @param client The connection to send on.
+     * @param audioDeadlineMs How long an audio frame may wait to be sent before it is dropped.
+     * @param metrics The sink that expired audio frames are reported to.
+     * @param executor The executor that drains the queues. Its tasks never block.
+     */
+    public OutboundScheduler(ZelloTransport client, long audioDeadlineMs, ZelloMetrics metrics, ScheduledExecutorService executor) {
+        this.client = client;
+        this.audioDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(audioDeadlineMs);
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts draining queued messages. Until then, messages are only queued.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (started || closed) {
+                return;
+            }
+            started = true;
+            scheduleDrain(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops draining and discards everything still queued. Blocked {@link #sendBulk} calls fail.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            audioQueue.clear();
+            controlQueue.clear();
+            bulkQueue.clear();
+            bulkSpaceAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues an audio packet with the highest priority.
+     *
+     * @return false if the connection is closed.
+     */
+    public boolean sendAudio(byte[] packet) {
+        lock.lock();
+        try {
+            if (!canSend()) {
+                return false;
+            }
+            if (isIdle()) {
+                client.send(packet);
+            } else {
+                audioQueue.addLast(new AudioFrame(packet, System.nanoTime() + audioDeadlineNanos));
+                scheduleDrain(0);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a JSON command, sent after any queued audio but before any bulk data.
+     *
+     * @return false if the connection is closed.
+     */
+    public boolean sendControl(String json) {
+        lock.lock();
+        try {
+            if (!canSend()) {
+                return false;
+            }
+            if (isIdle()) {
+                client.send(json);
+            } else {
+                controlQueue.addLast(json);
+                scheduleDrain(0);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a bulk packet with the lowest priority, blocking while an earlier bulk packet is still
+     * waiting to be sent. This bounds the bulk data buffered ahead of the socket to a single packet.
+     *
+     * @param timeoutMs How long to wait for the previous bulk packet to be sent.
+     * @return false if the connection closed or the previous packet was not sent within the timeout.
+     */
+    public boolean sendBulk(byte[] packet, long timeoutMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (canSend() && bulkQueue.size() >= MAX_QUEUED_BULK_PACKETS) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = bulkSpaceAvailable.awaitNanos(remaining);
+            }
+            if (!canSend()) {
+                return false;
+            }
+            if (isIdle()) {
+                client.send(packet);
+            } else {
+                bulkQueue.addLast(packet);
+                scheduleDrain(0);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of audio frames dropped because they missed their deadline.
+     */
+    public long getExpiredAudioFrameCount() {
+        return expiredAudioFrames.sum();
+    }
+
+    private boolean canSend() {
+        return !closed && client.isOpen();
+    }
+
+    private boolean isIdle() {
+        return audioQueue.isEmpty() && controlQueue.isEmpty() && bulkQueue.isEmpty() && !client.hasBufferedData();
+    }
+
+    private boolean hasQueuedWork() {
+        return !audioQueue.isEmpty() || !controlQueue.isEmpty() || !bulkQueue.isEmpty();
+    }
+
+    /**
+     * Submits a drain task unless one is already pending. Must be called with the lock held.
+     */
+    private void scheduleDrain(long delayMicros) {
+        if (!started || closed || drainScheduled || !hasQueuedWork()) {
+            return;
+        }
+        drainScheduled = true;
+        try {
+            if (delayMicros > 0) {
+                executor.schedule(this::drain, delayMicros, TimeUnit.MICROSECONDS);
+            } else {
+                executor.execute(this::drain);
+            }
+        } catch (RejectedExecutionException e) {
+            drainScheduled = false;
+            logger.warn("Outbound executor rejected a drain task; queued messages will not be sent.");
+        }
+    }
+
+    /**
+     * Sends at most one message, then yields the executor to other connections by rescheduling itself.
+     */
+    private void drain() {
+        lock.lock();
+        try {
+            drainScheduled = false;
+            if (closed || !hasQueuedWork()) {
+                return;
+            }
+            // The socket does not signal when its queue drains, so poll it, less often the longer it stays busy.
+            if (client.hasBufferedData()) {
+                scheduleDrain(busyPollMicros);
+                busyPollMicros = Math.min(busyPollMicros * 2, MAX_BUSY_SOCKET_POLL_MICROS);
+                return;
+            }
+            busyPollMicros = MIN_BUSY_SOCKET_POLL_MICROS;
+            if (!client.isOpen()) {
+                close();
+                return;
+            }
+            sendNext();
+            scheduleDrain(0);
+        } catch (RuntimeException e) {
+            logger.error("Outbound sender failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sendNext() {
+        long now = System.nanoTime();
+        AudioFrame frame;
+        while ((frame = audioQueue.pollFirst()) != null) {
+            if (now - frame.deadlineNanos > 0) {
+                expiredAudioFrames.increment();
+                metrics.recordAudioFrameExpired();
+                continue;
+            }
+            client.send(frame.packet);
+            return;
+        }
+        String json = controlQueue.pollFirst();
+        if (json != null) {
+            client.send(json);
+            return;
+        }
+        byte[] bulk = bulkQueue.pollFirst();
+        if (bulk != null) {
+            client.send(bulk);
+            bulkSpaceAvailable.signalAll();
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The permessage-deflate codec (RFC 7692) for one connection, independent of the WebSocket library.
+ * The transports wrap it in their own extension types, offer it in the handshake, and call
+ * {@link #compress} for outgoing text messages and {@link #decompress} for incoming messages the
+ * server marked as compressed.
+ * <p>
+ * Compression keeps a context between messages unless no_context_takeover was negotiated, so
+ * messages must be compressed in the order they are written to the socket.
+ */
+public class PerMessageDeflate {
+
+    public static final String EXTENSION_NAME = "permessage-deflate";
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+
+    private static final int MAX_WINDOW_BITS = 15;
+    private static final int MIN_WINDOW_BITS = 8;
+    // Same as the transports' largest incoming message, so a small compressed frame cannot inflate without bound.
+    private static final int MAX_MESSAGE_BYTES = 16 << 20;
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+    private final CompressionConfig config;
+    private final ZelloMetrics metrics;
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] deflateBuffer = new byte[4096];
+    private final byte[] inflateBuffer = new byte[4096];
+    private boolean resetDeflater;
+    private boolean resetInflater;
+    // Totals for the message being decompressed, which may arrive over several fragments.
+    private int messageCompressedBytes;
+    private int messageOriginalBytes;
+
+    public PerMessageDeflate(CompressionConfig config, ZelloMetrics metrics) {
+        int windowBits = config.getServerMaxWindowBits();
+        if (windowBits < MIN_WINDOW_BITS || windowBits > MAX_WINDOW_BITS) {
+            throw new IllegalArgumentException("serverMaxWindowBits must be between 8 and 15: " + windowBits);
+        }
+        this.config = config;
+        this.metrics = metrics;
+        this.deflater = new Deflater(config.getCompressionLevel(), true);
+        this.resetDeflater = config.isClientNoContextTakeover();
+    }
+
+    /**
+     * @return The parameters to offer in the Sec-WebSocket-Extensions request header, in order.
+     */
+    public Map<String, String> offerParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        if (config.isClientNoContextTakeover()) {
+            parameters.put(CLIENT_NO_CONTEXT_TAKEOVER, null);
+        }
+        if (config.isServerNoContextTakeover()) {
+            parameters.put(SERVER_NO_CONTEXT_TAKEOVER, null);
+        }
+        if (config.getServerMaxWindowBits() < MAX_WINDOW_BITS) {
+            parameters.put(SERVER_MAX_WINDOW_BITS, Integer.toString(config.getServerMaxWindowBits()));
+        }
+        return parameters;
+    }
+
+    /**
+     * @return The offer as a Sec-WebSocket-Extensions header value.
+     */
+    public String offer() {
+        StringBuilder offer = new StringBuilder(EXTENSION_NAME);
+        offerParameters().forEach((name, value) -> {
+            offer.append("; ").append(name);
+            if (value != null) {
+                offer.append('=').append(value);
+            }
+        });
+        return offer.toString();
+    }
+
+    /**
+     * Applies the parameters the server accepted the extension with.
+     *
+     * @return false if the response cannot be honoured, in which case the extension must not be used.
+     */
+    public boolean accept(Map<String, String> parameters) {
+        boolean deflaterReset = config.isClientNoContextTakeover();
+        boolean inflaterReset = false;
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            switch (parameter.getKey()) {
+                case CLIENT_NO_CONTEXT_TAKEOVER -> deflaterReset = true;
+                case SERVER_NO_CONTEXT_TAKEOVER -> inflaterReset = true;
+                case SERVER_MAX_WINDOW_BITS -> {
+                    // The inflater accepts any window size, so any valid value is fine.
+                    if (!isValidWindowBits(parameter.getValue())) {
+                        return false;
+                    }
+                }
+                default -> {
+                    // Includes client_max_window_bits, which is never offered since Deflater always uses 15 bits.
+                    return false;
+                }
+            }
+        }
+        this.resetDeflater = deflaterReset;
+        this.resetInflater = inflaterReset;
+        return true;
+    }
+
+    /**
+     * @return true if a text message of this many bytes is worth compressing.
+     */
+    public boolean shouldCompress(int length) {
+        return length >= config.getMinMessageBytes();
+    }
+
+    /**
+     * Compresses a whole message.
+     *
+     * @return The compressed payload, without the trailing empty block.
+     */
+    public synchronized byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+        deflater.setInput(data);
+        int length;
+        do {
+            // A flush has completed once it no longer fills the buffer.
+            length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+            out.write(deflateBuffer, 0, length);
+        } while (length == deflateBuffer.length);
+        if (resetDeflater) {
+            deflater.reset();
+        }
+        byte[] compressed = out.toByteArray();
+        int compressedLength = compressed.length - TAIL.length;
+        byte[] payload = new byte[compressedLength];
+        System.arraycopy(compressed, 0, payload, 0, compressedLength);
+        metrics.recordTextCompressed(data.length, compressedLength);
+        return payload;
+    }
+
+    /**
+     * Decompresses one fragment of a compressed message.
+     *
+     * @param last Whether this is the message's final fragment.
+     * @return The decompressed bytes of this fragment.
+     */
+    public synchronized byte[] decompress(byte[] data, boolean last) throws DataFormatException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        messageCompressedBytes += data.length;
+        inflate(data, out);
+        if (last) {
+            inflate(TAIL, out);
+        }
+        messageOriginalBytes += out.size();
+        if (last) {
+            metrics.recordTextDecompressed(messageCompressedBytes, messageOriginalBytes);
+            messageCompressedBytes = 0;
+            messageOriginalBytes = 0;
+            if (resetInflater || inflater.finished()) {
+                inflater.reset();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Discards both compression contexts, for a new connection.
+     */
+    public synchronized void reset() {
+        deflater.reset();
+        inflater.reset();
+        messageCompressedBytes = 0;
+        messageOriginalBytes = 0;
+    }
+
+    private void inflate(byte[] data, ByteArrayOutputStream out) throws DataFormatException {
+        inflater.setInput(data);
+        while (true) {
+            int length = inflater.inflate(inflateBuffer);
+            if (length > 0) {
+                out.write(inflateBuffer, 0, length);
+                if (messageOriginalBytes + out.size() > MAX_MESSAGE_BYTES) {
+                    messageCompressedBytes = 0;
+                    messageOriginalBytes = 0;
+                    inflater.reset();
+                    throw new DataFormatException("Decompressed message exceeds " + MAX_MESSAGE_BYTES + " bytes");
+                }
+            } else if (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isValidWindowBits(String value) {
+        try {
+            int bits = Integer.parseInt(value);
+            return bits >= MIN_WINDOW_BITS && bits <= MAX_WINDOW_BITS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+}
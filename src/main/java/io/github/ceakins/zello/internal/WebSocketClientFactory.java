@@ -4,9 +4,9 @@ import java.net.URI;
 import java.util.Map;
 
 /**
- * A factory for creating instances of ZelloWebSocketClient.
+ * A factory for creating the transport of a connection.
  * This allows for dependency injection, so we can use a mock factory during testing.
  */
 public interface WebSocketClientFactory {
-    ZelloWebSocketClient create(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler);
+    ZelloTransport create(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler);
 }
@@ -3,8 +3,10 @@ package io.github.ceakins.zello.internal;
 import io.github.ceakins.zello.model.events.ServerCommand;
 import org.json.JSONObject;
 
+import java.nio.ByteBuffer;
+
 /**
- * An internal interface for handling events from the ZelloWebSocketClient.
+ * An internal interface for handling events from a {@link ZelloTransport}.
  * This is implemented by ZelloChannel to process messages from the websocket layer.
  */
 public interface ZelloMessageHandler {
@@ -21,7 +23,29 @@ public interface ZelloMessageHandler {
      */
     void onServerResponse(JSONObject response);
 
-    void onAudioPacket(int streamId, byte[] audioData);
+    /**
+     * Called for each binary audio packet (type 0x01) received from the server.
+     *
+     * @param streamId The stream the packet belongs to.
+     * @param opusData The Opus payload, from its position to its limit. The buffer is only valid during the call.
+     */
+    void onAudioPacket(int streamId, ByteBuffer opusData);
+
+    /**
+     * Called for each binary image packet (type 0x02) received from the server.
+     *
+     * @param imageId The image ID announced by the preceding on_image event.
+     * @param imageType 0x01 for full image data, 0x02 for thumbnail data.
+     * @param imageData This packet's slice of the JPEG data.
+     */
+    void onImagePacket(int imageId, int imageType, byte[] imageData);
+
+    /**
+     * Called when a pong control frame is received.
+     *
+     * @param payload The pong's payload. The buffer is only valid during the call.
+     */
+    void onPong(ByteBuffer payload);
 
     void onClose(String reason);
 
@@ -0,0 +1,142 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.internal.jfr.AudioPacketEvent;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes the messages a transport receives and passes them to a {@link ZelloMessageHandler}: JSON text
+ * messages become server commands or responses, and binary packets are dispatched by their type byte.
+ * Shared by every {@link ZelloTransport} so the protocol handling does not depend on the WebSocket library.
+ */
+public class ZelloPacketDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZelloPacketDispatcher.class);
+
+    // Type byte followed by two 32-bit fields (stream/packet ID for audio, image ID/type for images).
+    private static final int AUDIO_HEADER_LENGTH = 8;
+    private static final int IMAGE_HEADER_LENGTH = 8;
+
+    private final ZelloMessageHandler messageHandler;
+    private final ZelloMetrics metrics;
+    // Registered from the caller's thread and read on the I/O thread.
+    private final AtomicReferenceArray<BinaryPacketHandler> binaryHandlers = new AtomicReferenceArray<>(256);
+    private final LongAdder unknownPackets = new LongAdder();
+    private final LongAdder malformedPackets = new LongAdder();
+
+    public ZelloPacketDispatcher(ZelloMessageHandler messageHandler, ZelloMetrics metrics) {
+        this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        binaryHandlers.set(ZelloTransport.PACKET_TYPE_AUDIO, this::handleAudioPacket);
+        binaryHandlers.set(ZelloTransport.PACKET_TYPE_IMAGE, this::handleImagePacket);
+    }
+
+    /**
+     * Registers a handler for a binary packet type, replacing any existing handler for that type.
+     * This allows extension packet types to be consumed without them ever reaching the audio path.
+     *
+     * @param type The packet type byte (0-255).
+     * @param handler The handler, or null to skip packets of this type.
+     */
+    public void registerBinaryHandler(int type, BinaryPacketHandler handler) {
+        if (type < 0 || type > 0xFF) {
+            throw new IllegalArgumentException("Binary packet type must be between 0 and 255: " + type);
+        }
+        binaryHandlers.set(type, handler);
+    }
+
+    public long getUnknownPacketCount() {
+        return unknownPackets.sum();
+    }
+
+    public long getMalformedPacketCount() {
+        return malformedPackets.sum();
+    }
+
+    /**
+     * Handles a complete text message.
+     */
+    public void onText(String message) {
+        logger.debug("Received text message: {}", message);
+        metrics.recordTextIn(message.length());
+        try {
+            JSONObject jsonObject = new JSONObject(message);
+            if (jsonObject.has("command")) {
+                messageHandler.onServerCommand(JsonUtils.jsonToServerCommand(message));
+            } else {
+                messageHandler.onServerResponse(jsonObject);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to parse server message: {}", message, e);
+            messageHandler.onError("Failed to parse server message", e);
+        }
+    }
+
+    /**
+     * Handles a complete binary message. The buffer is only read during the call.
+     */
+    public void onBinary(ByteBuffer bytes) {
+        metrics.recordPacketIn(bytes.remaining());
+        if (!bytes.hasRemaining()) {
+            logger.warn("Received an empty binary message.");
+            return;
+        }
+        // Ensure we read in Big-Endian (Network Byte Order)
+        bytes.order(ByteOrder.BIG_ENDIAN);
+
+        int type = bytes.get() & 0xFF;
+        BinaryPacketHandler handler = binaryHandlers.get(type);
+        if (handler == null) {
+            unknownPackets.increment();
+            logger.trace("Skipping binary packet of unknown type 0x{} ({} bytes)", Integer.toHexString(type), bytes.remaining());
+            return;
+        }
+        handler.handle(bytes);
+    }
+
+    private void handleAudioPacket(ByteBuffer bytes) {
+        if (bytes.remaining() < AUDIO_HEADER_LENGTH) {
+            malformedPackets.increment();
+            logger.warn("Received an audio packet smaller than the required 9-byte header.");
+            return;
+        }
+        int streamId = bytes.getInt();
+        int packetId = bytes.getInt();
+        if (logger.isTraceEnabled()) {
+            logger.trace("Received audio packet: streamId={}, packetId={}, opusSize={}", streamId, packetId, bytes.remaining());
+        }
+
+        AudioPacketEvent event = new AudioPacketEvent();
+        if (event.shouldCommit()) {
+            event.direction = "in";
+            event.streamId = streamId;
+            event.packetId = packetId;
+            event.size = bytes.remaining();
+            event.commit();
+        }
+
+        messageHandler.onAudioPacket(streamId, bytes);
+    }
+
+    private void handleImagePacket(ByteBuffer bytes) {
+        if (bytes.remaining() < IMAGE_HEADER_LENGTH) {
+            malformedPackets.increment();
+            logger.warn("Received an image packet smaller than the required 9-byte header.");
+            return;
+        }
+        int imageId = bytes.getInt();
+        int imageType = bytes.getInt();
+        logger.trace("Received image packet: imageId={}, imageType={}, size={}", imageId, imageType, bytes.remaining());
+        byte[] imageData = new byte[bytes.remaining()];
+        bytes.get(imageData);
+        messageHandler.onImagePacket(imageId, imageType, imageData);
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.ceakins.zello.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single, process-wide daemon scheduler for the SDK's lightweight periodic housekeeping tasks,
+ * such as expiring stale pending state. Sharing one thread keeps the thread count flat no matter
+ * how many channels are open. Tasks scheduled here must be short and must never block; work they
+ * trigger that may block or call into application code is handed to {@link #callbacks()}.
+ */
+public final class ZelloScheduler {
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+    private static final ExecutorService CALLBACKS = createCallbackExecutor();
+
+    private ZelloScheduler() {
+        // This is a holder class and should not be instantiated.
+    }
+
+    public static ScheduledExecutorService get() {
+        return EXECUTOR;
+    }
+
+    /**
+     * @return A shared pool for work handed off by scheduled tasks that may block or call listeners, such
+     * as ending an idle stream. Threads are started as needed and exit after a minute idle.
+     */
+    public static ExecutorService callbacks() {
+        return CALLBACKS;
+    }
+
+    private static ExecutorService createCallbackExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("Zello-Callback-Thread-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("Zello-Scheduler-Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+}
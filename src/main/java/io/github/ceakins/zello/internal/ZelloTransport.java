@@ -0,0 +1,68 @@
+package io.github.ceakins.zello.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A WebSocket connection to a Zello server. Implementations decode incoming frames with a
+ * {@link ZelloPacketDispatcher} and report connection events to a {@link ZelloMessageHandler}.
+ *
+ * @see WebSocketClientFactory
+ */
+public interface ZelloTransport {
+
+    int PACKET_TYPE_AUDIO = 0x01;
+    int PACKET_TYPE_IMAGE = 0x02;
+
+    /**
+     * Starts connecting without blocking. {@link ZelloMessageHandler#onOpen()} is called once the
+     * handshake completes, or {@link ZelloMessageHandler#onClose(String)} if it fails.
+     */
+    void connect();
+
+    /**
+     * Starts the closing handshake. {@link ZelloMessageHandler#onClose(String)} is called once closed.
+     */
+    void close();
+
+    /**
+     * Closes the connection immediately, without a closing handshake, for a connection that is no longer
+     * responding. {@link ZelloMessageHandler#onClose(String)} is called with the given reason.
+     */
+    void abort(String reason);
+
+    boolean isOpen();
+
+    /**
+     * @return true if messages handed to {@link #send} have not all been written to the network yet.
+     */
+    boolean hasBufferedData();
+
+    void send(String text);
+
+    /**
+     * Sends a binary message. The array must not be modified afterwards, since it may be written later.
+     */
+    void send(byte[] data);
+
+    /**
+     * Sends a ping control frame. The server's pong, carrying the same payload, is reported to
+     * {@link ZelloMessageHandler#onPong(ByteBuffer)}.
+     */
+    void sendPing(byte[] payload);
+
+    /**
+     * @see ZelloPacketDispatcher#registerBinaryHandler(int, BinaryPacketHandler)
+     */
+    void registerBinaryHandler(int type, BinaryPacketHandler handler);
+
+    /**
+     * @return The number of binary packets skipped because no handler was registered for their type.
+     */
+    long getUnknownPacketCount();
+
+    /**
+     * @return The number of binary packets skipped because they were too short for their type's header.
+     */
+    long getMalformedPacketCount();
+
+}
@@ -1,27 +1,106 @@
 package io.github.ceakins.zello.internal;
 
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.NoopZelloMetrics;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
 import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.ServerHandshake;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Iterator;
 import java.util.Map;
 
-public class ZelloWebSocketClient extends WebSocketClient {
+/**
+ * The default transport, built on the Java-WebSocket library. Each connection runs its own read and
+ * write threads. Supports permessage-deflate compression of text messages.
+ */
+public class ZelloWebSocketClient extends WebSocketClient implements ZelloTransport {
 
     private static final Logger logger = LoggerFactory.getLogger(ZelloWebSocketClient.class);
+
     private final ZelloMessageHandler messageHandler;
+    private final ZelloMetrics metrics;
+    private final ZelloPacketDispatcher dispatcher;
+    private final boolean compressionOffered;
+    // Text frames are compressed when they are queued, so queueing must happen in compression order.
+    private final Object textSendLock = new Object();
 
     public ZelloWebSocketClient(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler) {
-        super(serverUri, httpHeaders);
+        this(serverUri, httpHeaders, messageHandler, NoopZelloMetrics.INSTANCE);
+    }
+
+    public ZelloWebSocketClient(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics) {
+        this(serverUri, httpHeaders, messageHandler, metrics, null);
+    }
+
+    /**
+     * @param compression The permessage-deflate settings to offer the server, or null to disable compression.
+     */
+    public ZelloWebSocketClient(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler, ZelloMetrics metrics, CompressionConfig compression) {
+        super(serverUri, compression == null ? new Draft_6455() : new Draft_6455(new DeflateExtension(compression, metrics)), httpHeaders);
         this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        this.dispatcher = new ZelloPacketDispatcher(messageHandler, metrics);
+        this.compressionOffered = compression != null;
+    }
+
+    @Override
+    public void registerBinaryHandler(int type, BinaryPacketHandler handler) {
+        dispatcher.registerBinaryHandler(type, handler);
+    }
+
+    @Override
+    public long getUnknownPacketCount() {
+        return dispatcher.getUnknownPacketCount();
+    }
+
+    @Override
+    public long getMalformedPacketCount() {
+        return dispatcher.getMalformedPacketCount();
+    }
+
+    @Override
+    public void send(String text) {
+        if (compressionOffered) {
+            synchronized (textSendLock) {
+                super.send(text);
+            }
+        } else {
+            super.send(text);
+        }
+        metrics.recordTextOut(text.length());
+    }
+
+    @Override
+    public void send(byte[] data) {
+        super.send(data);
+        metrics.recordPacketOut(data.length);
+    }
+
+    @Override
+    public void sendPing(byte[] payload) {
+        PingFrame ping = new PingFrame();
+        ping.setPayload(ByteBuffer.wrap(payload));
+        sendFrame(ping);
+    }
+
+    @Override
+    public void abort(String reason) {
+        closeConnection(CloseFrame.ABNORMAL_CLOSE, reason);
+    }
+
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata frame) {
+        messageHandler.onPong(frame.getPayloadData());
     }
 
     @Override
@@ -39,43 +118,20 @@ public class ZelloWebSocketClient extends WebSocketClient {
     @Override
     public void onOpen(ServerHandshake handshakedata) {
         logger.info("WebSocket connection opened to {}", uri);
+        if (compressionOffered && !(((Draft_6455) getDraft()).getExtension() instanceof DeflateExtension)) {
+            logger.info("Server declined permessage-deflate; messages will be sent uncompressed.");
+        }
         messageHandler.onOpen();
     }
 
     @Override
     public void onMessage(String message) {
-        logger.debug("Received text message: {}", message);
-        try {
-            JSONObject jsonObject = new JSONObject(message);
-            if (jsonObject.has("command")) {
-                messageHandler.onServerCommand(JsonUtils.jsonToServerCommand(message));
-            } else {
-                messageHandler.onServerResponse(jsonObject);
-            }
-        } catch (Exception e) {
-            logger.error("Failed to parse server message: {}", message, e);
-            messageHandler.onError("Failed to parse server message", e);
-        }
+        dispatcher.onText(message);
     }
 
     @Override
     public void onMessage(ByteBuffer bytes) {
-        // --- FINAL CORRECTED HEADER PARSING ---
-        if (bytes.remaining() < 9) { // Header is now 9 bytes
-            logger.warn("Received a binary message smaller than the required 9-byte header.");
-            return;
-        }
-        // Ensure we read in Big-Endian (Network Byte Order)
-        bytes.order(ByteOrder.BIG_ENDIAN);
-
-        byte type = bytes.get();
-        int streamId = bytes.getInt();
-        int packetId = bytes.getInt();
-        logger.trace("Received audio packet: type={}, streamId={}, packetId={}, opusSize={}", type, streamId, packetId, bytes.remaining());
-
-        byte[] audioData = new byte[bytes.remaining()];
-        bytes.get(audioData);
-        messageHandler.onAudioPacket(streamId, audioData);
+        dispatcher.onBinary(bytes);
     }
 
     @Override
@@ -1,7 +1,9 @@
 package io.github.ceakins.zello.internal.audio;
 
+import io.github.ceakins.zello.internal.jfr.OpusCodecEvent;
+import io.github.ceakins.zello.metrics.NoopZelloMetrics;
+import io.github.ceakins.zello.metrics.ZelloMetrics;
 import org.lwjgl.system.MemoryStack;
-import org.lwjgl.util.opus.Opus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,108 +11,389 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.lwjgl.util.opus.Opus.*;
 
+/**
+ * Wraps the native Opus encoders and the per-stream decoders.
+ * <p>
+ * libopus codec state must not be used by two threads at once, so every codec has its own lock and
+ * no lock is shared between them. Each outgoing stream should encode with its own encoding session,
+ * which also starts every transmission from a fresh encoder state; the session-less {@link #encode}
+ * methods share one default encoder, created the first time they are called.
+ * <p>
+ * The encoder and every decoder own their native input and output buffers, which are allocated once
+ * and reused for every frame. Together with the overloads that encode and decode into caller-supplied
+ * arrays, this keeps the per-frame codec paths free of heap allocation.
+ * <p>
+ * Codec state lives off the Java heap, so the engine keeps count of its live codecs and an estimate of
+ * the native memory they hold: the size libopus reports for each codec state plus its direct buffers.
+ */
 public class AudioEngine implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(AudioEngine.class);
+    private static final long DECODER_BUFFER_BYTES = AudioConstants.MAX_OPUS_PACKET_SIZE + AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES;
+    private static final long ENCODER_BUFFER_BYTES = AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES + AudioConstants.MAX_OPUS_PACKET_SIZE;
 
-    private final ConcurrentHashMap<Integer, Long> decoders = new ConcurrentHashMap<>();
-    private final long encoder;
+    private static class Decoder {
+        private final long handle;
+        private final ByteBuffer opusInput = ByteBuffer.allocateDirect(AudioConstants.MAX_OPUS_PACKET_SIZE);
+        private final ByteBuffer pcmBytes = ByteBuffer.allocateDirect(AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES).order(ByteOrder.nativeOrder());
+        private final ShortBuffer pcmOutput = pcmBytes.asShortBuffer();
+        private boolean destroyed = false;
+
+        private Decoder(long handle) {
+            this.handle = handle;
+        }
+    }
+
+    private static class Encoder {
+        private final long handle;
+        private final ByteBuffer pcmBytes = ByteBuffer.allocateDirect(AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES).order(ByteOrder.nativeOrder());
+        private final ShortBuffer pcmInput = pcmBytes.asShortBuffer();
+        private final ByteBuffer opusOutput = ByteBuffer.allocateDirect(AudioConstants.MAX_OPUS_PACKET_SIZE);
+        private boolean destroyed = false;
+
+        private Encoder(long handle) {
+            this.handle = handle;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Decoder> decoders = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Encoder> encoders = new ConcurrentHashMap<>();
+    private final AtomicInteger nextEncodingSession = new AtomicInteger();
+    // Guards the creation of the default encoder and closing the engine.
+    private final Object defaultEncoderLock = new Object();
+    private volatile Encoder defaultEncoder;
+    private boolean closed = false;
+    private final ZelloMetrics metrics;
+    private final long decoderNativeBytes;
+    private final long encoderNativeBytes;
 
     public AudioEngine() {
+        this(NoopZelloMetrics.INSTANCE);
+    }
+
+    /**
+     * Constructs an AudioEngine that reports codec timings and decoder counts to the given metrics sink.
+     *
+     * @param metrics The metrics sink to record to.
+     */
+    public AudioEngine(ZelloMetrics metrics) {
+        this.metrics = metrics;
         logger.debug("Initializing AudioEngine...");
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer error = stack.mallocInt(1);
-            encoder = opus_encoder_create(AudioConstants.SAMPLE_RATE, AudioConstants.CHANNELS, OPUS_APPLICATION_VOIP, error);
-            if (error.get(0) != OPUS_OK) {
-                throw new IllegalStateException("Failed to create Opus encoder: " + opus_strerror(error.get(0)));
-            }
+        decoderNativeBytes = opus_decoder_get_size(AudioConstants.CHANNELS) + DECODER_BUFFER_BYTES;
+        encoderNativeBytes = opus_encoder_get_size(AudioConstants.CHANNELS) + ENCODER_BUFFER_BYTES;
+    }
+
+    /**
+     * Creates an encoder for one outgoing stream. The session's encoder is not shared with any other
+     * session, so streams encoded on different threads never contend.
+     *
+     * @return The session ID to pass to {@link #encode(int, byte[], byte[], int)}, or -1 if the encoder
+     * could not be created.
+     */
+    public int startEncodingSession() {
+        Encoder encoder = createEncoder();
+        if (encoder == null) {
+            return -1;
+        }
+        int session = nextEncodingSession.getAndIncrement();
+        encoders.put(session, encoder);
+        logger.debug("Opus encoder created for encoding session {}", session);
+        return session;
+    }
+
+    public void stopEncodingSession(int session) {
+        Encoder encoder = encoders.remove(session);
+        if (encoder != null) {
+            destroy(encoder);
+            logger.debug("Opus encoder destroyed for encoding session {}", session);
         }
-        logger.info("Opus encoder created successfully.");
     }
 
     public void startDecodingSession(int streamId) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             IntBuffer error = stack.mallocInt(1);
-            long decoder = opus_decoder_create(AudioConstants.SAMPLE_RATE, AudioConstants.CHANNELS, error);
+            long handle = opus_decoder_create(AudioConstants.SAMPLE_RATE, AudioConstants.CHANNELS, error);
             if (error.get(0) != OPUS_OK) {
                 logger.error("Failed to create Opus decoder for stream {}: {}", streamId, opus_strerror(error.get(0)));
                 return;
             }
-            decoders.put(streamId, decoder);
+            Decoder previous = decoders.put(streamId, new Decoder(handle));
+            if (previous != null) {
+                destroy(previous);
+            } else {
+                metrics.recordDecoderCreated();
+                metrics.recordNativeCodecMemory(decoderNativeBytes);
+            }
             logger.debug("Opus decoder created for stream {}", streamId);
         }
     }
 
     public void stopDecodingSession(int streamId) {
-        Long decoder = decoders.remove(streamId);
+        Decoder decoder = decoders.remove(streamId);
         if (decoder != null) {
-            opus_decoder_destroy(decoder);
+            destroy(decoder);
+            metrics.recordDecoderDestroyed();
+            metrics.recordNativeCodecMemory(-decoderNativeBytes);
             logger.debug("Opus decoder destroyed for stream {}", streamId);
         }
     }
 
+    /**
+     * @return The number of live decoders, one per incoming stream being decoded.
+     */
+    public int getDecoderCount() {
+        return decoders.size();
+    }
+
+    /**
+     * @return The number of live encoders: one per encoding session, plus the default encoder if it has
+     * been created, or 0 once the engine is closed.
+     */
+    public int getEncoderCount() {
+        Encoder encoder = defaultEncoder;
+        if (encoder == null) {
+            return encoders.size();
+        }
+        synchronized (encoder) {
+            return encoders.size() + (encoder.destroyed ? 0 : 1);
+        }
+    }
+
+    /**
+     * @return An estimate of the native memory held by the live decoders, in bytes.
+     */
+    public long getDecoderNativeBytes() {
+        return decoders.size() * decoderNativeBytes;
+    }
+
+    /**
+     * @return An estimate of the native memory held by the live encoders, in bytes.
+     */
+    public long getEncoderNativeBytes() {
+        return getEncoderCount() * encoderNativeBytes;
+    }
+
+    /**
+     * Decodes an Opus packet into a newly allocated PCM array.
+     *
+     * @return The decoded PCM data, or null if there is no decoder for the stream or decoding failed.
+     */
     public byte[] decode(int streamId, byte[] opusData) {
-        Long decoder = decoders.get(streamId);
+        byte[] pcmData = new byte[AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES];
+        int length = decode(streamId, ByteBuffer.wrap(opusData), pcmData);
+        return length < 0 ? null : Arrays.copyOf(pcmData, length);
+    }
+
+    /**
+     * Decodes an Opus packet without allocating.
+     *
+     * @param streamId The stream whose decoder to use.
+     * @param opusData The packet, from its position to its limit. The buffer's position is not changed.
+     * @param pcmOutput The array to write PCM to, at least {@link AudioConstants#MAX_DECODE_BUFFER_SIZE_BYTES} long.
+     * @return The number of PCM bytes written, or -1 if there is no decoder for the stream or decoding failed.
+     */
+    public int decode(int streamId, ByteBuffer opusData, byte[] pcmOutput) {
+        Decoder decoder = decoders.get(streamId);
         if (decoder == null) {
             logger.warn("Received audio for stream {}, but no decoder exists.", streamId);
-            return null;
+            return -1;
         }
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            ByteBuffer opusDataBuffer = stack.malloc(opusData.length);
-            opusDataBuffer.put(opusData).flip();
-
-            // --- CORRECTED: Allocate a buffer large enough for the MAXIMUM possible frame size ---
-            ByteBuffer pcmBytesBuffer = stack.malloc(AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES);
-            ShortBuffer pcmOutputBuffer = pcmBytesBuffer.asShortBuffer();
+        int opusLength = Math.min(opusData.remaining(), AudioConstants.MAX_OPUS_PACKET_SIZE);
+        synchronized (decoder) {
+            if (decoder.destroyed) {
+                return -1;
+            }
+            decoder.opusInput.clear();
+            decoder.opusInput.put(0, opusData, opusData.position(), opusLength);
+            decoder.opusInput.limit(opusLength);
+            decoder.pcmOutput.clear();
 
             // The opus_decode function will return the ACTUAL number of samples it decoded.
-            int samplesDecoded = opus_decode(decoder, opusDataBuffer, pcmOutputBuffer, AudioConstants.MAX_SAMPLES_PER_PACKET, 0);
+            OpusCodecEvent event = new OpusCodecEvent();
+            event.begin();
+            long start = System.nanoTime();
+            int samplesDecoded = opus_decode(decoder.handle, decoder.opusInput, decoder.pcmOutput, AudioConstants.MAX_SAMPLES_PER_PACKET, 0);
+            metrics.recordDecode(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "decode";
+                event.streamId = streamId;
+                event.session = -1;
+                event.inputBytes = opusLength;
+                event.outputBytes = Math.max(0, samplesDecoded) * AudioConstants.CHANNELS * 2;
+                event.commit();
+            }
             if (samplesDecoded < 0) {
                 logger.error("Opus decoding failed for stream {}: {}", streamId, opus_strerror(samplesDecoded));
-                return null;
+                return -1;
             }
 
-            int bytesDecoded = samplesDecoded * AudioConstants.CHANNELS * 2;
-            byte[] pcmBytes = new byte[bytesDecoded];
+            int bytesDecoded = Math.min(samplesDecoded * AudioConstants.CHANNELS * 2, pcmOutput.length);
+            decoder.pcmBytes.get(0, pcmOutput, 0, bytesDecoded);
+            return bytesDecoded;
+        }
+    }
+
+    /**
+     * Encodes one frame of PCM into a newly allocated Opus packet.
+     *
+     * @return The encoded packet, or null if encoding failed.
+     */
+    public byte[] encode(byte[] pcmData) {
+        byte[] opusData = new byte[AudioConstants.MAX_OPUS_PACKET_SIZE];
+        int length = encode(pcmData, opusData, 0);
+        return length < 0 ? null : Arrays.copyOf(opusData, length);
+    }
 
-            pcmBytesBuffer.limit(bytesDecoded);
-            pcmBytesBuffer.get(pcmBytes);
+    /**
+     * Encodes one frame of PCM with the default encoder, without allocating.
+     *
+     * @param pcmData The PCM frame, {@link AudioConstants#FRAME_SIZE_BYTES} long.
+     * @param opusOutput The array to write the encoded packet to.
+     * @param offset Where in the array to start writing.
+     * @return The number of bytes written, or -1 if encoding failed.
+     */
+    public int encode(byte[] pcmData, byte[] opusOutput, int offset) {
+        Encoder encoder = defaultEncoder();
+        return encoder == null ? -1 : encode(encoder, -1, pcmData, opusOutput, offset);
+    }
 
-            return pcmBytes;
+    /**
+     * Encodes one frame of PCM with an encoding session's encoder, without allocating.
+     *
+     * @param session The session from {@link #startEncodingSession()}.
+     * @return The number of bytes written, or -1 if the session does not exist or encoding failed.
+     * @see #encode(byte[], byte[], int)
+     */
+    public int encode(int session, byte[] pcmData, byte[] opusOutput, int offset) {
+        Encoder encoder = encoders.get(session);
+        if (encoder == null) {
+            logger.warn("Cannot encode for encoding session {}, which does not exist.", session);
+            return -1;
         }
+        return encode(encoder, session, pcmData, opusOutput, offset);
     }
 
-    public byte[] encode(byte[] pcmData) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            ByteBuffer pcmBytesBuffer = stack.malloc(pcmData.length);
-            pcmBytesBuffer.put(pcmData);
-            pcmBytesBuffer.flip();
-            ShortBuffer pcmInputBuffer = pcmBytesBuffer.order(ByteOrder.nativeOrder()).asShortBuffer();
-            ByteBuffer opusOutputBuffer = stack.malloc(AudioConstants.MAX_OPUS_PACKET_SIZE);
-            int bytesEncoded = opus_encode(encoder, pcmInputBuffer, AudioConstants.SAMPLES_PER_FRAME, opusOutputBuffer);
+    private int encode(Encoder encoder, int session, byte[] pcmData, byte[] opusOutput, int offset) {
+        synchronized (encoder) {
+            if (encoder.destroyed) {
+                return -1;
+            }
+            int pcmLength = Math.min(pcmData.length, encoder.pcmBytes.capacity());
+            encoder.pcmBytes.put(0, pcmData, 0, pcmLength);
+            encoder.pcmInput.clear().limit(pcmLength / 2);
+            encoder.opusOutput.clear().limit(Math.min(encoder.opusOutput.capacity(), opusOutput.length - offset));
+            OpusCodecEvent event = new OpusCodecEvent();
+            event.begin();
+            long start = System.nanoTime();
+            int bytesEncoded = opus_encode(encoder.handle, encoder.pcmInput, AudioConstants.SAMPLES_PER_FRAME, encoder.opusOutput);
+            metrics.recordEncode(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "encode";
+                event.streamId = -1;
+                event.session = session;
+                event.inputBytes = pcmData.length;
+                event.outputBytes = Math.max(0, bytesEncoded);
+                event.commit();
+            }
             if (bytesEncoded < 0) {
                 logger.error("Opus encoding failed: {}", opus_strerror(bytesEncoded));
-                return null;
+                return -1;
             }
-            byte[] opusBytes = new byte[bytesEncoded];
-            opusOutputBuffer.get(opusBytes);
-            return opusBytes;
+            encoder.opusOutput.get(0, opusOutput, offset, bytesEncoded);
+            return bytesEncoded;
         }
     }
 
     @Override
     public void close() {
         logger.debug("Closing AudioEngine and destroying all active codecs...");
-        opus_encoder_destroy(encoder);
-        logger.info("Opus encoder destroyed.");
-        decoders.values().forEach(Opus::opus_decoder_destroy);
-        decoders.clear();
+        Encoder encoder;
+        synchronized (defaultEncoderLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            encoder = defaultEncoder;
+        }
+        if (encoder != null) {
+            destroy(encoder);
+        }
+        for (Integer session : encoders.keySet()) {
+            stopEncodingSession(session);
+        }
+        logger.info("All Opus encoders destroyed.");
+        for (Integer streamId : decoders.keySet()) {
+            stopDecodingSession(streamId);
+        }
         logger.info("All active Opus decoders destroyed.");
     }
 
-}
\ No newline at end of file
+    /**
+     * @return The default encoder, created on first use, or null if the engine is closed or the encoder
+     * could not be created.
+     */
+    private Encoder defaultEncoder() {
+        Encoder encoder = defaultEncoder;
+        if (encoder != null) {
+            return encoder;
+        }
+        synchronized (defaultEncoderLock) {
+            if (closed) {
+                return null;
+            }
+            if (defaultEncoder == null) {
+                defaultEncoder = createEncoder();
+                if (defaultEncoder != null) {
+                    logger.debug("Default Opus encoder created.");
+                }
+            }
+            return defaultEncoder;
+        }
+    }
+
+    private Encoder createEncoder() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer error = stack.mallocInt(1);
+            long handle = opus_encoder_create(AudioConstants.SAMPLE_RATE, AudioConstants.CHANNELS, OPUS_APPLICATION_VOIP, error);
+            if (error.get(0) != OPUS_OK) {
+                logger.error("Failed to create Opus encoder: {}", opus_strerror(error.get(0)));
+                return null;
+            }
+            metrics.recordNativeCodecMemory(encoderNativeBytes);
+            return new Encoder(handle);
+        }
+    }
+
+    /**
+     * @return false if the encoder had already been destroyed.
+     */
+    private boolean destroy(Encoder encoder) {
+        synchronized (encoder) {
+            if (encoder.destroyed) {
+                return false;
+            }
+            encoder.destroyed = true;
+            opus_encoder_destroy(encoder.handle);
+        }
+        metrics.recordNativeCodecMemory(-encoderNativeBytes);
+        return true;
+    }
+
+    private static void destroy(Decoder decoder) {
+        synchronized (decoder) {
+            if (!decoder.destroyed) {
+                decoder.destroyed = true;
+                opus_decoder_destroy(decoder.handle);
+            }
+        }
+    }
+
+}
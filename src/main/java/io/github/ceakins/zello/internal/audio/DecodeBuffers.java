@@ -0,0 +1,37 @@
+package io.github.ceakins.zello.internal.audio;
+
+import java.util.Arrays;
+
+/**
+ * The scratch arrays used to decode incoming audio and hand it to listeners. Each thread that decodes
+ * owns one set, so decoding needs no locking and allocates nothing when buffers are reused.
+ */
+public class DecodeBuffers {
+
+    private final byte[] decodeBuffer = new byte[AudioConstants.MAX_DECODE_BUFFER_SIZE_BYTES];
+    private byte[] listenerBuffer = new byte[AudioConstants.FRAME_SIZE_BYTES];
+
+    /**
+     * @return The array to decode into, {@link AudioConstants#MAX_DECODE_BUFFER_SIZE_BYTES} long.
+     */
+    public byte[] getDecodeBuffer() {
+        return decodeBuffer;
+    }
+
+    /**
+     * Returns the first {@code length} decoded bytes in the array handed to listeners.
+     *
+     * @param reuse Whether to copy into an array reused for every frame instead of a fresh one.
+     */
+    public byte[] listenerCopy(int length, boolean reuse) {
+        if (!reuse) {
+            return Arrays.copyOf(decodeBuffer, length);
+        }
+        if (listenerBuffer.length != length) {
+            listenerBuffer = new byte[length];
+        }
+        System.arraycopy(decodeBuffer, 0, listenerBuffer, 0, length);
+        return listenerBuffer;
+    }
+
+}
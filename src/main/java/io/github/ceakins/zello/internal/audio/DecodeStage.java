@@ -0,0 +1,141 @@
+package io.github.ceakins.zello.internal.audio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decodes incoming audio on a fixed set of worker threads instead of the WebSocket read thread.
+ * <p>
+ * Work is striped by stream ID: every task for a stream runs on the same worker, in submission order,
+ * so a stream's decoder is only ever used by one thread and its frames reach listeners in order, while
+ * different streams decode in parallel. Each worker has a bounded queue and its own {@link DecodeBuffers}.
+ */
+public class DecodeStage implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecodeStage.class);
+
+    /**
+     * A unit of work for one stream.
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run(DecodeBuffers buffers);
+    }
+
+    private class Worker extends Thread {
+        private final BlockingQueue<Task> queue;
+        private final DecodeBuffers buffers = new DecodeBuffers();
+
+        Worker(String name, int queueCapacity) {
+            super(name);
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    // Once closed, the worker runs what is left in its queue and exits.
+                    task = closed ? queue.poll() : queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (task == null) {
+                    return;
+                }
+                // An interrupt from close() is only meant to wake an idle worker.
+                Thread.interrupted();
+                try {
+                    task.run(buffers);
+                } catch (RuntimeException e) {
+                    logger.error("Decode task failed", e);
+                }
+            }
+        }
+    }
+
+    private final Worker[] workers;
+    private volatile boolean closed = false;
+
+    /**
+     * @param name A name for the worker threads.
+     * @param threads The number of worker threads.
+     * @param queueCapacity How many tasks each worker may have queued.
+     */
+    public DecodeStage(String name, int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1: " + queueCapacity);
+        }
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker("Zello-Decode-" + name + "-" + i, queueCapacity);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a task for a stream if its worker has room.
+     *
+     * @return false if the worker's queue is full or the stage is closed, in which case the task is dropped.
+     */
+    public boolean submit(int streamId, Task task) {
+        return !closed && worker(streamId).queue.offer(task);
+    }
+
+    /**
+     * Queues a task that must not be lost, such as releasing a decoder, waiting for room if necessary.
+     * Ignored once the stage is closed.
+     */
+    public void execute(int streamId, Task task) {
+        if (closed) {
+            return;
+        }
+        try {
+            worker(streamId).queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    /**
+     * @return The number of tasks queued for all workers.
+     */
+    public int getQueuedTaskCount() {
+        int queued = 0;
+        for (Worker worker : workers) {
+            queued += worker.queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Stops the workers once they have run the tasks already queued, such as releasing decoders. Does not
+     * wait for them. Tasks submitted afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private Worker worker(int streamId) {
+        // Stream IDs are usually sequential; mixing the bits keeps any pattern in them from skewing the stripes.
+        int hash = streamId * 0x9E3779B9;
+        return workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)];
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.github.ceakins.zello.internal.audio;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A pool of fixed-size PCM frame arrays, so that audio flowing between threads does not allocate
+ * a new array per frame. Acquiring from an empty pool allocates, and releasing into a full pool
+ * lets the array be garbage collected, so the pool never blocks and never grows without bound.
+ */
+public class FramePool {
+
+    private final int frameSize;
+    private final ArrayBlockingQueue<byte[]> free;
+
+    /**
+     * @param frameSize The size in bytes of every frame in the pool.
+     * @param capacity The maximum number of idle frames retained.
+     */
+    public FramePool(int frameSize, int capacity) {
+        this.frameSize = frameSize;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return A frame of {@code frameSize} bytes with undefined contents.
+     */
+    public byte[] acquire() {
+        byte[] frame = free.poll();
+        return frame != null ? frame : new byte[frameSize];
+    }
+
+    /**
+     * Returns a frame to the pool. Frames of a different size are ignored.
+     */
+    public void release(byte[] frame) {
+        if (frame.length == frameSize) {
+            free.offer(frame);
+        }
+    }
+
+    public int getIdleCount() {
+        return free.size();
+    }
+
+}
@@ -0,0 +1,189 @@
+package io.github.ceakins.zello.internal.audio;
+
+/**
+ * A bounded jitter buffer that sits between the network and the speaker line.
+ * <p>
+ * Decoded PCM is written in whatever chunk sizes the decoder produces, and the playout thread reads
+ * it back one 20ms frame at a time. The buffer primes itself to the target depth before it starts
+ * playing, inserts silence when it runs dry (an underrun), drops the oldest audio when it is full
+ * (an overrun), and drops quiet frames when it drifts above the target so that latency stays close
+ * to the configured value instead of slowly accumulating.
+ * <p>
+ * All methods are thread-safe. The internal ring is allocated once and never grows.
+ */
+public class PlayoutBuffer {
+
+    private static final double QUIET_FRAME_RMS = 0.01;
+
+    private final byte[] ring;
+    private final int frameBytes;
+    private final int targetBytes;
+    private final int highWatermarkBytes;
+    private int readPos = 0;
+    private int size = 0;
+    private boolean primed = false;
+    private boolean draining = false;
+
+    private long underrunCount = 0;
+    private long overrunCount = 0;
+    private long droppedFrameCount = 0;
+    private long insertedSilenceFrameCount = 0;
+
+    /**
+     * Constructs a playout buffer for 16-bit mono PCM at {@link AudioConstants#SAMPLE_RATE}.
+     *
+     * @param targetLatencyMs The depth the buffer primes to and tries to hold while playing.
+     * @param latencyToleranceMs How far above the target the buffer may drift before quiet frames are dropped.
+     * @param maxLatencyMs The hard capacity of the buffer. Audio beyond this is discarded as an overrun.
+     */
+    public PlayoutBuffer(int targetLatencyMs, int latencyToleranceMs, int maxLatencyMs) {
+        if (targetLatencyMs < 0 || latencyToleranceMs < 0 || maxLatencyMs < targetLatencyMs + AudioConstants.FRAME_DURATION_MS) {
+            throw new IllegalArgumentException("maxLatencyMs must be at least one frame larger than targetLatencyMs.");
+        }
+        this.frameBytes = AudioConstants.FRAME_SIZE_BYTES;
+        this.targetBytes = msToBytes(targetLatencyMs);
+        this.highWatermarkBytes = msToBytes(targetLatencyMs + latencyToleranceMs);
+        this.ring = new byte[msToBytes(maxLatencyMs)];
+    }
+
+    /**
+     * Appends decoded PCM to the buffer. If there is not enough room, the oldest audio is discarded.
+     */
+    public synchronized void write(byte[] pcmData, int offset, int length) {
+        if (length > ring.length) {
+            offset += length - ring.length;
+            length = ring.length;
+        }
+        int overflow = size + length - ring.length;
+        if (overflow > 0) {
+            int dropBytes = roundUpToFrame(overflow);
+            skip(Math.min(dropBytes, size));
+            overrunCount++;
+        }
+        int writePos = (readPos + size) % ring.length;
+        int firstPart = Math.min(length, ring.length - writePos);
+        System.arraycopy(pcmData, offset, ring, writePos, firstPart);
+        System.arraycopy(pcmData, offset + firstPart, ring, 0, length - firstPart);
+        size += length;
+        draining = false;
+    }
+
+    /**
+     * Fills {@code frame} with exactly one frame of audio to be played next.
+     * The array must be at least {@link AudioConstants#FRAME_SIZE_BYTES} long.
+     *
+     * @return true if real audio was produced, false if the frame is (entirely or partly) inserted silence.
+     */
+    public synchronized boolean read(byte[] frame) {
+        if (!primed) {
+            if (size > 0 && (size >= targetBytes || draining)) {
+                primed = true;
+            } else {
+                fillSilence(frame, 0);
+                return false;
+            }
+        }
+
+        // Adaptive time-stretching: shed one quiet frame per read while we are above the high watermark.
+        if (size - frameBytes >= highWatermarkBytes && isQuietFrame(readPos)) {
+            skip(frameBytes);
+            droppedFrameCount++;
+        }
+
+        if (size >= frameBytes) {
+            copyOut(frame, frameBytes);
+            return true;
+        }
+
+        int available = size;
+        copyOut(frame, available);
+        fillSilence(frame, available);
+        primed = false;
+        if (draining) {
+            draining = false;
+        } else {
+            underrunCount++;
+            insertedSilenceFrameCount++;
+        }
+        return false;
+    }
+
+    /**
+     * Signals that the current stream has ended. Whatever is buffered is played out without being
+     * counted as an underrun, and the buffer then re-primes for the next stream.
+     */
+    public synchronized void endOfStream() {
+        draining = true;
+    }
+
+    /**
+     * Discards all buffered audio.
+     */
+    public synchronized void clear() {
+        readPos = 0;
+        size = 0;
+        primed = false;
+        draining = false;
+    }
+
+    public synchronized int getBufferedMs() {
+        return size * 1000 / (AudioConstants.SAMPLE_RATE * AudioConstants.CHANNELS * 2);
+    }
+
+    public synchronized long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    public synchronized long getOverrunCount() {
+        return overrunCount;
+    }
+
+    public synchronized long getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    public synchronized long getInsertedSilenceFrameCount() {
+        return insertedSilenceFrameCount;
+    }
+
+    private void copyOut(byte[] frame, int length) {
+        int firstPart = Math.min(length, ring.length - readPos);
+        System.arraycopy(ring, readPos, frame, 0, firstPart);
+        System.arraycopy(ring, 0, frame, firstPart, length - firstPart);
+        skip(length);
+    }
+
+    private void skip(int length) {
+        readPos = (readPos + length) % ring.length;
+        size -= length;
+    }
+
+    private void fillSilence(byte[] frame, int from) {
+        for (int i = from; i < frameBytes; i++) {
+            frame[i] = 0;
+        }
+    }
+
+    private boolean isQuietFrame(int position) {
+        long sumOfSquares = 0;
+        int samples = frameBytes / 2;
+        for (int i = 0; i < samples; i++) {
+            int lo = ring[(position + i * 2) % ring.length] & 0xFF;
+            int hi = ring[(position + i * 2 + 1) % ring.length];
+            int sample = (hi << 8) | lo;
+            sumOfSquares += (long) sample * sample;
+        }
+        double rms = Math.sqrt((double) sumOfSquares / samples) / 32768.0;
+        return rms < QUIET_FRAME_RMS;
+    }
+
+    private int roundUpToFrame(int bytes) {
+        return ((bytes + frameBytes - 1) / frameBytes) * frameBytes;
+    }
+
+    private static int msToBytes(int ms) {
+        int frames = (ms + AudioConstants.FRAME_DURATION_MS - 1) / AudioConstants.FRAME_DURATION_MS;
+        return frames * AudioConstants.FRAME_SIZE_BYTES;
+    }
+
+}
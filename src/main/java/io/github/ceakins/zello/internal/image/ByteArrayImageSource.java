@@ -0,0 +1,27 @@
+package io.github.ceakins.zello.internal.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * An {@link ImageSource} backed by an in-memory byte array.
+ */
+public class ByteArrayImageSource implements ImageSource {
+
+    private final byte[] data;
+
+    public ByteArrayImageSource(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public long length() {
+        return data.length;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data);
+    }
+
+}
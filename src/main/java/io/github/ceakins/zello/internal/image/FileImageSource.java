@@ -0,0 +1,57 @@
+package io.github.ceakins.zello.internal.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An {@link ImageSource} backed by a file, streamed from disk on demand.
+ */
+public class FileImageSource implements ImageSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileImageSource.class);
+
+    private final Path path;
+    private final long length;
+    private final boolean deleteOnRelease;
+
+    /**
+     * @param path The file containing the JPEG data.
+     * @param deleteOnRelease Whether the file is a temporary spool file that should be deleted once released.
+     */
+    public FileImageSource(Path path, boolean deleteOnRelease) throws IOException {
+        this.path = path;
+        this.length = Files.size(path);
+        this.deleteOnRelease = deleteOnRelease;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void release() {
+        if (deleteOnRelease) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete temporary image file {}", path, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package io.github.ceakins.zello.internal.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Prepares JPEG images for upload without ever holding a full-resolution bitmap in memory.
+ * <p>
+ * Image dimensions are read from the JPEG header alone. The thumbnail is produced from a
+ * subsampled decode ({@link ImageReadParam#setSourceSubsampling}) followed by a few bilinear
+ * halving steps, which is both much faster and sharper than {@code getScaledInstance(SCALE_SMOOTH)}.
+ * When a byte budget is set, oversized images are re-encoded at decreasing quality and,
+ * if necessary, decreasing resolution until they fit.
+ */
+public class ImagePreparer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreparer.class);
+
+    public static final int DEFAULT_THUMBNAIL_WIDTH = 100;
+    private static final float THUMBNAIL_QUALITY = 0.8f;
+    private static final float[] REENCODE_QUALITIES = {0.85f, 0.7f, 0.55f, 0.4f};
+    private static final int MAX_REENCODE_SUBSAMPLING = 64;
+
+    private final int thumbnailWidth;
+    private final int maxImageBytes;
+
+    /**
+     * @param thumbnailWidth The width in pixels of generated thumbnails. Height follows the aspect ratio.
+     * @param maxImageBytes The byte budget for the full image, or 0 to always send the original bytes.
+     */
+    public ImagePreparer(int thumbnailWidth, int maxImageBytes) {
+        this.thumbnailWidth = thumbnailWidth;
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    /**
+     * Prepares an image for upload.
+     *
+     * @param jpegData The encoded JPEG image.
+     * @return The dimensions, thumbnail and full image data to send.
+     * @throws IOException if the data cannot be decoded or re-encoded.
+     */
+    public PreparedImage prepare(byte[] jpegData) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(jpegData))) {
+            return prepare(input, new ByteArrayImageSource(jpegData));
+        }
+    }
+
+    /**
+     * Prepares an image stored in a file. The file is streamed rather than loaded into memory, and unless
+     * it has to be re-encoded, the returned source streams the full image straight from the file again.
+     *
+     * @param path The file containing the JPEG image.
+     * @param deleteOnRelease Whether the file is a temporary spool file to delete once the upload is done.
+     * @return The dimensions, thumbnail and full image source to send.
+     * @throws IOException if the file cannot be read, decoded or re-encoded.
+     */
+    public PreparedImage prepare(Path path, boolean deleteOnRelease) throws IOException {
+        FileImageSource original = new FileImageSource(path, deleteOnRelease);
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            PreparedImage prepared = prepare(input, original);
+            if (prepared.getFullImage() != original) {
+                original.release();
+            }
+            return prepared;
+        } catch (IOException | RuntimeException e) {
+            original.release();
+            throw e;
+        }
+    }
+
+    private PreparedImage prepare(ImageInputStream input, ImageSource original) throws IOException {
+        long start = System.nanoTime();
+        ImageReader reader = openReader(input);
+        try {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            byte[] thumbnailData = encodeJpeg(createThumbnail(reader, width, height), THUMBNAIL_QUALITY);
+
+            ImageSource fullImage = original;
+            int fullWidth = width;
+            int fullHeight = height;
+            if (maxImageBytes > 0 && original.length() > maxImageBytes) {
+                BufferedImage reencoded = null;
+                byte[] fullImageData = null;
+                for (int subsampling = initialSubsampling(original.length()); subsampling <= MAX_REENCODE_SUBSAMPLING; subsampling *= 2) {
+                    reencoded = readSubsampled(reader, subsampling);
+                    fullImageData = encodeWithinBudget(reencoded);
+                    if (fullImageData != null) {
+                        break;
+                    }
+                }
+                if (fullImageData == null) {
+                    throw new IOException("Could not re-encode image to fit within " + maxImageBytes + " bytes.");
+                }
+                fullWidth = reencoded.getWidth();
+                fullHeight = reencoded.getHeight();
+                fullImage = new ByteArrayImageSource(fullImageData);
+                logger.debug("Re-encoded image from {} to {} bytes ({}x{} -> {}x{})", original.length(), fullImageData.length, width, height, fullWidth, fullHeight);
+            }
+            logger.debug("Prepared {}x{} image in {} ms", fullWidth, fullHeight, (System.nanoTime() - start) / 1_000_000);
+            return new PreparedImage(fullWidth, fullHeight, thumbnailData, fullImage);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private BufferedImage createThumbnail(ImageReader reader, int width, int height) throws IOException {
+        int targetWidth = Math.min(thumbnailWidth, width);
+        int targetHeight = Math.max(1, (int) ((double) height / (double) width * targetWidth));
+        // Subsample so the decoded image is between one and two times the thumbnail size, then finish with bilinear steps.
+        int subsampling = Math.max(1, width / (targetWidth * 2));
+        BufferedImage image = readSubsampled(reader, subsampling);
+        return downscale(image, targetWidth, targetHeight);
+    }
+
+    /**
+     * Downscales by repeated halving with bilinear interpolation. Each step reduces by at most 2x,
+     * so bilinear sampling never skips source pixels and the result stays free of aliasing.
+     */
+    static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeWithinBudget(BufferedImage image) throws IOException {
+        for (float quality : REENCODE_QUALITIES) {
+            byte[] encoded = encodeJpeg(image, quality);
+            if (encoded.length <= maxImageBytes) {
+                return encoded;
+            }
+        }
+        return null;
+    }
+
+    private int initialSubsampling(long originalBytes) {
+        // JPEG size scales roughly with pixel count, so start near the square root of the overshoot.
+        int subsampling = 1;
+        while (subsampling * 2 <= Math.sqrt((double) originalBytes / maxImageBytes)) {
+            subsampling *= 2;
+        }
+        return subsampling;
+    }
+
+    private static BufferedImage readSubsampled(ImageReader reader, int subsampling) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+    }
+
+    private static ImageReader openReader(ImageInputStream input) throws IOException {
+        if (input == null) {
+            throw new IOException("Could not decode provided image data.");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Could not decode provided image data.");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, false, true);
+        return reader;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        BufferedImage rgb = image;
+        if (image.getColorModel().hasAlpha()) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            try {
+                graphics.drawImage(image, 0, 0, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream();
+             ImageOutputStream output = ImageIO.createImageOutputStream(os)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+            output.flush();
+            return os.toByteArray();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+}
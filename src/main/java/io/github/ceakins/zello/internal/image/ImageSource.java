@@ -0,0 +1,28 @@
+package io.github.ceakins.zello.internal.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The full-size image data of an outgoing image, which can be streamed without being held in memory.
+ */
+public interface ImageSource {
+
+    /**
+     * @return The size of the image data in bytes.
+     */
+    long length();
+
+    /**
+     * Opens a new stream over the image data. The caller is responsible for closing it.
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Releases any resources held by this source, such as a temporary spool file.
+     * Called once the upload has finished, failed or expired.
+     */
+    default void release() {
+    }
+
+}
@@ -0,0 +1,87 @@
+package io.github.ceakins.zello.internal.image;
+
+import io.github.ceakins.zello.internal.OutboundScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streams image data to the server as a series of bounded binary packets.
+ * <p>
+ * Data is read from the source one packet at a time and handed to the {@link OutboundScheduler} as bulk
+ * traffic, which accepts the next packet only once the previous one has been sent. Memory use therefore
+ * stays at roughly one packet per upload regardless of the image size, and voice frames and commands
+ * are interleaved between packets rather than waiting behind the whole image.
+ */
+public class ImageUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploader.class);
+
+    public static final int IMAGE_TYPE_FULL = 0x01;
+    public static final int IMAGE_TYPE_THUMBNAIL = 0x02;
+    private static final int HEADER_SIZE = 9;
+
+    private final int maxPacketSize;
+    private final long stallTimeoutMs;
+
+    /**
+     * @param maxPacketSize The maximum size of a single binary packet, including its 9-byte header.
+     * @param stallTimeoutMs How long to wait for the previous packet to be sent before giving up.
+     */
+    public ImageUploader(int maxPacketSize, long stallTimeoutMs) {
+        this.maxPacketSize = maxPacketSize;
+        this.stallTimeoutMs = stallTimeoutMs;
+    }
+
+    /**
+     * Uploads the thumbnail followed by the full image. Blocks the calling thread until every packet
+     * has been handed to the scheduler.
+     *
+     * @throws IOException if the source cannot be read, the connection closes, or sending stalls.
+     */
+    public void upload(OutboundScheduler outbound, int imageId, byte[] thumbnailData, ImageSource fullImage) throws IOException {
+        long start = System.nanoTime();
+        byte[] chunk = new byte[maxPacketSize - HEADER_SIZE];
+        int packets = sendChunked(outbound, imageId, IMAGE_TYPE_THUMBNAIL, new ByteArrayInputStream(thumbnailData), chunk);
+        try (InputStream input = fullImage.openStream()) {
+            packets += sendChunked(outbound, imageId, IMAGE_TYPE_FULL, input, chunk);
+        }
+        logger.debug("Uploaded image {} ({} + {} bytes) in {} packets, {} ms", imageId, thumbnailData.length, fullImage.length(),
+                packets, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int sendChunked(OutboundScheduler outbound, int imageId, int imageType, InputStream input, byte[] chunk) throws IOException {
+        int packets = 0;
+        int read;
+        while ((read = input.readNBytes(chunk, 0, chunk.length)) > 0) {
+            boolean sent;
+            try {
+                sent = outbound.sendBulk(createImagePacket(imageId, imageType, chunk, read), stallTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during upload of image " + imageId, e);
+            }
+            if (!sent) {
+                throw new IOException("Upload of image " + imageId + " failed: connection closed or send stalled.");
+            }
+            packets++;
+        }
+        return packets;
+    }
+
+    static byte[] createImagePacket(int imageId, int imageType, byte[] data, int length) {
+        ByteBuffer packet = ByteBuffer.allocate(HEADER_SIZE + length);
+        packet.order(ByteOrder.BIG_ENDIAN);
+        packet.put((byte) 0x02);
+        packet.putInt(imageId);
+        packet.putInt(imageType);
+        packet.put(data, 0, length);
+        return packet.array();
+    }
+
+}
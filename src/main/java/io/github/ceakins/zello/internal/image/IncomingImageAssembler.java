@@ -0,0 +1,186 @@
+package io.github.ceakins.zello.internal.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reassembles incoming images from the binary packets that follow an {@code on_image} event.
+ * <p>
+ * Packets are keyed by {@code image_id} and image type (thumbnail or full image). The server does not
+ * announce the image size, so a part is considered complete when its data ends with the JPEG
+ * end-of-image marker ({@code 0xFF 0xD9}). Entropy-coded data never contains that marker, but APP
+ * segments can: an embedded EXIF thumbnail ends with its own. If a packet happens to end exactly there,
+ * the part is completed early with truncated data and the rest of it is ignored.
+ * <p>
+ * Per-image size is capped, as is the total size of all images still being reassembled, and parts that
+ * stop receiving data are expired.
+ */
+public class IncomingImageAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncomingImageAssembler.class);
+    private static final int JPEG_END_OF_IMAGE = 0xFFD9;
+
+    /**
+     * A fully reassembled thumbnail or full image.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CompletedImage {
+        private final int imageId;
+        private final boolean thumbnail;
+        private final String from;
+        private final byte[] data;
+    }
+
+    private static class Assembly {
+        private final ByteArrayOutputStream thumbnail = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream full = new ByteArrayOutputStream();
+        private volatile String from;
+        private volatile long lastUpdateNanos = System.nanoTime();
+        private boolean thumbnailDone = false;
+        private boolean fullDone = false;
+        private int thumbnailTail = 0;
+        private int fullTail = 0;
+        private boolean removed = false;
+    }
+
+    private final Map<Integer, Assembly> assemblies = new ConcurrentHashMap<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final int maxImageBytes;
+    private final long maxPendingBytes;
+
+    /**
+     * @param maxImageBytes The largest image part that will be reassembled. Larger images are discarded.
+     * @param maxPendingBytes The most data held across all images still being reassembled. An image whose
+     *                        packet would exceed it is discarded.
+     */
+    public IncomingImageAssembler(int maxImageBytes, long maxPendingBytes) {
+        this.maxImageBytes = maxImageBytes;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Registers the sender of an image announced by an {@code on_image} event.
+     */
+    public void onImageAnnounced(int imageId, String from) {
+        assemblies.computeIfAbsent(imageId, id -> new Assembly()).from = from;
+    }
+
+    /**
+     * Appends a binary image packet.
+     *
+     * @return The completed thumbnail or full image if this packet finished it, otherwise null.
+     */
+    public CompletedImage onImagePacket(int imageId, int imageType, byte[] data) {
+        Assembly assembly = assemblies.computeIfAbsent(imageId, id -> new Assembly());
+        boolean thumbnail = imageType == ImageUploader.IMAGE_TYPE_THUMBNAIL;
+        synchronized (assembly) {
+            if (assembly.removed) {
+                // Expired or discarded while this packet was arriving.
+                return null;
+            }
+            if (thumbnail ? assembly.thumbnailDone : assembly.fullDone) {
+                logger.debug("Ignoring extra data for already completed image {} (type {}).", imageId, imageType);
+                return null;
+            }
+            ByteArrayOutputStream part = thumbnail ? assembly.thumbnail : assembly.full;
+            if (part.size() + data.length > maxImageBytes) {
+                logger.warn("Discarding incoming image {}: larger than {} bytes.", imageId, maxImageBytes);
+                remove(imageId, assembly);
+                return null;
+            }
+            if (pendingBytes.addAndGet(data.length) > maxPendingBytes) {
+                pendingBytes.addAndGet(-data.length);
+                logger.warn("Discarding incoming image {}: more than {} bytes of images are already being received.", imageId, maxPendingBytes);
+                remove(imageId, assembly);
+                return null;
+            }
+            part.write(data, 0, data.length);
+            assembly.lastUpdateNanos = System.nanoTime();
+            // Track the last two bytes of the part, since the marker may straddle two packets.
+            int tail = updateTail(thumbnail ? assembly.thumbnailTail : assembly.fullTail, data);
+            if (thumbnail) {
+                assembly.thumbnailTail = tail;
+            } else {
+                assembly.fullTail = tail;
+            }
+            if (tail != JPEG_END_OF_IMAGE) {
+                return null;
+            }
+            byte[] completed = part.toByteArray();
+            part.reset();
+            pendingBytes.addAndGet(-completed.length);
+            if (thumbnail) {
+                assembly.thumbnailDone = true;
+            } else {
+                assembly.fullDone = true;
+                // The full image is always the last part sent, so there is nothing left to track.
+                remove(imageId, assembly);
+            }
+            return new CompletedImage(imageId, thumbnail, assembly.from, completed);
+        }
+    }
+
+    /**
+     * Discards images that have not received any data within the timeout.
+     */
+    public void expireIdle(long timeoutMs) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long now = System.nanoTime();
+        assemblies.forEach((imageId, assembly) -> {
+            if (now - assembly.lastUpdateNanos > timeoutNanos) {
+                logger.debug("Expiring incomplete incoming image {}.", imageId);
+                synchronized (assembly) {
+                    remove(imageId, assembly);
+                }
+            }
+        });
+    }
+
+    public void clear() {
+        assemblies.forEach((imageId, assembly) -> {
+            synchronized (assembly) {
+                remove(imageId, assembly);
+            }
+        });
+    }
+
+    public int getPendingCount() {
+        return assemblies.size();
+    }
+
+    /**
+     * @return The data held across all images still being reassembled, in bytes.
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Stops tracking an image and releases its data. The caller must hold the assembly's lock.
+     */
+    private void remove(int imageId, Assembly assembly) {
+        if (assembly.removed) {
+            return;
+        }
+        assembly.removed = true;
+        assemblies.remove(imageId, assembly);
+        pendingBytes.addAndGet(-(assembly.thumbnail.size() + assembly.full.size()));
+    }
+
+    private static int updateTail(int tail, byte[] data) {
+        for (int i = Math.max(0, data.length - 2); i < data.length; i++) {
+            tail = ((tail << 8) | (data[i] & 0xFF)) & 0xFFFF;
+        }
+        return tail;
+    }
+
+}
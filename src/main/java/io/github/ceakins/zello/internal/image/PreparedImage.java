@@ -0,0 +1,19 @@
+package io.github.ceakins.zello.internal.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of preparing an image for upload: its dimensions, a JPEG thumbnail,
+ * and a source for the (possibly re-encoded) full-size JPEG.
+ */
+@Getter
+@AllArgsConstructor
+public class PreparedImage {
+
+    private final int width;
+    private final int height;
+    private final byte[] thumbnailData;
+    private final ImageSource fullImage;
+
+}
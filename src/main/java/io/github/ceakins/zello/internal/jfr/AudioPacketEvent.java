@@ -0,0 +1,30 @@
+package io.github.ceakins.zello.internal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event emitted for every binary audio packet sent to or received from the server.
+ * Disabled by default; enable it in a recording with {@code io.github.ceakins.zello.AudioPacket#enabled=true}.
+ */
+@Name("io.github.ceakins.zello.AudioPacket")
+@Label("Zello Audio Packet")
+@Category({"Zello", "Network"})
+@Enabled(false)
+@StackTrace(false)
+public class AudioPacketEvent extends Event {
+
+    @Label("Direction")
+    @Description("\"in\" for packets received from the server, \"out\" for packets sent to it")
+    public String direction;
+
+    @Label("Stream ID")
+    public int streamId;
+
+    @Label("Packet ID")
+    public int packetId;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+}
@@ -0,0 +1,30 @@
+package io.github.ceakins.zello.internal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event emitted when a JSON command is sent and when the server's response to it arrives.
+ * Disabled by default; enable it in a recording with {@code io.github.ceakins.zello.Command#enabled=true}.
+ */
+@Name("io.github.ceakins.zello.Command")
+@Label("Zello Command")
+@Category({"Zello", "Network"})
+@Enabled(false)
+@StackTrace(false)
+public class CommandEvent extends Event {
+
+    @Label("Phase")
+    @Description("\"send\" when the command is written, \"ack\" when the response is received")
+    public String phase;
+
+    @Label("Command")
+    public String command;
+
+    @Label("Sequence")
+    public int seq;
+
+    @Label("Success")
+    @Description("Whether the server reported success. Always true for the send phase.")
+    public boolean success;
+
+}
@@ -0,0 +1,25 @@
+package io.github.ceakins.zello.internal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event emitted on every {@link io.github.ceakins.zello.ConnectionState} change of a channel.
+ * Disabled by default; enable it in a recording with {@code io.github.ceakins.zello.ConnectionState#enabled=true}.
+ */
+@Name("io.github.ceakins.zello.ConnectionState")
+@Label("Zello Connection State Change")
+@Category({"Zello", "Connection"})
+@Enabled(false)
+@StackTrace(false)
+public class ConnectionStateEvent extends Event {
+
+    @Label("Channel")
+    public String channel;
+
+    @Label("Previous State")
+    public String previousState;
+
+    @Label("New State")
+    public String newState;
+
+}
@@ -0,0 +1,36 @@
+package io.github.ceakins.zello.internal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR duration event spanning a single Opus encode or decode call.
+ * Disabled by default; enable it in a recording with {@code io.github.ceakins.zello.OpusCodec#enabled=true}.
+ */
+@Name("io.github.ceakins.zello.OpusCodec")
+@Label("Zello Opus Codec Call")
+@Category({"Zello", "Audio"})
+@Enabled(false)
+@StackTrace(false)
+public class OpusCodecEvent extends Event {
+
+    @Label("Operation")
+    @Description("\"encode\" or \"decode\"")
+    public String operation;
+
+    @Label("Stream ID")
+    @Description("The incoming stream being decoded, or -1 for encode calls")
+    public int streamId;
+
+    @Label("Encoding Session")
+    @Description("The outgoing stream's encoding session, or -1 for decode calls and the shared default encoder")
+    public int session;
+
+    @Label("Input Size")
+    @DataAmount
+    public int inputBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    public int outputBytes;
+
+}
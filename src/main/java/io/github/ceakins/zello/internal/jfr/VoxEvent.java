@@ -0,0 +1,24 @@
+package io.github.ceakins.zello.internal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event emitted when the radio bridge's VOX gate opens or closes.
+ * Disabled by default; enable it in a recording with {@code io.github.ceakins.zello.Vox#enabled=true}.
+ */
+@Name("io.github.ceakins.zello.Vox")
+@Label("Zello VOX Transition")
+@Category({"Zello", "Audio"})
+@Enabled(false)
+@StackTrace(false)
+public class VoxEvent extends Event {
+
+    @Label("Open")
+    @Description("true when the gate opened, false when it closed")
+    public boolean open;
+
+    @Label("RMS Level")
+    @Description("The frame RMS level (0-1.0) that triggered the transition")
+    public double rms;
+
+}
@@ -0,0 +1,202 @@
+package io.github.ceakins.zello.metrics;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ZelloMetrics} implementation that aggregates everything in memory.
+ * <p>
+ * Counters are striped {@link LongAdder}s and durations go into lock-free {@link LatencyHistogram}s,
+ * so recording from many threads at once never contends on a lock. Read the values at any time via
+ * the getters, or log {@link #toString()} for a one-shot summary.
+ */
+@Getter
+public class InMemoryZelloMetrics implements ZelloMetrics {
+
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final LatencyHistogram listenerCallbackLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> commandRoundTrip = new ConcurrentHashMap<>();
+    private final LatencyHistogram heartbeatRtt = new LatencyHistogram();
+
+    private final LongAdder packetsIn = new LongAdder();
+    private final LongAdder packetsOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder expiredAudioFrames = new LongAdder();
+    private final LongAdder decodeQueueOverflows = new LongAdder();
+    private final LongAdder textMessagesIn = new LongAdder();
+    private final LongAdder textMessagesOut = new LongAdder();
+    private final LongAdder textCharsIn = new LongAdder();
+    private final LongAdder textCharsOut = new LongAdder();
+    private final LongAdder heartbeatTimeouts = new LongAdder();
+    private final LongAdder compressedOriginalBytesOut = new LongAdder();
+    private final LongAdder compressedBytesOut = new LongAdder();
+    private final LongAdder compressedBytesIn = new LongAdder();
+    private final LongAdder decompressedBytesIn = new LongAdder();
+
+    private final LongAdder voxOpens = new LongAdder();
+    private final LongAdder voxCloses = new LongAdder();
+    private final LongAdder activeDecoders = new LongAdder();
+    private final LongAdder nativeCodecBytes = new LongAdder();
+    private final LongAdder reapedIdleStreams = new LongAdder();
+    private final LongAccumulator maxBridgeQueueDepth = new LongAccumulator(Long::max, 0);
+    private volatile int bridgeQueueDepth = 0;
+
+    @Override
+    public void recordEncode(long durationNanos) {
+        encodeLatency.record(durationNanos);
+    }
+
+    @Override
+    public void recordDecode(long durationNanos) {
+        decodeLatency.record(durationNanos);
+    }
+
+    @Override
+    public void recordPacketIn(int bytes) {
+        packetsIn.increment();
+        bytesIn.add(bytes);
+    }
+
+    @Override
+    public void recordPacketOut(int bytes) {
+        packetsOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    @Override
+    public void recordAudioFrameExpired() {
+        expiredAudioFrames.increment();
+    }
+
+    @Override
+    public void recordDecodeQueueOverflow() {
+        decodeQueueOverflows.increment();
+    }
+
+    @Override
+    public void recordTextIn(int chars) {
+        textMessagesIn.increment();
+        textCharsIn.add(chars);
+    }
+
+    @Override
+    public void recordTextOut(int chars) {
+        textMessagesOut.increment();
+        textCharsOut.add(chars);
+    }
+
+    @Override
+    public void recordHeartbeatRtt(long nanos) {
+        heartbeatRtt.record(nanos);
+    }
+
+    @Override
+    public void recordHeartbeatTimeout() {
+        heartbeatTimeouts.increment();
+    }
+
+    @Override
+    public void recordTextCompressed(int originalBytes, int compressedBytes) {
+        compressedOriginalBytesOut.add(originalBytes);
+        compressedBytesOut.add(compressedBytes);
+    }
+
+    @Override
+    public void recordTextDecompressed(int compressedBytes, int originalBytes) {
+        compressedBytesIn.add(compressedBytes);
+        decompressedBytesIn.add(originalBytes);
+    }
+
+    /**
+     * @return Compressed size divided by original size for compressed outgoing messages, or 1 if none were compressed.
+     */
+    public double getOutboundCompressionRatio() {
+        return ratio(compressedBytesOut.sum(), compressedOriginalBytesOut.sum());
+    }
+
+    /**
+     * @return Compressed size divided by original size for compressed incoming messages, or 1 if none were compressed.
+     */
+    public double getInboundCompressionRatio() {
+        return ratio(compressedBytesIn.sum(), decompressedBytesIn.sum());
+    }
+
+    @Override
+    public void recordCommandRoundTrip(String command, long durationNanos) {
+        commandRoundTrip.computeIfAbsent(command, c -> new LatencyHistogram()).record(durationNanos);
+    }
+
+    @Override
+    public void recordBridgeQueueDepth(int depth) {
+        bridgeQueueDepth = depth;
+        maxBridgeQueueDepth.accumulate(depth);
+    }
+
+    @Override
+    public void recordVoxTransition(boolean open) {
+        if (open) {
+            voxOpens.increment();
+        } else {
+            voxCloses.increment();
+        }
+    }
+
+    @Override
+    public void recordDecoderCreated() {
+        activeDecoders.increment();
+    }
+
+    @Override
+    public void recordDecoderDestroyed() {
+        activeDecoders.decrement();
+    }
+
+    @Override
+    public void recordNativeCodecMemory(long deltaBytes) {
+        nativeCodecBytes.add(deltaBytes);
+    }
+
+    @Override
+    public void recordIdleStreamReaped() {
+        reapedIdleStreams.increment();
+    }
+
+    @Override
+    public void recordListenerCallback(long durationNanos) {
+        listenerCallbackLatency.record(durationNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ZelloMetrics{");
+        sb.append("\n  encode: ").append(encodeLatency);
+        sb.append("\n  decode: ").append(decodeLatency);
+        sb.append("\n  listener: ").append(listenerCallbackLatency);
+        commandRoundTrip.forEach((command, histogram) -> sb.append("\n  rtt[").append(command).append("]: ").append(histogram));
+        sb.append("\n  heartbeat rtt: ").append(heartbeatRtt);
+        sb.append("\n  heartbeat timeouts: ").append(heartbeatTimeouts.sum());
+        sb.append("\n  packets in/out: ").append(packetsIn.sum()).append('/').append(packetsOut.sum());
+        sb.append("\n  bytes in/out: ").append(bytesIn.sum()).append('/').append(bytesOut.sum());
+        sb.append("\n  expired audio frames: ").append(expiredAudioFrames.sum());
+        sb.append("\n  decode queue overflows: ").append(decodeQueueOverflows.sum());
+        sb.append("\n  text in/out: ").append(textMessagesIn.sum()).append('/').append(textMessagesOut.sum());
+        sb.append("\n  compression ratio in/out: ").append(String.format("%.2f/%.2f", getInboundCompressionRatio(), getOutboundCompressionRatio()));
+        sb.append("\n  vox opens/closes: ").append(voxOpens.sum()).append('/').append(voxCloses.sum());
+        sb.append("\n  bridge queue depth (current/max): ").append(bridgeQueueDepth).append('/').append(maxBridgeQueueDepth.get());
+        sb.append("\n  active decoders: ").append(activeDecoders.sum());
+        sb.append("\n  native codec bytes: ").append(nativeCodecBytes.sum());
+        sb.append("\n  reaped idle streams: ").append(reapedIdleStreams.sum());
+        return sb.append("\n}").toString();
+    }
+
+    private static double ratio(long compressed, long original) {
+        return original == 0 ? 1.0 : (double) compressed / original;
+    }
+
+}
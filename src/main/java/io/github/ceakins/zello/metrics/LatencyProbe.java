@@ -0,0 +1,305 @@
+package io.github.ceakins.zello.metrics;
+
+import io.github.ceakins.zello.internal.ZelloScheduler;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures where end-to-end voice latency is spent by sending marker tones through the real pipeline.
+ * <p>
+ * A marker is a short, loud tone that replaces the next captured frames. Each pipeline stage checks
+ * the audio it handles for the tone (a single-bin Goertzel filter) and records the monotonic time at
+ * which the marker first passed it. Once the marker reaches playout, the time spent in each stage is
+ * added to that stage's histogram. Stages that were not observed (for example capture and VOX when
+ * audio is sent with {@link io.github.ceakins.zello.ZelloChannel#sendVoiceData} directly) are skipped.
+ * <p>
+ * Only one marker is in flight at a time, and the checks cost nothing more than a volatile read
+ * while no marker is in flight. For a loopback measurement, set the same probe on the sending and
+ * the receiving channel configuration (or use a server that echoes audio), pass it to the
+ * {@link io.github.ceakins.zello.AudioOutputConfig}, and call {@link #start(long)}.
+ */
+public class LatencyProbe {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyProbe.class);
+
+    /**
+     * The pipeline stages, in the order a frame passes them.
+     */
+    public enum Stage {
+        /** The marker replaced a captured frame. */
+        CAPTURE,
+        /** The VOX gate passed the frame to the transmission queue. */
+        VOX,
+        /** The transmission thread took the frame from the queue. */
+        DEQUEUE,
+        /** The frame was Opus-encoded. */
+        ENCODE,
+        /** The packet was handed to the outbound scheduler. */
+        SEND,
+        /** The packet arrived from the WebSocket. */
+        RECEIVE,
+        /** The packet was decoded. */
+        DECODE,
+        /** The decoded frame was about to be passed to the listener. */
+        DISPATCH,
+        /** The frame will be heard: queued for playout plus the audio already buffered ahead of it. */
+        PLAYOUT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final int MARKER_FRAMES = 3;
+    private static final double MARKER_AMPLITUDE = 0.5;
+    private static final double DETECTION_RATIO = 0.5;
+    private static final double DETECTION_MIN_RMS = 0.05;
+    private static final long MARKER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final double markerFrequencyHz;
+    private final byte[] markerFrame;
+    private final double goertzelCoefficient;
+    private final Map<Stage, LatencyHistogram> stageLatency = new EnumMap<>(Stage.class);
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final AtomicLongArray stamps = new AtomicLongArray(STAGES.length);
+    private final LongAdder markersSent = new LongAdder();
+    private final LongAdder markersCompleted = new LongAdder();
+    private final LongAdder markersLost = new LongAdder();
+
+    private volatile boolean inFlight = false;
+    private volatile int framesToInject = 0;
+    private volatile ScheduledFuture<?> injectionTask;
+
+    /**
+     * Creates a probe with a 1.5 kHz marker tone.
+     */
+    public LatencyProbe() {
+        this(1500);
+    }
+
+    /**
+     * @param markerFrequencyHz The frequency of the marker tone. It should fall on a multiple of 50 Hz
+     *                          (the frequency resolution of a 20 ms frame) and within the voice band.
+     */
+    public LatencyProbe(double markerFrequencyHz) {
+        this.markerFrequencyHz = markerFrequencyHz;
+        this.markerFrame = createTone(markerFrequencyHz);
+        this.goertzelCoefficient = 2 * Math.cos(2 * Math.PI * markerFrequencyHz / AudioConstants.SAMPLE_RATE);
+        for (Stage stage : STAGES) {
+            stageLatency.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Injects a marker every interval until {@link #stop()} is called.
+     */
+    public synchronized void start(long intervalMs) {
+        stop();
+        injectionTask = ZelloScheduler.get().scheduleAtFixedRate(this::injectMarker, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        ScheduledFuture<?> task = injectionTask;
+        if (task != null) {
+            task.cancel(false);
+            injectionTask = null;
+        }
+    }
+
+    /**
+     * Requests that the next captured frames be replaced by a marker. Ignored while the previous marker
+     * is still on its way, unless it has been lost for longer than a few seconds.
+     */
+    public void injectMarker() {
+        long captured = stamps.get(Stage.CAPTURE.ordinal());
+        boolean delivered = stamps.get(Stage.DISPATCH.ordinal()) != 0;
+        if (inFlight && !delivered && System.nanoTime() - captured < MARKER_TIMEOUT_NANOS) {
+            return;
+        }
+        if (inFlight) {
+            finishMarker();
+        }
+        framesToInject = MARKER_FRAMES;
+    }
+
+    /**
+     * Called by the capture path for every captured frame.
+     *
+     * @return The marker frame if a marker is due, otherwise the captured frame unchanged.
+     */
+    public byte[] onCapture(byte[] pcmData) {
+        if (framesToInject == 0) {
+            return pcmData;
+        }
+        if (framesToInject == MARKER_FRAMES) {
+            for (int i = 0; i < STAGES.length; i++) {
+                stamps.set(i, 0);
+            }
+            stamps.set(Stage.CAPTURE.ordinal(), System.nanoTime());
+            inFlight = true;
+            markersSent.increment();
+        }
+        framesToInject--;
+        return markerFrame.clone();
+    }
+
+    /**
+     * Records the current time for a stage if the frame is the marker and the marker has not already passed it.
+     *
+     * @return true if the frame was recognized as the marker at this stage.
+     */
+    public boolean observe(Stage stage, byte[] pcmData) {
+        if (!isAwaiting(stage) || !isMarker(pcmData)) {
+            return false;
+        }
+        stamp(stage, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * @return true if a marker is in flight and has not yet been seen at the given stage.
+     */
+    public boolean isAwaiting(Stage stage) {
+        return inFlight && stamps.get(stage.ordinal()) == 0;
+    }
+
+    /**
+     * Records a known time for a stage of the marker currently in flight, e.g. the arrival time of a
+     * packet that only turned out to be the marker once it was decoded.
+     */
+    public void stamp(Stage stage, long nanos) {
+        if (!inFlight || !stamps.compareAndSet(stage.ordinal(), 0, nanos)) {
+            return;
+        }
+        if (stage == Stage.PLAYOUT) {
+            finishMarker();
+        }
+    }
+
+    /**
+     * @return true if the PCM frame (16-bit little-endian mono) is dominated by the marker tone.
+     */
+    public boolean isMarker(byte[] pcmData) {
+        int samples = pcmData.length / 2;
+        if (samples == 0) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pcmData).order(ByteOrder.LITTLE_ENDIAN);
+        double s1 = 0;
+        double s2 = 0;
+        double energy = 0;
+        for (int i = 0; i < samples; i++) {
+            double x = buffer.getShort() / 32768.0;
+            energy += x * x;
+            double s0 = x + goertzelCoefficient * s1 - s2;
+            s2 = s1;
+            s1 = s0;
+        }
+        if (Math.sqrt(energy / samples) < DETECTION_MIN_RMS) {
+            return false;
+        }
+        double power = s1 * s1 + s2 * s2 - goertzelCoefficient * s1 * s2;
+        // A pure tone concentrates all of its energy in the bin, giving a ratio of 1.
+        return power / (samples / 2.0 * energy) > DETECTION_RATIO;
+    }
+
+    /**
+     * @return The histogram of time spent reaching the given stage from the previous observed stage.
+     */
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stageLatency.get(stage);
+    }
+
+    /**
+     * @return The histogram of time from the first to the last observed stage of each completed marker.
+     */
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+
+    public long getMarkersSent() {
+        return markersSent.sum();
+    }
+
+    public long getMarkersCompleted() {
+        return markersCompleted.sum();
+    }
+
+    public long getMarkersLost() {
+        return markersLost.sum();
+    }
+
+    public double getMarkerFrequencyHz() {
+        return markerFrequencyHz;
+    }
+
+    /**
+     * Clears all recorded latencies and counters.
+     */
+    public void reset() {
+        stageLatency.values().forEach(LatencyHistogram::reset);
+        totalLatency.reset();
+        markersSent.reset();
+        markersCompleted.reset();
+        markersLost.reset();
+    }
+
+    private synchronized void finishMarker() {
+        if (!inFlight) {
+            return;
+        }
+        inFlight = false;
+        long first = 0;
+        long previous = 0;
+        boolean received = false;
+        for (Stage stage : STAGES) {
+            long stamp = stamps.get(stage.ordinal());
+            if (stamp == 0) {
+                continue;
+            }
+            if (previous != 0) {
+                stageLatency.get(stage).record(Math.max(0, stamp - previous));
+            } else {
+                first = stamp;
+            }
+            previous = stamp;
+            received |= stage.compareTo(Stage.RECEIVE) >= 0;
+        }
+        if (!received) {
+            markersLost.increment();
+            logger.debug("Latency probe marker was not received.");
+            return;
+        }
+        totalLatency.record(previous - first);
+        markersCompleted.increment();
+    }
+
+    private static byte[] createTone(double frequencyHz) {
+        ByteBuffer buffer = ByteBuffer.allocate(AudioConstants.FRAME_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < AudioConstants.SAMPLES_PER_FRAME; i++) {
+            buffer.putShort((short) (MARKER_AMPLITUDE * 32767 * Math.sin(2 * Math.PI * frequencyHz * i / AudioConstants.SAMPLE_RATE)));
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LatencyProbe{markers sent/completed/lost: ")
+                .append(getMarkersSent()).append('/').append(getMarkersCompleted()).append('/').append(getMarkersLost());
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = stageLatency.get(stage);
+            if (histogram.getCount() > 0) {
+                sb.append("\n  ").append(stage).append(": ").append(histogram);
+            }
+        }
+        return sb.append("\n  total: ").append(totalLatency).append("\n}").toString();
+    }
+
+}
@@ -0,0 +1,13 @@
+package io.github.ceakins.zello.metrics;
+
+/**
+ * The default {@link ZelloMetrics} implementation, which discards every measurement.
+ */
+public final class NoopZelloMetrics implements ZelloMetrics {
+
+    public static final NoopZelloMetrics INSTANCE = new NoopZelloMetrics();
+
+    private NoopZelloMetrics() {
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.github.ceakins.zello.metrics;
+
+/**
+ * A service provider interface for instrumenting the SDK's hot paths.
+ * <p>
+ * Every method has an empty default implementation, so implementations only need to override the
+ * measurements they care about. Methods are called on latency-sensitive threads (the WebSocket read
+ * thread, the audio capture and transmission threads), so implementations must be thread-safe,
+ * non-blocking and cheap.
+ *
+ * @see NoopZelloMetrics
+ * @see InMemoryZelloMetrics
+ */
+public interface ZelloMetrics {
+
+    /**
+     * Records the time spent in a single Opus encode call.
+     */
+    default void recordEncode(long durationNanos) {
+    }
+
+    /**
+     * Records the time spent in a single Opus decode call.
+     */
+    default void recordDecode(long durationNanos) {
+    }
+
+    /**
+     * Records a binary packet received from the server.
+     */
+    default void recordPacketIn(int bytes) {
+    }
+
+    /**
+     * Records a binary packet sent to the server.
+     */
+    default void recordPacketOut(int bytes) {
+    }
+
+    /**
+     * Records an outgoing audio frame that was dropped because it could not be sent before its deadline.
+     */
+    default void recordAudioFrameExpired() {
+    }
+
+    /**
+     * Records a JSON text message received from the server.
+     */
+    default void recordTextIn(int chars) {
+    }
+
+    /**
+     * Records a JSON text message sent to the server.
+     */
+    default void recordTextOut(int chars) {
+    }
+
+    /**
+     * Records the round-trip time of a heartbeat ping, from sending the ping to receiving its pong.
+     */
+    default void recordHeartbeatRtt(long nanos) {
+    }
+
+    /**
+     * Records a connection closed because too many heartbeat pings went unanswered.
+     */
+    default void recordHeartbeatTimeout() {
+    }
+
+    /**
+     * Records a text message compressed by the permessage-deflate extension before sending.
+     */
+    default void recordTextCompressed(int originalBytes, int compressedBytes) {
+    }
+
+    /**
+     * Records a compressed message received from the server and decompressed.
+     */
+    default void recordTextDecompressed(int compressedBytes, int originalBytes) {
+    }
+
+    /**
+     * Records the time between sending a command and receiving the response with the same {@code seq}.
+     *
+     * @param command The name of the command, e.g. "start_stream".
+     */
+    default void recordCommandRoundTrip(String command, long durationNanos) {
+    }
+
+    /**
+     * Records the depth of the radio bridge's transmission queue.
+     */
+    default void recordBridgeQueueDepth(int depth) {
+    }
+
+    /**
+     * Records a VOX gate transition in the radio bridge.
+     *
+     * @param open true when the gate opened, false when it closed.
+     */
+    default void recordVoxTransition(boolean open) {
+    }
+
+    /**
+     * Records an incoming audio frame that was dropped because its decode worker's queue was full.
+     */
+    default void recordDecodeQueueOverflow() {
+    }
+
+    /**
+     * Records that an Opus decoder was created for an incoming stream.
+     */
+    default void recordDecoderCreated() {
+    }
+
+    /**
+     * Records that an Opus decoder was destroyed.
+     */
+    default void recordDecoderDestroyed() {
+    }
+
+    /**
+     * Records a change in the estimated native memory held by Opus encoders and decoders.
+     *
+     * @param deltaBytes Positive when a codec is created, negative when one is destroyed.
+     */
+    default void recordNativeCodecMemory(long deltaBytes) {
+    }
+
+    /**
+     * Records an incoming stream that was closed because no audio arrived for it within the idle timeout,
+     * typically because its stop event was lost.
+     */
+    default void recordIdleStreamReaped() {
+    }
+
+    /**
+     * Records the time spent inside a single application listener callback.
+     */
+    default void recordListenerCallback(long durationNanos) {
+    }
+
+}
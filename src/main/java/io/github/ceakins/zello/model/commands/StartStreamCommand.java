@@ -5,11 +5,19 @@ import lombok.Getter;
 
 /**
  * Represents the "start_stream" command to begin sending audio to the channel.
- * The values for codec and packet duration are fixed according to the Zello API specification.
+ * The codec is always Opus; the codec header and packet duration default to the values the built-in
+ * encoder produces, and can be set to those of a stream being relayed.
  */
 @Getter
 public class StartStreamCommand extends Command {
 
+    /**
+     * The codec header of the built-in encoder's output: {16000 Hz (LE), 1 frame/packet, 20ms frame size},
+     * as required by the API documentation.
+     */
+    public static final String DEFAULT_CODEC_HEADER = "gD4BFA==";
+    public static final int DEFAULT_PACKET_DURATION = 20;
+
     @JsonProperty("type")
     private final String type = "audio";
 
@@ -17,18 +25,26 @@ public class StartStreamCommand extends Command {
     private final String codec = "opus";
 
     @JsonProperty("packet_duration")
-    private final int packetDuration = 20;
+    private final int packetDuration;
 
     /**
      * A Base64-encoded 4-byte header containing Opus codec information.
-     * This value represents: {16000 Hz (LE), 1 frame/packet, 20ms frame size}
-     * as required by the API documentation.
      */
     @JsonProperty("codec_header")
-    private final String codecHeader = "gD4BFA=="; // This is the corrected value
+    private final String codecHeader;
 
     public StartStreamCommand() {
+        this(DEFAULT_CODEC_HEADER, DEFAULT_PACKET_DURATION);
+    }
+
+    /**
+     * @param codecHeader    The Base64-encoded codec header of the audio that will be sent.
+     * @param packetDuration The duration of each packet in milliseconds.
+     */
+    public StartStreamCommand(String codecHeader, int packetDuration) {
         super("start_stream");
+        this.codecHeader = codecHeader;
+        this.packetDuration = packetDuration;
     }
 
 }
\ No newline at end of file
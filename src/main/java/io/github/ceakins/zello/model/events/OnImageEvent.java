@@ -5,6 +5,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+/**
+ * Fired when a user sends an image to the channel.
+ * The thumbnail and full image data follow as binary packets tagged with the same image ID.
+ */
 @Data
 @EqualsAndHashCode(callSuper = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -23,4 +27,22 @@ public class OnImageEvent extends ServerCommand {
     @JsonProperty("image_id")
     private int imageId;
 
+    /**
+     * The width of the full-size image in pixels.
+     */
+    @JsonProperty("width")
+    private int width;
+
+    /**
+     * The height of the full-size image in pixels.
+     */
+    @JsonProperty("height")
+    private int height;
+
+    /**
+     * Where the image came from on the sender's device, e.g. "camera" or "library".
+     */
+    @JsonProperty("source")
+    private String source;
+
 }
\ No newline at end of file
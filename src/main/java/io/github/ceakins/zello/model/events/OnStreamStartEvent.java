@@ -26,4 +26,31 @@ public class OnStreamStartEvent extends ServerCommand {
      */
     private String from;
 
+    /**
+     * The stream type, "audio" for voice.
+     */
+    private String type;
+
+    /**
+     * The codec of the stream's packets, "opus" for voice.
+     */
+    private String codec;
+
+    /**
+     * The Base64-encoded codec header: sample rate, frames per packet and frame size.
+     */
+    @JsonProperty("codec_header")
+    private String codecHeader;
+
+    /**
+     * The duration of each packet in milliseconds.
+     */
+    @JsonProperty("packet_duration")
+    private int packetDuration;
+
+    /**
+     * The channel the stream belongs to.
+     */
+    private String channel;
+
 }
\ No newline at end of file
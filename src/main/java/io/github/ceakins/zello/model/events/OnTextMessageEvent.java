@@ -1,5 +1,6 @@
 package io.github.ceakins.zello.model.events;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -18,8 +19,9 @@ public class OnTextMessageEvent extends ServerCommand {
     private String from;
 
     /**
-     * The content of the text message.
+     * The content of the text message. The v1 protocol sends this as "text".
      */
+    @JsonAlias("text")
     private String message;
 
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.dsp.AudioProcessorChain;
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.ZelloMessageHandler;
+import io.github.ceakins.zello.internal.ZelloWebSocketClient;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.model.events.OnChannelStatusEvent;
+import io.github.ceakins.zello.model.events.OnImageEvent;
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+import org.json.JSONObject;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.*;
+
+/**
+ * Guards the per-frame audio paths against allocation regressions. Each test warms a path up so that it
+ * is JIT-compiled, then measures the bytes the test thread allocates per frame and compares them with
+ * the path's budget. The budgets allow for the allocations a path makes by design and little else.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 5_000;
+    private static final int STREAM_ID = 77;
+
+    /** The outgoing packet array (9-byte header plus Opus payload), which the socket retains until written. */
+    private static final long SEND_BUDGET_BYTES_PER_FRAME = 256;
+    /** The PCM array handed to the listener, which it may keep. */
+    private static final long RECEIVE_BUDGET_BYTES_PER_FRAME = AudioConstants.FRAME_SIZE_BYTES + 64;
+    /**
+     * Nothing. The slack covers the bytes Mockito's inline mock maker adds to each call into a class that
+     * another test in the same JVM has mocked (e.g. AudioEngine), which the codec paths do not allocate themselves.
+     */
+    private static final long ZERO_BUDGET_BYTES_PER_FRAME = 32;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+    private ZelloChannel channel;
+    private ZelloRadioBridge bridge;
+    // The bridge's capture callback, as handed to its audio input.
+    private Consumer<byte[]> capture;
+
+    @BeforeClass
+    public void checkSupport() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+                || !bean.isThreadAllocatedMemorySupported()) {
+            throw new SkipException("Per-thread allocation measurement is not supported by this JVM.");
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        threadMXBean = bean;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if (bridge != null) {
+            bridge.stop();
+            bridge = null;
+        }
+        if (channel != null) {
+            channel.disconnect();
+            channel = null;
+        }
+    }
+
+    @Test
+    public void testEncodeAndSend_AllocatesOnlyThePacket() throws Exception {
+        channel = connectedChannel(ZelloChannelConfig.builder());
+        CompletableFuture<Integer> started = channel.startVoiceStream();
+        channel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", STREAM_ID));
+        assertEquals(started.getNow(-1).intValue(), STREAM_ID);
+        byte[] pcm = tone();
+
+        double perFrame = measure(() -> channel.sendVoiceData(pcm));
+
+        assertTrue(perFrame <= SEND_BUDGET_BYTES_PER_FRAME, "Encode and send allocated " + perFrame + " bytes per frame");
+    }
+
+    @Test
+    public void testReceiveDecodeAndDispatch_AllocatesOnlyTheListenerCopy() throws Exception {
+        channel = connectedChannel(ZelloChannelConfig.builder());
+        ByteBuffer[] packets = startIncomingStream();
+        int[] next = new int[1];
+
+        double perFrame = measure(() -> channel.onAudioPacket(STREAM_ID, packets[next[0]++ % packets.length]));
+
+        assertTrue(perFrame <= RECEIVE_BUDGET_BYTES_PER_FRAME, "Receive and decode allocated " + perFrame + " bytes per frame");
+    }
+
+    @Test
+    public void testReceiveDecodeAndDispatch_WithReusedBuffers_DoesNotAllocate() throws Exception {
+        channel = connectedChannel(ZelloChannelConfig.builder().reuseAudioBuffers(true));
+        ByteBuffer[] packets = startIncomingStream();
+        int[] next = new int[1];
+
+        double perFrame = measure(() -> channel.onAudioPacket(STREAM_ID, packets[next[0]++ % packets.length]));
+
+        assertTrue(perFrame <= ZERO_BUDGET_BYTES_PER_FRAME, "Receive and decode allocated " + perFrame + " bytes per frame");
+    }
+
+    @Test
+    public void testVoxWhileListening_DoesNotAllocate() {
+        byte[] silence = new byte[AudioConstants.FRAME_SIZE_BYTES];
+        startBridge();
+
+        double perFrame = measure(() -> capture.accept(silence));
+
+        assertTrue(perFrame <= ZERO_BUDGET_BYTES_PER_FRAME, "VOX allocated " + perFrame + " bytes per frame while listening");
+    }
+
+    @Test
+    public void testVoxWhileTransmitting_DoesNotAllocate() {
+        byte[] loud = tone();
+        startBridge();
+        capture.accept(loud);
+
+        // Pace the frames so the transmission thread keeps returning them to the pool, as real capture would.
+        double perFrame = measure(() -> {
+            capture.accept(loud);
+            LockSupport.parkNanos(20_000);
+        });
+
+        assertTrue(perFrame <= ZERO_BUDGET_BYTES_PER_FRAME, "VOX allocated " + perFrame + " bytes per frame while transmitting");
+    }
+
+    @Test
+    public void testVoiceProcessingChain_DoesNotAllocate() {
+        byte[] loud = tone();
+        startBridge(ZelloRadioBridgeConfig.builder().audioProcessors(AudioProcessorChain.voice()).build());
+        capture.accept(loud);
+
+        double perFrame = measure(() -> {
+            capture.accept(loud);
+            LockSupport.parkNanos(20_000);
+        });
+
+        assertTrue(perFrame <= ZERO_BUDGET_BYTES_PER_FRAME, "Processing and VOX allocated " + perFrame + " bytes per frame");
+    }
+
+    private double measure(Runnable frame) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame.run();
+        }
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            frame.run();
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+        return (double) allocated / MEASURED_FRAMES;
+    }
+
+    private ZelloChannel connectedChannel(ZelloChannelConfig.ZelloChannelConfigBuilder builder) throws Exception {
+        ZelloChannelConfig config = builder.serverUrl("wss://localhost").username("user").password("pass").channel("allocation").build();
+        ZelloChannel zelloChannel = new ZelloChannel(config, new AudioEngine(), NullWebSocketClient::new);
+        zelloChannel.setListener(new NullListener());
+        zelloChannel.connect();
+        zelloChannel.onOpen();
+        OnChannelStatusEvent online = new OnChannelStatusEvent();
+        online.setStatus("online");
+        zelloChannel.onServerCommand(online);
+        return zelloChannel;
+    }
+
+    private ByteBuffer[] startIncomingStream() {
+        OnStreamStartEvent start = new OnStreamStartEvent();
+        start.setStreamId(STREAM_ID);
+        start.setFrom("sender");
+        channel.onServerCommand(start);
+        ByteBuffer[] packets = new ByteBuffer[50];
+        try (AudioEngine encoder = new AudioEngine()) {
+            for (int i = 0; i < packets.length; i++) {
+                packets[i] = ByteBuffer.wrap(encoder.encode(tone()));
+            }
+        }
+        return packets;
+    }
+
+    private void startBridge() {
+        startBridge(ZelloRadioBridgeConfig.builder().build());
+    }
+
+    private void startBridge(ZelloRadioBridgeConfig bridgeConfig) {
+        ZelloChannelConfig config = ZelloChannelConfig.builder().serverUrl("wss://localhost").username("user").password("pass").channel("allocation").build();
+        ZelloChannel idleChannel = new ZelloChannel(config, mock(AudioEngine.class), NullWebSocketClient::new);
+        bridge = new ZelloRadioBridge(idleChannel, bridgeConfig, callback -> {
+            capture = callback;
+            return mock(AudioInputManager.class);
+        });
+        bridge.start();
+    }
+
+    private static byte[] tone() {
+        ByteBuffer buffer = ByteBuffer.allocate(AudioConstants.FRAME_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < AudioConstants.SAMPLES_PER_FRAME; i++) {
+            buffer.putShort((short) (16000 * Math.sin(2 * Math.PI * 440 * i / AudioConstants.SAMPLE_RATE)));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * A connection that is always open and idle and discards everything sent on it.
+     */
+    private static class NullWebSocketClient extends ZelloWebSocketClient {
+
+        NullWebSocketClient(URI serverUri, Map<String, String> httpHeaders, ZelloMessageHandler messageHandler) {
+            super(serverUri, httpHeaders == null ? Collections.emptyMap() : httpHeaders, messageHandler);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean hasBufferedData() {
+            return false;
+        }
+
+        @Override
+        public void send(String text) {
+        }
+
+        @Override
+        public void send(byte[] data) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class NullListener implements ZelloChannelListener {
+        private long checksum;
+
+        @Override
+        public void onAudioData(int streamId, byte[] audioData) {
+            checksum += audioData[0];
+        }
+
+        @Override
+        public void onOpusPacket(int streamId, ByteBuffer opusData) {
+            // Overridden because Mockito instruments the interface's default methods once it is mocked elsewhere.
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onDisconnected(String reason) {
+        }
+
+        @Override
+        public void onError(String errorMessage, Throwable t) {
+        }
+
+        @Override
+        public void onTextMessage(String from, String message) {
+        }
+
+        @Override
+        public void onStreamStarted(int streamId, String from) {
+        }
+
+        @Override
+        public void onStreamStopped(int streamId, String from) {
+        }
+
+        @Override
+        public void onImageEvent(OnImageEvent event) {
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.model.events.ChannelUser;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+public class ChannelRosterTest {
+
+    @Test
+    public void testApply_ReportsJoinsStatusChangesAndLeaves() {
+        ChannelRoster roster = new ChannelRoster();
+
+        List<RosterChange> joins = roster.apply(List.of(user("alice", "online"), user("bob", "busy")));
+        List<RosterChange> changes = roster.apply(List.of(user("alice", "busy"), user("bob", "offline")));
+
+        assertEquals(joins.size(), 2);
+        assertTrue(joins.get(0).isJoin());
+        assertEquals(changes.size(), 2);
+        assertEquals(changes.get(0).getPreviousStatus(), "online");
+        assertEquals(changes.get(0).getStatus(), "busy");
+        assertTrue(changes.get(1).isLeave());
+        assertEquals(roster.getStatus("alice"), "busy");
+        assertFalse(roster.isOnline("bob"));
+        assertEquals(roster.getOnlineCount(), 1);
+    }
+
+    @Test
+    public void testApply_UnchangedUsers_ProduceNoChanges() {
+        ChannelRoster roster = new ChannelRoster();
+        roster.apply(List.of(user("alice", "online")));
+
+        assertTrue(roster.apply(List.of(user("alice", "online"), user("carol", "offline"))).isEmpty());
+        assertTrue(roster.apply(null).isEmpty());
+    }
+
+    @Test
+    public void testApply_LargeChannel_OnlyReportsTheDelta() {
+        ChannelRoster roster = new ChannelRoster();
+        roster.apply(IntStream.range(0, 5000).mapToObj(i -> user("user-" + i, "online")).collect(Collectors.toList()));
+
+        List<RosterChange> changes = roster.apply(List.of(user("user-42", "offline"), user("user-5000", "online")));
+
+        assertEquals(changes.size(), 2);
+        assertEquals(roster.getOnlineCount(), 5000);
+    }
+
+    @Test
+    public void testClear_ReportsEveryoneAsLeft() {
+        ChannelRoster roster = new ChannelRoster();
+        roster.apply(List.of(user("alice", "online"), user("bob", "online")));
+
+        List<RosterChange> changes = roster.clear();
+
+        assertEquals(changes.size(), 2);
+        assertTrue(changes.stream().allMatch(RosterChange::isLeave));
+        assertEquals(roster.getOnlineCount(), 0);
+    }
+
+    private static ChannelUser user(String name, String status) {
+        ChannelUser user = new ChannelUser();
+        user.setName(name);
+        user.setStatus(status);
+        return user;
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.github.ceakins.zello;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class ImageCacheTest {
+
+    @Test
+    public void testGet_ReturnsSameSharedArray() {
+        ImageCache cache = new ImageCache(1024);
+        byte[] data = new byte[100];
+
+        cache.put("a", data);
+
+        assertSame(cache.get("a"), data);
+        assertSame(cache.get("a"), cache.get("a"));
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsedWithinByteBudget() {
+        ImageCache cache = new ImageCache(250);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.get("a");
+
+        cache.put("c", new byte[100]);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(cache.getMemoryBytes(), 200);
+    }
+
+    @Test
+    public void testSpill_ReloadsEvictedImageFromDisk() throws Exception {
+        Path dir = Files.createTempDirectory("image-cache-test");
+        ImageCache cache = new ImageCache(150, dir, 1024);
+        byte[] first = {1, 2, 3};
+        cache.put("a", first);
+        cache.put("b", new byte[148]);
+
+        assertEquals(cache.getSpillBytes(), 3);
+        assertEquals(cache.get("a"), first);
+        assertEquals(cache.getSpillBytes(), 148);
+
+        cache.clear();
+        assertEquals(cache.getMemoryBytes(), 0);
+        try (var files = Files.list(dir)) {
+            assertEquals(files.count(), 0);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testSpill_KeysThatDifferOnlyInPunctuationOrAreVeryLongDoNotCollide() throws Exception {
+        Path dir = Files.createTempDirectory("image-cache-test");
+        ImageCache cache = new ImageCache(10, dir, 1024);
+        String longKey = "k".repeat(1000);
+        byte[] slash = {1};
+        byte[] underscore = {2};
+        byte[] longData = {3};
+        cache.put("a/b", slash);
+        cache.put("a_b", underscore);
+        cache.put(longKey, longData);
+        cache.put("filler", new byte[10]);
+
+        assertEquals(cache.getSpillBytes(), 3);
+        assertEquals(cache.get("a/b"), slash);
+        assertEquals(cache.get("a_b"), underscore);
+        assertEquals(cache.get(longKey), longData);
+
+        cache.clear();
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testSpill_RunsOnTheGivenExecutorAndTheImageStaysReadableMeanwhile() throws Exception {
+        Path dir = Files.createTempDirectory("image-cache-test");
+        ImageCache cache = new ImageCache(150, dir, 1024);
+        List<Runnable> tasks = new ArrayList<>();
+        byte[] first = {1, 2, 3};
+        cache.put("a", first, tasks::add);
+        cache.put("b", new byte[148], tasks::add);
+
+        assertEquals(tasks.size(), 1);
+        assertEquals(cache.getSpillBytes(), 0);
+        try (var files = Files.list(dir)) {
+            assertEquals(files.count(), 0);
+        }
+        assertSame(cache.get("a"), first);
+
+        cache.put("c", new byte[148], tasks::add);
+        tasks.forEach(Runnable::run);
+
+        assertEquals(cache.getSpillBytes(), 151);
+        assertNotNull(cache.get("b"));
+
+        cache.clear();
+        Files.delete(dir);
+    }
+
+}
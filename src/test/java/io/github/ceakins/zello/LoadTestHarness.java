@@ -0,0 +1,375 @@
+package io.github.ceakins.zello;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.ZelloWebSocketClient;
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import io.github.ceakins.zello.metrics.LatencyHistogram;
+import io.github.ceakins.zello.model.events.OnImageEvent;
+import io.github.ceakins.zello.testing.MockZelloServer;
+import org.json.JSONObject;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A load generator that connects many {@link ZelloChannel} clients to a server and drives synthetic
+ * talkers at 50 frames per second, then writes a JSON report for comparing SDK versions.
+ * <p>
+ * Each talker's frames are stamped with their send time ahead of the real Opus payload, and the stamp
+ * is checked when the receiving client decodes the frame, so the measured latency covers encode,
+ * the outbound scheduler, the server hop, binary dispatch and decode. The report contains throughput,
+ * latency percentiles, dropped frames, GC pauses and process CPU time per talker stream.
+ * <p>
+ * By default an in-process {@link MockZelloServer} is started. Run it after {@code mvn test-compile} with
+ * the test classpath, passing any of these {@code key=value} arguments:
+ * <pre>
+ * clients=50 talkers=5 channels=5 durationSec=30 warmupSec=5 latencyMs=0 url=ws://... report=target/load-report.json
+ * </pre>
+ */
+public class LoadTestHarness {
+
+    private static final int STAMP_BYTES = Long.BYTES;
+    private static final long FRAME_INTERVAL_MICROS = AudioConstants.FRAME_DURATION_MS * 1000L;
+
+    private final int clients;
+    private final int talkers;
+    private final int channels;
+    private final int durationSec;
+    private final int warmupSec;
+    private final long latencyMs;
+    private final String url;
+    private final Path reportPath;
+
+    private final InMemoryZelloMetrics metrics = new InMemoryZelloMetrics();
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder framesExpected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Prepends the send time to each encoded frame and records the elapsed time when it is decoded.
+     */
+    private class StampingAudioEngine extends AudioEngine {
+
+        StampingAudioEngine() {
+            super(metrics);
+        }
+
+        @Override
+        public int encode(int session, byte[] pcmData, byte[] opusOutput, int offset) {
+            long sentNanos = System.nanoTime();
+            int length = super.encode(session, pcmData, opusOutput, offset + STAMP_BYTES);
+            if (length < 0) {
+                return -1;
+            }
+            ByteBuffer.wrap(opusOutput, offset, STAMP_BYTES).order(ByteOrder.BIG_ENDIAN).putLong(sentNanos);
+            return STAMP_BYTES + length;
+        }
+
+        @Override
+        public int decode(int streamId, ByteBuffer stampedData, byte[] pcmOutput) {
+            if (stampedData.remaining() < STAMP_BYTES) {
+                return -1;
+            }
+            ByteBuffer buffer = stampedData.duplicate().order(ByteOrder.BIG_ENDIAN);
+            long sentNanos = buffer.getLong();
+            int length = super.decode(streamId, buffer, pcmOutput);
+            if (length >= 0) {
+                endToEndLatency.record(System.nanoTime() - sentNanos);
+                framesReceived.increment();
+            }
+            return length;
+        }
+    }
+
+    private class Client implements ZelloChannelListener {
+        private final CountDownLatch connected = new CountDownLatch(1);
+        private final ZelloChannel channel;
+
+        Client(String username, String channelName) {
+            ZelloChannelConfig config = ZelloChannelConfig.builder().serverUrl(url).username(username).password("load")
+                    .channel(channelName).metrics(metrics).build();
+            this.channel = new ZelloChannel(config, new StampingAudioEngine(),
+                    (uri, headers, handler) -> new ZelloWebSocketClient(uri, headers, handler, metrics));
+            channel.setListener(this);
+        }
+
+        @Override
+        public void onConnected() {
+            connected.countDown();
+        }
+
+        @Override
+        public void onDisconnected(String reason) {
+        }
+
+        @Override
+        public void onError(String errorMessage, Throwable t) {
+            errors.increment();
+        }
+
+        @Override
+        public void onTextMessage(String from, String message) {
+        }
+
+        @Override
+        public void onStreamStarted(int streamId, String from) {
+        }
+
+        @Override
+        public void onStreamStopped(int streamId, String from) {
+        }
+
+        @Override
+        public void onAudioData(int streamId, byte[] audioData) {
+        }
+
+        @Override
+        public void onImageEvent(OnImageEvent event) {
+        }
+    }
+
+    LoadTestHarness(Map<String, String> args) {
+        this.clients = Integer.parseInt(args.getOrDefault("clients", "50"));
+        this.talkers = Math.min(clients, Integer.parseInt(args.getOrDefault("talkers", "5")));
+        this.channels = Math.max(1, Integer.parseInt(args.getOrDefault("channels", String.valueOf(talkers))));
+        this.durationSec = Integer.parseInt(args.getOrDefault("durationSec", "30"));
+        this.warmupSec = Integer.parseInt(args.getOrDefault("warmupSec", "5"));
+        this.latencyMs = Long.parseLong(args.getOrDefault("latencyMs", "0"));
+        this.url = args.get("url");
+        this.reportPath = Path.of(args.getOrDefault("report", "target/load-report.json"));
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            args.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        MockZelloServer server = null;
+        if (!args.containsKey("url")) {
+            server = MockZelloServer.startNew();
+            server.setLatencyMs(Long.parseLong(args.getOrDefault("latencyMs", "0")));
+            args.put("url", server.getUrl());
+        }
+        try {
+            JSONObject report = new LoadTestHarness(args).run();
+            System.out.println(report.toString(2));
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    JSONObject run() throws Exception {
+        installGcListener();
+        List<Client> allClients = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client("load-" + i, "load-channel-" + (i % channels));
+            allClients.add(client);
+            client.channel.connect();
+        }
+        for (Client client : allClients) {
+            if (!client.connected.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Not all clients connected within 30 seconds.");
+            }
+        }
+
+        // Talkers are the first clients, which spreads them round-robin across channels.
+        List<Client> talking = allClients.subList(0, talkers);
+        int[] listenersPerTalker = new int[talkers];
+        for (int t = 0; t < talkers; t++) {
+            listenersPerTalker[t] = countListeners(t % channels) - 1;
+            talking.get(t).channel.startVoiceStream();
+        }
+        Thread.sleep(1000);
+
+        byte[] pcm = createTone();
+        ScheduledExecutorService clock = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "Load-Talker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<ScheduledFuture<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < talkers; t++) {
+            Client talker = talking.get(t);
+            int listeners = listenersPerTalker[t];
+            tasks.add(clock.scheduleAtFixedRate(() -> {
+                if (talker.channel.getState() == ConnectionState.CONNECTED) {
+                    talker.channel.sendVoiceData(pcm);
+                    framesSent.increment();
+                    framesExpected.add(listeners);
+                }
+            }, 0, FRAME_INTERVAL_MICROS, TimeUnit.MICROSECONDS));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSec));
+        resetMeasurements();
+        long cpuStart = processCpuNanos();
+        long gcCountStart = gcCount();
+        long gcTimeStart = gcTimeMs();
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSec));
+        long elapsedNanos = System.nanoTime() - start;
+        long cpuNanos = processCpuNanos() - cpuStart;
+        long gcCount = gcCount() - gcCountStart;
+        long gcTimeMs = gcTimeMs() - gcTimeStart;
+        tasks.forEach(task -> task.cancel(false));
+        clock.shutdownNow();
+        clock.awaitTermination(1, TimeUnit.SECONDS);
+        long sent = framesSent.sum();
+        long expected = framesExpected.sum();
+        // Let frames already in flight arrive before counting drops.
+        Thread.sleep(500);
+        long received = framesReceived.sum();
+
+        talking.forEach(client -> client.channel.stopVoiceStream());
+        allClients.forEach(client -> client.channel.disconnect());
+
+        double seconds = elapsedNanos / 1e9;
+        JSONObject config = new JSONObject().put("clients", clients).put("talkers", talkers).put("channels", channels)
+                .put("durationSec", durationSec).put("warmupSec", warmupSec).put("serverLatencyMs", latencyMs).put("url", url);
+        JSONObject results = new JSONObject()
+                .put("framesSentPerSec", sent / seconds)
+                .put("framesReceivedPerSec", received / seconds)
+                .put("framesExpected", expected)
+                .put("framesReceived", received)
+                .put("framesDropped", Math.max(0, expected - received))
+                .put("dropRate", expected == 0 ? 0 : Math.max(0, expected - received) / (double) expected)
+                .put("expiredOutboundFrames", metrics.getExpiredAudioFrames().sum())
+                .put("bytesOutPerSec", metrics.getBytesOut().sum() / seconds)
+                .put("bytesInPerSec", metrics.getBytesIn().sum() / seconds)
+                .put("errors", errors.sum())
+                .put("endToEndLatencyMs", histogramJson(endToEndLatency))
+                .put("encodeUs", histogramMicros(metrics.getEncodeLatency()))
+                .put("decodeUs", histogramMicros(metrics.getDecodeLatency()))
+                .put("gc", new JSONObject().put("collections", gcCount).put("totalMs", gcTimeMs).put("pausesMs", histogramJson(gcPauses)))
+                .put("cpu", new JSONObject()
+                        .put("processCpuPercent", 100.0 * cpuNanos / elapsedNanos)
+                        .put("cpuMsPerStreamPerSec", talkers == 0 ? 0 : cpuNanos / 1e6 / talkers / seconds)
+                        .put("availableProcessors", Runtime.getRuntime().availableProcessors()));
+        JSONObject report = new JSONObject()
+                .put("sdkVersion", sdkVersion())
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("timestamp", Instant.now().toString())
+                .put("config", config)
+                .put("results", results);
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.writeString(reportPath, report.toString(2));
+        return report;
+    }
+
+    private int countListeners(int channelIndex) {
+        int count = 0;
+        for (int i = 0; i < clients; i++) {
+            if (i % channels == channelIndex) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void resetMeasurements() {
+        endToEndLatency.reset();
+        gcPauses.reset();
+        metrics.getEncodeLatency().reset();
+        metrics.getDecodeLatency().reset();
+        metrics.getBytesIn().reset();
+        metrics.getBytesOut().reset();
+        metrics.getExpiredAudioFrames().reset();
+        framesSent.reset();
+        framesReceived.reset();
+        framesExpected.reset();
+        errors.reset();
+    }
+
+    private void installGcListener() {
+        NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                gcPauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+            }
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+            }
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTimeMs() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static String sdkVersion() {
+        String version = ZelloChannel.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+
+    private static byte[] createTone() {
+        ByteBuffer buffer = ByteBuffer.allocate(AudioConstants.FRAME_SIZE_BYTES).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < AudioConstants.SAMPLES_PER_FRAME; i++) {
+            buffer.putShort((short) (8000 * Math.sin(2 * Math.PI * 440 * i / AudioConstants.SAMPLE_RATE)));
+        }
+        return buffer.array();
+    }
+
+    private static JSONObject histogramJson(LatencyHistogram histogram) {
+        return new JSONObject().put("count", histogram.getCount())
+                .put("mean", histogram.getMeanNanos() / 1e6)
+                .put("p50", histogram.getPercentileNanos(50) / 1e6)
+                .put("p90", histogram.getPercentileNanos(90) / 1e6)
+                .put("p99", histogram.getPercentileNanos(99) / 1e6)
+                .put("p999", histogram.getPercentileNanos(99.9) / 1e6)
+                .put("max", histogram.getMaxNanos() / 1e6);
+    }
+
+    private static JSONObject histogramMicros(LatencyHistogram histogram) {
+        return new JSONObject().put("count", histogram.getCount())
+                .put("p50", histogram.getPercentileNanos(50) / 1e3)
+                .put("p99", histogram.getPercentileNanos(99) / 1e3)
+                .put("max", histogram.getMaxNanos() / 1e3);
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ZelloBroadcastGroupTest {
+
+    private static final byte[] OPUS = {9, 8, 7};
+
+    private AudioEngine audioEngine;
+    private ZelloBroadcastGroup group;
+    private final List<ZelloChannel> channels = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() {
+        audioEngine = mock(AudioEngine.class);
+        when(audioEngine.startEncodingSession()).thenReturn(3);
+        when(audioEngine.encode(eq(3), any(byte[].class), any(byte[].class), eq(0))).thenAnswer(invocation -> {
+            System.arraycopy(OPUS, 0, invocation.getArgument(2), 0, OPUS.length);
+            return OPUS.length;
+        });
+        group = new ZelloBroadcastGroup(audioEngine);
+        channels.clear();
+        for (int i = 0; i < 3; i++) {
+            channels.add(channel(ConnectionState.CONNECTED));
+            group.add(channels.get(i));
+        }
+    }
+
+    @Test
+    public void testFrame_IsEncodedOnceAndSentToEveryMember() {
+        group.start();
+
+        group.sendVoiceData(new byte[640]);
+        group.sendVoiceData(new byte[640]);
+
+        verify(audioEngine, times(2)).encode(eq(3), any(byte[].class), any(byte[].class), eq(0));
+        for (ZelloChannel channel : channels) {
+            verify(channel).startVoiceStream();
+            verify(channel, times(2)).sendOpusData(startsWith(OPUS), eq(0), eq(OPUS.length));
+        }
+    }
+
+    @Test
+    public void testDisconnectedMember_IsSkipped() {
+        ZelloChannel offline = channel(ConnectionState.DISCONNECTED);
+        group.add(offline);
+        group.start();
+
+        group.sendVoiceData(new byte[640]);
+
+        verify(offline, never()).sendOpusData(any(), anyInt(), anyInt());
+        verify(channels.get(0)).sendOpusData(any(), eq(0), eq(OPUS.length));
+    }
+
+    @Test
+    public void testMembershipChanges_FollowTheTransmission() {
+        group.start();
+        ZelloChannel late = channel(ConnectionState.CONNECTED);
+
+        group.add(late);
+        group.remove(channels.get(0));
+
+        verify(late).startVoiceStream();
+        verify(channels.get(0)).stopVoiceStream();
+        group.sendVoiceData(new byte[640]);
+        verify(channels.get(0), never()).sendOpusData(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testStop_StopsMembersAndReleasesTheEncoder() {
+        group.start();
+
+        group.stop();
+        group.sendVoiceData(new byte[640]);
+
+        assertFalse(group.isTransmitting());
+        channels.forEach(channel -> verify(channel).stopVoiceStream());
+        verify(audioEngine).stopEncodingSession(3);
+        verify(audioEngine, never()).encode(anyInt(), any(byte[].class), any(byte[].class), anyInt());
+    }
+
+    private static ZelloChannel channel(ConnectionState state) {
+        ZelloChannel channel = mock(ZelloChannel.class);
+        when(channel.getState()).thenReturn(state);
+        when(channel.startVoiceStream()).thenReturn(CompletableFuture.completedFuture(1));
+        return channel;
+    }
+
+    private static byte[] startsWith(byte[] prefix) {
+        return argThat(data -> data != null && data.length >= prefix.length
+                && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length));
+    }
+
+}
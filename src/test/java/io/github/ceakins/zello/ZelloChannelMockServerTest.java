@@ -0,0 +1,249 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import io.github.ceakins.zello.model.events.OnImageEvent;
+import io.github.ceakins.zello.testing.MockZelloServer;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Runs the real connect, logon, stream, text and image paths against {@link MockZelloServer}, once for
+ * every {@link TransportType}, and again with permessage-deflate for the transports that support it. The Opus codec is replaced by a pass-through mock so the test does not
+ * depend on native libraries.
+ */
+public class ZelloChannelMockServerTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private final TransportType transport;
+    private final boolean compressed;
+    private MockZelloServer server;
+    private ZelloChannel alice;
+    private ZelloChannel bob;
+    private ZelloChannelListener aliceListener;
+    private ZelloChannelListener bobListener;
+    private InMemoryZelloMetrics aliceMetrics;
+    private InMemoryZelloMetrics bobMetrics;
+
+    public ZelloChannelMockServerTest(TransportType transport, boolean compressed) {
+        this.transport = transport;
+        this.compressed = compressed;
+    }
+
+    @Factory
+    public static Object[] createInstances() {
+        List<Object> instances = new ArrayList<>();
+        for (TransportType transport : TransportType.values()) {
+            instances.add(new ZelloChannelMockServerTest(transport, false));
+            if (transport != TransportType.JDK) {
+                instances.add(new ZelloChannelMockServerTest(transport, true));
+            }
+        }
+        return instances.toArray();
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = MockZelloServer.startNew(compressed);
+        aliceMetrics = new InMemoryZelloMetrics();
+        aliceListener = mock(ZelloChannelListener.class);
+        bobListener = mock(ZelloChannelListener.class);
+        alice = createChannel("alice", aliceListener, aliceMetrics);
+        bobMetrics = new InMemoryZelloMetrics();
+        bob = createChannel("bob", bobListener, bobMetrics);
+        alice.connect();
+        bob.connect();
+        verify(aliceListener, timeout(TIMEOUT_MS)).onConnected();
+        verify(bobListener, timeout(TIMEOUT_MS)).onConnected();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        alice.disconnect();
+        bob.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void testTextMessage_IsDeliveredToOtherClient() {
+        alice.sendTextMessage("hello");
+
+        verify(bobListener, timeout(TIMEOUT_MS)).onTextMessage("alice", "hello");
+        verify(aliceListener, never()).onTextMessage(any(), any());
+    }
+
+    @Test
+    public void testCompression_ShrinksTextMessagesBothWays() {
+        if (!compressed) {
+            throw new SkipException("Compression is not enabled for this run.");
+        }
+        String message = "hello ".repeat(250);
+
+        alice.sendTextMessage(message);
+
+        verify(bobListener, timeout(TIMEOUT_MS)).onTextMessage("alice", message);
+        assertTrue(server.getExtensionOffers().stream().allMatch(offer -> offer.startsWith("permessage-deflate")));
+        assertTrue(aliceMetrics.getOutboundCompressionRatio() < 0.5, "Outbound ratio " + aliceMetrics.getOutboundCompressionRatio());
+        assertTrue(bobMetrics.getInboundCompressionRatio() < 0.5, "Inbound ratio " + bobMetrics.getInboundCompressionRatio());
+    }
+
+    @Test
+    public void testVoiceStream_FansOutAudioToOtherClient() throws Exception {
+        server.setLatencyMs(100);
+        byte[] first = {1, 2, 3, 4};
+        byte[] second = {5, 6, 7, 8};
+
+        CompletableFuture<Integer> ready = alice.startVoiceStream();
+        // Sent before the server has assigned the stream ID, so both frames wait in alice's queue.
+        alice.sendVoiceData(first);
+        alice.sendVoiceData(second);
+        assertFalse(ready.isDone());
+
+        ready.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(bobListener, timeout(TIMEOUT_MS)).onAudioData(anyInt(), aryEq(second));
+        InOrder inOrder = inOrder(bobListener);
+        inOrder.verify(bobListener).onStreamStarted(anyInt(), eq("alice"));
+        inOrder.verify(bobListener).onAudioData(anyInt(), aryEq(first));
+        inOrder.verify(bobListener).onAudioData(anyInt(), aryEq(second));
+
+        alice.stopVoiceStream();
+        verify(bobListener, timeout(TIMEOUT_MS)).onStreamStopped(anyInt(), eq("alice"));
+    }
+
+    @Test
+    public void testImage_CompletesHandshakeAndReachesOtherClient() throws Exception {
+        byte[] jpeg = createJpeg();
+
+        int imageId = alice.sendImage(jpeg).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        ArgumentCaptor<OnImageEvent> event = ArgumentCaptor.forClass(OnImageEvent.class);
+        verify(bobListener, timeout(TIMEOUT_MS)).onImageEvent(event.capture());
+        assertEquals(event.getValue().getImageId(), imageId);
+        assertEquals(event.getValue().getWidth(), 320);
+        verify(bobListener, timeout(TIMEOUT_MS)).onImageThumbnail(eq(imageId), eq("alice"), any());
+        verify(bobListener, timeout(TIMEOUT_MS)).onImageReceived(eq(imageId), eq("alice"), aryEq(jpeg));
+        assertEquals(bob.getCachedImage(imageId), jpeg);
+    }
+
+    @Test
+    public void testInjectedCommandFailure_IsReportedToListener() {
+        server.failNextCommand("send_text_message", "not allowed");
+
+        alice.sendTextMessage("hello");
+
+        verify(aliceListener, timeout(TIMEOUT_MS)).onError(contains("not allowed"), isNull());
+        verify(bobListener, never()).onTextMessage(any(), any());
+    }
+
+    @Test
+    public void testInjectedLatency_IsVisibleInCommandRoundTrip() {
+        server.setLatencyMs(100);
+
+        alice.sendTextMessage("hello");
+
+        verify(bobListener, timeout(TIMEOUT_MS)).onTextMessage("alice", "hello");
+        awaitCondition(() -> aliceMetrics.getCommandRoundTrip().containsKey("send_text_message"));
+        assertTrue(aliceMetrics.getCommandRoundTrip().get("send_text_message").getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testHeartbeat_MeasuresRoundTripTime() {
+        awaitCondition(() -> alice.getSmoothedRttNanos() > 0);
+
+        assertTrue(aliceMetrics.getHeartbeatRtt().getCount() > 0);
+    }
+
+    @Test
+    public void testHeartbeat_ClosesConnectionWhenPongsStop() {
+        AtomicReference<String> disconnectThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            disconnectThread.set(Thread.currentThread().getName());
+            return null;
+        }).when(aliceListener).onDisconnected(any());
+        server.setAnswerPings(false);
+
+        verify(aliceListener, timeout(TIMEOUT_MS)).onDisconnected("Heartbeat timed out");
+        assertEquals(alice.getState(), ConnectionState.DISCONNECTED);
+        assertNotEquals(disconnectThread.get(), "Zello-Scheduler-Thread");
+        assertTrue(aliceMetrics.getHeartbeatTimeouts().sum() >= 1);
+    }
+
+    @Test
+    public void testDroppedConnection_NotifiesListener() {
+        server.dropAllConnections();
+
+        verify(aliceListener, timeout(TIMEOUT_MS)).onDisconnected(any());
+        assertEquals(alice.getState(), ConnectionState.DISCONNECTED);
+    }
+
+    private ZelloChannel createChannel(String username, ZelloChannelListener listener, InMemoryZelloMetrics metrics) {
+        ZelloChannelConfig config = ZelloChannelConfig.builder().serverUrl(server.getUrl()).username(username).password("secret")
+                .channel("mock-channel").metrics(metrics).transport(transport).heartbeatIntervalMs(100)
+                .compression(compressed ? CompressionConfig.builder().build() : null).build();
+        AudioEngine audioEngine = mock(AudioEngine.class);
+        when(audioEngine.encode(anyInt(), any(byte[].class), any(byte[].class), anyInt())).thenAnswer(invocation -> {
+            byte[] pcm = invocation.getArgument(1);
+            System.arraycopy(pcm, 0, invocation.getArgument(2), invocation.getArgument(3), pcm.length);
+            return pcm.length;
+        });
+        when(audioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenAnswer(invocation -> {
+            ByteBuffer opus = invocation.getArgument(1);
+            opus.get(opus.position(), (byte[]) invocation.getArgument(2), 0, opus.remaining());
+            return opus.remaining();
+        });
+        ZelloChannel channel = new ZelloChannel(config, audioEngine, ZelloChannel.transportFactory(config));
+        channel.setListener(listener);
+        return channel;
+    }
+
+    private static byte[] createJpeg() throws Exception {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 255 / 320) << 16 | (y * 255 / 240) << 8);
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + TIMEOUT_MS + " ms");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+}
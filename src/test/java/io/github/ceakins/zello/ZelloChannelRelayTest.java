@@ -0,0 +1,130 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ZelloChannelRelayTest {
+
+    private static final String CODEC_HEADER = "QB8BPA==";
+
+    private ZelloChannel source;
+    private ZelloChannel target;
+    private ZelloChannelListener sourceListener;
+
+    @BeforeMethod
+    public void setUp() {
+        source = mock(ZelloChannel.class);
+        when(source.getUsername()).thenReturn("relay-in");
+        target = mock(ZelloChannel.class);
+        when(target.getUsername()).thenReturn("relay-out");
+        when(target.getState()).thenReturn(ConnectionState.CONNECTED);
+        when(target.startVoiceStream(anyString(), anyInt())).thenReturn(new CompletableFuture<>());
+    }
+
+    @Test
+    public void testStream_IsForwardedWithItsCodecHeaderAndPackets() {
+        ZelloChannelRelay relay = start(ZelloRelayConfig.builder().build());
+
+        sourceListener.onStreamStartEvent(streamStart(5, "alice"));
+        sourceListener.onOpusPacket(5, ByteBuffer.wrap(new byte[]{0, 9, 8, 7}, 1, 3));
+        ByteBuffer direct = ByteBuffer.allocateDirect(2).put(new byte[]{6, 5}).flip();
+        sourceListener.onOpusPacket(5, direct);
+        sourceListener.onStreamStopped(5, "alice");
+
+        verify(target).startVoiceStream(CODEC_HEADER, 60);
+        verify(target).sendOpusData(any(byte[].class), eq(1), eq(3));
+        ArgumentCaptor<byte[]> copied = ArgumentCaptor.forClass(byte[].class);
+        verify(target).sendOpusData(copied.capture(), eq(0), eq(2));
+        assertEquals(copied.getValue()[0], 6);
+        assertEquals(copied.getValue()[1], 5);
+        assertEquals(direct.remaining(), 2);
+        verify(target).stopVoiceStream();
+        assertEquals(relay.getRelayedStreamId(), -1);
+    }
+
+    @Test
+    public void testLoopPreventionAndFilters_SkipStreams() {
+        start(ZelloRelayConfig.builder().ignoredSpeakers(Set.of("bridge"))
+                .streamFilter(event -> !"carol".equals(event.getFrom())).build());
+
+        sourceListener.onStreamStartEvent(streamStart(1, "relay-out"));
+        sourceListener.onStreamStartEvent(streamStart(2, "bridge"));
+        sourceListener.onStreamStartEvent(streamStart(3, "carol"));
+        sourceListener.onOpusPacket(1, ByteBuffer.wrap(new byte[]{1}));
+
+        verify(target, never()).startVoiceStream(anyString(), anyInt());
+        verify(target, never()).sendOpusData(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testOverlappingStream_IsSkippedWhileAnotherIsRelayed() {
+        ZelloChannelRelay relay = start(ZelloRelayConfig.builder().build());
+
+        sourceListener.onStreamStartEvent(streamStart(1, "alice"));
+        sourceListener.onStreamStartEvent(streamStart(2, "bob"));
+        sourceListener.onOpusPacket(2, ByteBuffer.wrap(new byte[]{1}));
+        sourceListener.onStreamStopped(2, "bob");
+
+        assertEquals(relay.getRelayedStreamId(), 1);
+        verify(target, times(1)).startVoiceStream(anyString(), anyInt());
+        verify(target, never()).sendOpusData(any(), anyInt(), anyInt());
+        verify(target, never()).stopVoiceStream();
+    }
+
+    @Test
+    public void testRefusedTargetStream_DropsTheRestOfTheSourceStream() {
+        CompletableFuture<Integer> targetStream = new CompletableFuture<>();
+        when(target.startVoiceStream(anyString(), anyInt())).thenReturn(targetStream);
+        ZelloChannelRelay relay = start(ZelloRelayConfig.builder().build());
+
+        sourceListener.onStreamStartEvent(streamStart(1, "alice"));
+        targetStream.completeExceptionally(new IllegalStateException("channel is busy"));
+        sourceListener.onOpusPacket(1, ByteBuffer.wrap(new byte[]{1}));
+
+        assertEquals(relay.getRelayedStreamId(), -1);
+        verify(target, never()).sendOpusData(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testClose_UnsubscribesAndStopsTheRelayedStream() {
+        ZelloChannelRelay relay = start(ZelloRelayConfig.builder().build());
+        sourceListener.onStreamStartEvent(streamStart(1, "alice"));
+
+        relay.close();
+
+        verify(source).removeListener(sourceListener);
+        verify(target).stopVoiceStream();
+    }
+
+    private ZelloChannelRelay start(ZelloRelayConfig config) {
+        ZelloChannelRelay relay = new ZelloChannelRelay(source, target, config);
+        relay.start();
+        ArgumentCaptor<ZelloChannelListener> listener = ArgumentCaptor.forClass(ZelloChannelListener.class);
+        ArgumentCaptor<Subscription> subscription = ArgumentCaptor.forClass(Subscription.class);
+        verify(source).addListener(listener.capture(), subscription.capture());
+        assertFalse(subscription.getValue().wants(ChannelEvent.AUDIO), "The relay must not cause decoding");
+        sourceListener = listener.getValue();
+        return relay;
+    }
+
+    private static OnStreamStartEvent streamStart(int streamId, String from) {
+        OnStreamStartEvent event = new OnStreamStartEvent();
+        event.setStreamId(streamId);
+        event.setFrom(from);
+        event.setCodecHeader(CODEC_HEADER);
+        event.setPacketDuration(60);
+        return event;
+    }
+
+}
@@ -1,19 +1,38 @@
 package io.github.ceakins.zello;
 
 import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.internal.BinaryPacketHandler;
 import io.github.ceakins.zello.internal.WebSocketClientFactory;
-import io.github.ceakins.zello.internal.ZelloWebSocketClient;
+import io.github.ceakins.zello.internal.ZelloTransport;
 import io.github.ceakins.zello.internal.audio.AudioEngine;
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import io.github.ceakins.zello.model.events.ChannelUser;
 import io.github.ceakins.zello.model.events.OnChannelStatusEvent;
+import io.github.ceakins.zello.model.events.OnStreamStartEvent;
+import io.github.ceakins.zello.model.events.OnStreamStopEvent;
 import io.github.ceakins.zello.model.events.OnTextMessageEvent;
 import org.json.JSONObject;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
@@ -22,11 +41,13 @@ public class ZelloChannelTest {
     @Mock
     private AudioEngine mockAudioEngine;
     @Mock
-    private ZelloWebSocketClient mockWebSocketClient;
+    private ZelloTransport mockWebSocketClient;
     @Mock
     private WebSocketClientFactory mockWebSocketFactory;
     @Mock
     private ZelloChannelListener mockListener;
+    @Captor
+    private ArgumentCaptor<List<RosterChange>> rosterChanges;
 
     private ZelloChannel zelloChannel;
     private ZelloChannelConfig config;
@@ -76,6 +97,24 @@ public class ZelloChannelTest {
         verify(mockListener, times(1)).onConnected();
     }
 
+    @Test
+    public void testOnServerCommand_ChannelStatusUsers_UpdatesRosterAndNotifiesChanges() {
+        ChannelUser alice = new ChannelUser();
+        alice.setName("alice");
+        alice.setStatus("online");
+        OnChannelStatusEvent event = new OnChannelStatusEvent();
+        event.setStatus("online");
+        event.setUsers(List.of(alice));
+
+        zelloChannel.onServerCommand(event);
+        zelloChannel.onServerCommand(event);
+
+        assertEquals(zelloChannel.getRoster().getStatus("alice"), "online");
+        verify(mockListener, times(1)).onRosterChanged(rosterChanges.capture());
+        assertTrue(rosterChanges.getValue().get(0).isJoin());
+        verify(mockListener, times(1)).onConnected();
+    }
+
     @Test
     public void testOnServerCommand_TextMessage_NotifiesListener() {
         OnTextMessageEvent event = new OnTextMessageEvent();
@@ -87,6 +126,185 @@ public class ZelloChannelTest {
         verify(mockListener, times(1)).onTextMessage("otheruser", "Hello");
     }
 
+    @Test
+    public void testOpusOnlySubscriber_ReceivesPacketsWithoutDecoding() {
+        ZelloChannelListener recorder = mock(ZelloChannelListener.class);
+        zelloChannel.setListener(null);
+        zelloChannel.addListener(recorder, Subscription.builder().events(EnumSet.of(ChannelEvent.STREAM, ChannelEvent.OPUS)).build());
+        ByteBuffer packet = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+        zelloChannel.onServerCommand(streamStart(5, "bob"));
+        zelloChannel.onAudioPacket(5, packet);
+
+        verify(recorder).onStreamStarted(5, "bob");
+        verify(recorder).onOpusPacket(5, packet);
+        verify(mockAudioEngine, never()).startDecodingSession(anyInt());
+        verify(mockAudioEngine, never()).decode(anyInt(), any(ByteBuffer.class), any(byte[].class));
+    }
+
+    @Test
+    public void testSpeakerFilter_DecodesOnlyWantedStreams() {
+        ZelloChannelListener dispatcher = mock(ZelloChannelListener.class);
+        zelloChannel.setListener(null);
+        zelloChannel.addListener(dispatcher, Subscription.builder().speakers(Set.of("alice")).build());
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenReturn(4);
+
+        zelloChannel.onServerCommand(streamStart(5, "bob"));
+        zelloChannel.onServerCommand(streamStart(6, "alice"));
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+        zelloChannel.onAudioPacket(6, ByteBuffer.wrap(new byte[]{1}));
+        zelloChannel.onAudioPacket(6, ByteBuffer.wrap(new byte[]{1}));
+
+        verify(mockAudioEngine, never()).startDecodingSession(5);
+        verify(mockAudioEngine, times(1)).startDecodingSession(6);
+        verify(dispatcher, never()).onStreamStarted(5, "bob");
+        verify(dispatcher, times(2)).onAudioData(eq(6), any());
+    }
+
+    @Test
+    public void testRemovingLastPcmListener_ReleasesDecoderOnNextPacket() {
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenReturn(4);
+        zelloChannel.onServerCommand(streamStart(5, "bob"));
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+
+        zelloChannel.removeListener(mockListener);
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+
+        verify(mockAudioEngine).startDecodingSession(5);
+        verify(mockAudioEngine).stopDecodingSession(5);
+        verify(mockListener, times(1)).onAudioData(eq(5), any());
+    }
+
+    @Test
+    public void testEventMask_DeliversOnlySubscribedEvents() {
+        ZelloChannelListener textOnly = mock(ZelloChannelListener.class);
+        zelloChannel.addListener(textOnly, Subscription.builder().events(EnumSet.of(ChannelEvent.TEXT)).build());
+        OnChannelStatusEvent online = new OnChannelStatusEvent();
+        online.setStatus("online");
+        OnTextMessageEvent text = new OnTextMessageEvent();
+        text.setFrom("bob");
+        text.setMessage("hi");
+
+        zelloChannel.onServerCommand(online);
+        zelloChannel.onServerCommand(text);
+
+        verify(textOnly, never()).onConnected();
+        verify(textOnly).onTextMessage("bob", "hi");
+        verify(mockListener).onConnected();
+        verify(mockListener).onTextMessage("bob", "hi");
+    }
+
+    @Test
+    public void testDecodeThreads_DecodeOffTheReceiveThreadAndStopAfterTheLastFrame() throws Exception {
+        ZelloChannelConfig stagedConfig = ZelloChannelConfig.builder().serverUrl("wss://test.zello.com/ws").username("testuser")
+                .password("testpass").channel("testchannel").decodeThreads(2).build();
+        ZelloChannel staged = new ZelloChannel(stagedConfig, mockAudioEngine, mockWebSocketFactory);
+        ZelloChannelListener listener = mock(ZelloChannelListener.class);
+        staged.setListener(listener);
+        staged.connect();
+        Set<Thread> decodeThreads = ConcurrentHashMap.newKeySet();
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenAnswer(invocation -> {
+            decodeThreads.add(Thread.currentThread());
+            return 4;
+        });
+        OnStreamStopEvent stop = new OnStreamStopEvent();
+        stop.setStreamId(5);
+
+        staged.onServerCommand(streamStart(5, "bob"));
+        for (int i = 0; i < 10; i++) {
+            staged.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+        }
+        staged.onServerCommand(stop);
+
+        verify(listener, timeout(5000)).onStreamStopped(5, "bob");
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener, times(10)).onAudioData(eq(5), any());
+        inOrder.verify(listener).onStreamStopped(5, "bob");
+        verify(mockAudioEngine).stopDecodingSession(5);
+        assertEquals(decodeThreads.size(), 1);
+        assertFalse(decodeThreads.contains(Thread.currentThread()));
+        staged.onClose("bye");
+    }
+
+    @Test
+    public void testDecodeThreads_DecodeAgainAfterAReconnect() throws Exception {
+        ZelloChannelConfig stagedConfig = ZelloChannelConfig.builder().serverUrl("wss://test.zello.com/ws").username("testuser")
+                .password("testpass").channel("testchannel").decodeThreads(2).build();
+        ZelloChannel staged = new ZelloChannel(stagedConfig, mockAudioEngine, mockWebSocketFactory);
+        ZelloChannelListener listener = mock(ZelloChannelListener.class);
+        staged.setListener(listener);
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenReturn(4);
+        staged.connect();
+        staged.onServerCommand(streamStart(5, "bob"));
+        staged.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+        verify(listener, timeout(5000)).onAudioData(eq(5), any());
+
+        staged.disconnect();
+        staged.onClose("bye");
+        verify(mockAudioEngine, timeout(5000)).stopDecodingSession(5);
+        staged.connect();
+        staged.onServerCommand(streamStart(6, "bob"));
+        staged.onAudioPacket(6, ByteBuffer.wrap(new byte[]{1}));
+
+        verify(listener, timeout(5000)).onAudioData(eq(6), any());
+        staged.onClose("bye");
+    }
+
+    @Test
+    public void testBinaryHandlers_ApplyToTheCurrentAndEveryLaterTransport() throws Exception {
+        BinaryPacketHandler handler = packet -> { };
+
+        zelloChannel.registerBinaryHandler(0x10, handler);
+        verify(mockWebSocketClient).registerBinaryHandler(0x10, handler);
+
+        ZelloChannel channel = new ZelloChannel(config, mockAudioEngine, mockWebSocketFactory);
+        channel.registerBinaryHandler(0x11, handler);
+        channel.connect();
+        verify(mockWebSocketClient).registerBinaryHandler(0x11, handler);
+        assertThrows(IllegalArgumentException.class, () -> channel.registerBinaryHandler(256, handler));
+    }
+
+    @Test
+    public void testIdleStream_IsReapedAndReportedStopped() {
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenReturn(4);
+        zelloChannel.onServerCommand(streamStart(5, "bob"));
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+
+        zelloChannel.reapIdleStreams(System.nanoTime());
+        verify(mockListener, never()).onStreamStopped(anyInt(), any());
+
+        zelloChannel.reapIdleStreams(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getIncomingStreamIdleTimeoutMs() + 1));
+        verify(mockAudioEngine, timeout(5000)).stopDecodingSession(5);
+        verify(mockListener, timeout(5000)).onStreamStopped(5, "bob");
+
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+        verify(mockListener, times(1)).onAudioData(eq(5), any());
+    }
+
+    @Test
+    public void testPacketArrivingWhileItsStreamIsReaped_DoesNotStartANewDecoder() throws Exception {
+        when(mockAudioEngine.decode(anyInt(), any(ByteBuffer.class), any(byte[].class))).thenReturn(4);
+        CountDownLatch stopped = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            stopped.countDown();
+            return null;
+        }).when(mockListener).onStreamStopped(5, "bob");
+        zelloChannel.onServerCommand(streamStart(5, "bob"));
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{1}));
+        // The second packet has already found its stream when the reaper ends it.
+        doAnswer(invocation -> {
+            zelloChannel.reapIdleStreams(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getIncomingStreamIdleTimeoutMs() + 1));
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(mockListener).onOpusPacket(eq(5), any());
+
+        zelloChannel.onAudioPacket(5, ByteBuffer.wrap(new byte[]{2}));
+
+        verify(mockAudioEngine, times(1)).startDecodingSession(5);
+        verify(mockAudioEngine, times(1)).stopDecodingSession(5);
+        verify(mockListener, times(1)).onAudioData(eq(5), any());
+    }
+
     @Test
     public void testSendTextMessage_SendsCorrectJson() {
         // --- THIS IS THE CRITICAL FIX ---
@@ -112,4 +330,168 @@ public class ZelloChannelTest {
         assertEquals(json.getString("channel"), "testchannel");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testServerResponse_RecordsCommandRoundTrip() throws Exception {
+        InMemoryZelloMetrics metrics = new InMemoryZelloMetrics();
+        ZelloChannelConfig metricsConfig = ZelloChannelConfig.builder().serverUrl("wss://test.zello.com/ws").username("testuser").password("testpass").channel("testchannel").metrics(metrics).build();
+        ZelloChannel channel = new ZelloChannel(metricsConfig, mockAudioEngine, mockWebSocketFactory);
+        channel.connect();
+
+        channel.onOpen();
+        channel.onServerResponse(new JSONObject().put("seq", 1).put("success", true));
+
+        assertEquals(metrics.getCommandRoundTrip().get("logon").getCount(), 1);
+    }
+
+    @Test
+    public void testVoiceFramesBeforeStreamId_AreQueuedAndFlushedInOrder() throws Exception {
+        goOnline();
+        when(mockAudioEngine.encode(anyInt(), any(byte[].class), any(byte[].class), eq(0))).thenReturn(3);
+        byte[] pcm = new byte[640];
+
+        CompletableFuture<Integer> ready = zelloChannel.startVoiceStream();
+        zelloChannel.sendVoiceData(pcm);
+        zelloChannel.sendVoiceData(pcm);
+        zelloChannel.sendVoiceData(pcm);
+        verify(mockWebSocketClient, never()).send(any(byte[].class));
+
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", 42));
+        zelloChannel.sendVoiceData(pcm);
+
+        assertEquals(ready.get(1, TimeUnit.SECONDS).intValue(), 42);
+        ArgumentCaptor<byte[]> packets = ArgumentCaptor.forClass(byte[].class);
+        verify(mockWebSocketClient, times(4)).send(packets.capture());
+        for (int i = 0; i < 4; i++) {
+            ByteBuffer header = ByteBuffer.wrap(packets.getAllValues().get(i));
+            assertEquals(header.get(), 0x01);
+            assertEquals(header.getInt(), 42);
+            assertEquals(header.getInt(), i);
+        }
+    }
+
+    @Test
+    public void testStopBeforeStreamId_SendsQueuedFramesThenStops() throws Exception {
+        goOnline();
+        when(mockAudioEngine.encode(anyInt(), any(byte[].class), any(byte[].class), eq(0))).thenReturn(3);
+
+        zelloChannel.startVoiceStream();
+        zelloChannel.sendVoiceData(new byte[640]);
+        zelloChannel.stopVoiceStream();
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", 42));
+
+        InOrder inOrder = inOrder(mockWebSocketClient);
+        inOrder.verify(mockWebSocketClient).send(any(byte[].class));
+        ArgumentCaptor<String> commands = ArgumentCaptor.forClass(String.class);
+        inOrder.verify(mockWebSocketClient, atLeastOnce()).send(commands.capture());
+        JSONObject stop = new JSONObject(commands.getValue());
+        assertEquals(stop.getString("command"), "stop_stream");
+        assertEquals(stop.getInt("stream_id"), 42);
+    }
+
+    @Test
+    public void testRefusedStream_FailsFutureAndDropsQueuedFrames() {
+        goOnline();
+        when(mockAudioEngine.encode(anyInt(), any(byte[].class), any(byte[].class), eq(0))).thenReturn(3);
+
+        CompletableFuture<Integer> ready = zelloChannel.startVoiceStream();
+        zelloChannel.sendVoiceData(new byte[640]);
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", false).put("error", "channel is busy"));
+
+        assertTrue(ready.isCompletedExceptionally());
+        verify(mockListener).onError(contains("channel is busy"), isNull());
+        zelloChannel.sendVoiceData(new byte[640]);
+        verify(mockWebSocketClient, never()).send(any(byte[].class));
+        verify(mockAudioEngine, times(1)).encode(anyInt(), any(byte[].class), any(byte[].class), eq(0));
+    }
+
+    @Test
+    public void testConcurrentSenders_GetUniqueSequentialPacketIds() throws Exception {
+        goOnline();
+        when(mockAudioEngine.startEncodingSession()).thenReturn(7);
+        when(mockAudioEngine.encode(anyInt(), any(byte[].class), any(byte[].class), eq(0))).thenReturn(3);
+        zelloChannel.startVoiceStream();
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", 42));
+        int threads = 4;
+        int framesPerThread = 250;
+        ExecutorService senders = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            senders.execute(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < framesPerThread; i++) {
+                    zelloChannel.sendVoiceData(new byte[640]);
+                }
+            });
+        }
+        start.countDown();
+        senders.shutdown();
+        assertTrue(senders.awaitTermination(10, TimeUnit.SECONDS));
+
+        ArgumentCaptor<byte[]> packets = ArgumentCaptor.forClass(byte[].class);
+        verify(mockWebSocketClient, times(threads * framesPerThread)).send(packets.capture());
+        List<byte[]> sent = packets.getAllValues();
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(ByteBuffer.wrap(sent.get(i), 5, 4).getInt(), i);
+        }
+        verify(mockAudioEngine, times(threads * framesPerThread)).encode(eq(7), any(byte[].class), any(byte[].class), eq(0));
+
+        zelloChannel.stopVoiceStream();
+        verify(mockAudioEngine).stopEncodingSession(7);
+    }
+
+    @Test
+    public void testSendOpusData_AddsThisChannelsHeaderWithoutEncoding() {
+        goOnline();
+        zelloChannel.startVoiceStream();
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", 42));
+
+        zelloChannel.sendOpusData(new byte[]{0, 9, 8, 7}, 1, 3);
+
+        ArgumentCaptor<byte[]> packet = ArgumentCaptor.forClass(byte[].class);
+        verify(mockWebSocketClient).send(packet.capture());
+        assertEquals(packet.getValue(), new byte[]{1, 0, 0, 0, 42, 0, 0, 0, 0, 9, 8, 7});
+        verify(mockAudioEngine, never()).encode(anyInt(), any(byte[].class), any(byte[].class), anyInt());
+    }
+
+    @Test
+    public void testRelayedStream_AnnouncesItsCodecHeaderWithoutCreatingAnEncoder() {
+        goOnline();
+
+        zelloChannel.startVoiceStream("QB8BPA==", 60);
+        zelloChannel.onServerResponse(new JSONObject().put("seq", 2).put("success", true).put("stream_id", 42));
+        zelloChannel.sendOpusData(new byte[]{9, 8, 7}, 0, 3);
+        zelloChannel.stopVoiceStream();
+
+        ArgumentCaptor<String> commands = ArgumentCaptor.forClass(String.class);
+        verify(mockWebSocketClient, atLeastOnce()).send(commands.capture());
+        JSONObject start = new JSONObject(commands.getAllValues().get(commands.getAllValues().size() - 2));
+        assertEquals(start.getString("command"), "start_stream");
+        assertEquals(start.getString("codec_header"), "QB8BPA==");
+        assertEquals(start.getInt("packet_duration"), 60);
+        verify(mockAudioEngine, never()).startEncodingSession();
+        verify(mockAudioEngine, never()).stopEncodingSession(anyInt());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void goOnline() {
+        zelloChannel.onOpen();
+        OnChannelStatusEvent online = new OnChannelStatusEvent();
+        online.setStatus("online");
+        zelloChannel.onServerCommand(online);
+    }
+
+    private static OnStreamStartEvent streamStart(int streamId, String from) {
+        OnStreamStartEvent event = new OnStreamStartEvent();
+        event.setStreamId(streamId);
+        event.setFrom(from);
+        return event;
+    }
+
+}
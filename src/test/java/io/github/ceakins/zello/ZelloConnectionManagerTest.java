@@ -0,0 +1,82 @@
+package io.github.ceakins.zello;
+
+import io.github.ceakins.zello.events.ZelloChannelListener;
+import io.github.ceakins.zello.testing.MockZelloServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ZelloConnectionManagerTest {
+
+    private static final long TIMEOUT_MS = 5000;
+    private static final int IO_THREADS = 2;
+
+    private MockZelloServer server;
+    private ZelloConnectionManager manager;
+    private final List<ZelloChannel> channels = new ArrayList<>();
+    private final List<ZelloChannelListener> listeners = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = MockZelloServer.startNew();
+        manager = new ZelloConnectionManager(IO_THREADS);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        channels.forEach(ZelloChannel::disconnect);
+        channels.clear();
+        listeners.clear();
+        manager.close();
+        server.close();
+    }
+
+    @Test
+    public void testThreadCount_StaysFlatAsChannelsAreAdded() throws Exception {
+        connectChannels(10);
+        int threadsWithTenChannels = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        connectChannels(40);
+        int threadsWithFiftyChannels = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        assertEquals(manager.getChannelCount(), 50);
+        assertTrue(threadsWithFiftyChannels - threadsWithTenChannels <= IO_THREADS,
+                "Thread count grew from " + threadsWithTenChannels + " to " + threadsWithFiftyChannels);
+    }
+
+    @Test
+    public void testTextMessage_ReachesEveryManagedChannel() throws Exception {
+        connectChannels(20);
+
+        channels.get(0).sendTextMessage("hello");
+
+        for (int i = 1; i < listeners.size(); i++) {
+            verify(listeners.get(i), timeout(TIMEOUT_MS)).onTextMessage("user-0", "hello");
+        }
+    }
+
+    private void connectChannels(int count) throws Exception {
+        int first = channels.size();
+        for (int i = first; i < first + count; i++) {
+            ZelloChannelConfig config = ZelloChannelConfig.builder().serverUrl(server.getUrl()).username("user-" + i)
+                    .password("secret").channel("managed").build();
+            ZelloChannelListener listener = mock(ZelloChannelListener.class);
+            ZelloChannel channel = manager.createChannel(config);
+            channel.setListener(listener);
+            channel.connect();
+            channels.add(channel);
+            listeners.add(listener);
+        }
+        for (int i = first; i < channels.size(); i++) {
+            verify(listeners.get(i), timeout(TIMEOUT_MS)).onConnected();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.github.ceakins.zello.dsp;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class AudioProcessorChainTest {
+
+    @Test
+    public void testEmptyChain_LeavesPcmUnchanged() {
+        byte[] pcm = pcm((short) 0, (short) 1, (short) -1, Short.MAX_VALUE, Short.MIN_VALUE, (short) 12345);
+        byte[] original = pcm.clone();
+
+        AudioProcessorChain.of().process(pcm, 0, pcm.length);
+
+        assertEquals(pcm, original);
+    }
+
+    @Test
+    public void testStages_RunInOrderAndTheResultIsClipped() {
+        List<String> calls = new ArrayList<>();
+        AudioProcessor doubler = (samples, length) -> {
+            calls.add("double");
+            for (int i = 0; i < length; i++) {
+                samples[i] *= 2;
+            }
+        };
+        AudioProcessor recorder = (samples, length) -> calls.add("record " + length);
+        byte[] pcm = pcm((short) 1000, (short) 30000, (short) -30000);
+
+        AudioProcessorChain.of(doubler, recorder).process(pcm, 0, pcm.length);
+
+        assertEquals(calls, List.of("double", "record 3"));
+        ByteBuffer result = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(result.getShort(), 2000);
+        assertEquals(result.getShort(), Short.MAX_VALUE);
+        assertEquals(result.getShort(), Short.MIN_VALUE);
+    }
+
+    private static byte[] pcm(short... samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        return buffer.array();
+    }
+
+}
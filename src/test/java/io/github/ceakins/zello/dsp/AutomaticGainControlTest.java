@@ -0,0 +1,71 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class AutomaticGainControlTest {
+
+    private final float[] frame = new float[AudioConstants.SAMPLES_PER_FRAME];
+
+    @Test
+    public void testQuietSpeech_IsBroughtUpToTheTarget() {
+        AutomaticGainControl agc = new AutomaticGainControl(-20, 24);
+
+        // -40 dBFS in; the full 20 dB of gain is reached over a few seconds.
+        for (int f = 0; f < 300; f++) {
+            fill(0.01f);
+            agc.process(frame, frame.length);
+        }
+
+        assertEquals(20 * Math.log10(rms(frame)), -20, 1);
+    }
+
+    @Test
+    public void testLoudBurst_IsPulledDownWithoutClipping() {
+        AutomaticGainControl agc = new AutomaticGainControl(-20, 24);
+        for (int f = 0; f < 300; f++) {
+            fill(0.01f);
+            agc.process(frame, frame.length);
+        }
+
+        fill(0.6f);
+        agc.process(frame, frame.length);
+
+        for (float sample : frame) {
+            assertTrue(Math.abs(sample) <= 0.9f, "Sample " + sample + " exceeds -1 dBFS");
+        }
+        assertTrue(agc.getGain() < 1.5f);
+    }
+
+    @Test
+    public void testSilence_HoldsTheGain() {
+        AutomaticGainControl agc = new AutomaticGainControl();
+        fill(0.3f);
+        agc.process(frame, frame.length);
+        float gain = agc.getGain();
+
+        for (int f = 0; f < 100; f++) {
+            fill(0.001f);
+            agc.process(frame, frame.length);
+        }
+
+        assertEquals(agc.getGain(), gain);
+    }
+
+    private void fill(float amplitude) {
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (float) (amplitude * Math.sqrt(2) * Math.sin(2 * Math.PI * 500 * i / AudioConstants.SAMPLE_RATE));
+        }
+    }
+
+    private static double rms(float[] samples) {
+        double sum = 0;
+        for (float sample : samples) {
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / samples.length);
+    }
+
+}
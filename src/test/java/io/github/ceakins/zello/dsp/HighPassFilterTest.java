@@ -0,0 +1,57 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class HighPassFilterTest {
+
+    @Test
+    public void testHum_IsRemovedAndVoiceFrequenciesPass() {
+        assertTrue(gainDb(60) < -25, "60 Hz hum passed at " + gainDb(60) + " dB");
+        assertTrue(gainDb(100) < -15, "A 100 Hz CTCSS tone passed at " + gainDb(100) + " dB");
+        assertEquals(gainDb(1000), 0, 0.5);
+        assertEquals(gainDb(3000), 0, 0.5);
+    }
+
+    @Test
+    public void testInvalidCutoff_IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HighPassFilter(0));
+        assertThrows(IllegalArgumentException.class, () -> new HighPassFilter(AudioConstants.SAMPLE_RATE / 2.0));
+    }
+
+    /**
+     * Filters a second of a tone, one frame at a time, and compares the level of its last half with the input's.
+     */
+    private static double gainDb(double frequencyHz) {
+        HighPassFilter filter = new HighPassFilter();
+        float[] frame = new float[AudioConstants.SAMPLES_PER_FRAME];
+        double inputSquares = 0;
+        double outputSquares = 0;
+        int frames = AudioConstants.SAMPLE_RATE / frame.length;
+        for (int f = 0; f < frames; f++) {
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequencyHz * (f * frame.length + i) / AudioConstants.SAMPLE_RATE));
+            }
+            boolean settled = f >= frames / 2;
+            if (settled) {
+                inputSquares += sumOfSquares(frame);
+            }
+            filter.process(frame, frame.length);
+            if (settled) {
+                outputSquares += sumOfSquares(frame);
+            }
+        }
+        return 10 * Math.log10(outputSquares / inputSquares);
+    }
+
+    private static double sumOfSquares(float[] samples) {
+        double sum = 0;
+        for (float sample : samples) {
+            sum += sample * sample;
+        }
+        return sum;
+    }
+
+}
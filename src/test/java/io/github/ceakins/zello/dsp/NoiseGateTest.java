@@ -0,0 +1,69 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class NoiseGateTest {
+
+    private final float[] frame = new float[AudioConstants.SAMPLES_PER_FRAME];
+
+    @Test
+    public void testQuietNoise_IsAttenuatedByTheFloor() {
+        NoiseGate gate = new NoiseGate();
+        Random random = new Random(1);
+        double before = 0;
+        double after = 0;
+        for (int f = 0; f < 25; f++) {
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (float) (0.001 * random.nextGaussian());
+            }
+            before += rms(frame);
+            gate.process(frame, frame.length);
+            after += rms(frame);
+        }
+
+        assertFalse(gate.isOpen());
+        assertTrue(after < before * 0.04, "Gated noise kept " + after / before + " of its level");
+    }
+
+    @Test
+    public void testSpeech_OpensTheGateAndItClosesAfterTheHoldTime() {
+        NoiseGate gate = new NoiseGate(-45, -50, 100, -30);
+
+        fill(0.3f);
+        gate.process(frame, frame.length);
+        fill(0.3f);
+        gate.process(frame, frame.length);
+        assertTrue(gate.isOpen());
+        assertEquals(rms(frame), 0.3, 0.01);
+
+        fill(0);
+        int silentFrames = 0;
+        while (gate.isOpen() && silentFrames < 50) {
+            gate.process(frame, frame.length);
+            silentFrames++;
+        }
+        // The envelope takes a few frames to decay below the close threshold, then the gate holds for 100 ms.
+        assertFalse(gate.isOpen());
+        assertTrue(silentFrames > 5 && silentFrames < 25, "Closed after " + silentFrames + " silent frames");
+    }
+
+    private void fill(float amplitude) {
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (float) (amplitude * Math.sqrt(2) * Math.sin(2 * Math.PI * 500 * i / AudioConstants.SAMPLE_RATE));
+        }
+    }
+
+    private static double rms(float[] samples) {
+        double sum = 0;
+        for (float sample : samples) {
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / samples.length);
+    }
+
+}
@@ -0,0 +1,101 @@
+package io.github.ceakins.zello.dsp;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class SpectralNoiseSuppressorTest {
+
+    private static final int LATENCY = 256;
+
+    @Test
+    public void testFft_RoundTripsAndFindsATone() {
+        Fft fft = new Fft(64);
+        float[] re = new float[64];
+        float[] im = new float[64];
+        for (int n = 0; n < re.length; n++) {
+            re[n] = (float) Math.cos(2 * Math.PI * 5 * n / re.length);
+        }
+        float[] original = re.clone();
+
+        fft.transform(re, im, false);
+        assertEquals(re[5], 32, 1e-3);
+        assertEquals(re[59], 32, 1e-3);
+        assertEquals(re[6], 0, 1e-3);
+        fft.transform(re, im, true);
+
+        for (int n = 0; n < re.length; n++) {
+            assertEquals(re[n], original[n], 1e-5);
+        }
+    }
+
+    @Test
+    public void testToneAlone_PassesUnchangedAfterTheLatency() {
+        SpectralNoiseSuppressor suppressor = new SpectralNoiseSuppressor(0);
+        float[] signal = new float[AudioConstants.SAMPLE_RATE];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (float) (0.5 * Math.sin(2 * Math.PI * 700 * i / AudioConstants.SAMPLE_RATE));
+        }
+
+        float[] output = processInFrames(suppressor, signal);
+
+        for (int i = LATENCY; i < signal.length; i++) {
+            assertEquals(output[i], signal[i - LATENCY], 1e-4, "Sample " + i);
+        }
+    }
+
+    @Test
+    public void testSteadyNoise_IsSuppressedWhileSpeechBurstsSurvive() {
+        SpectralNoiseSuppressor suppressor = new SpectralNoiseSuppressor();
+        Random random = new Random(7);
+        int seconds = 4;
+        float[] noise = new float[seconds * AudioConstants.SAMPLE_RATE];
+        float[] tone = new float[noise.length];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (float) (0.02 * random.nextGaussian());
+            // A 1 kHz tone during the last half second, standing in for a voice.
+            if (i >= noise.length - AudioConstants.SAMPLE_RATE / 2) {
+                tone[i] = (float) (0.2 * Math.sin(2 * Math.PI * 1000 * i / AudioConstants.SAMPLE_RATE));
+            }
+        }
+        float[] mixed = new float[noise.length];
+        for (int i = 0; i < mixed.length; i++) {
+            mixed[i] = noise[i] + tone[i];
+        }
+
+        float[] output = processInFrames(suppressor, mixed);
+
+        // Noise only, after the estimate has settled: at least 10 dB quieter.
+        int noiseStart = 2 * AudioConstants.SAMPLE_RATE + LATENCY;
+        int noiseEnd = noise.length - AudioConstants.SAMPLE_RATE / 2;
+        assertTrue(rms(output, noiseStart, noiseEnd) < rms(mixed, noiseStart, noiseEnd) / 3,
+                "Noise went from " + rms(mixed, noiseStart, noiseEnd) + " to " + rms(output, noiseStart, noiseEnd));
+        // The tone keeps nearly all of its level.
+        int toneStart = noiseEnd + AudioConstants.SAMPLE_RATE / 10 + LATENCY;
+        assertEquals(rms(output, toneStart, output.length), rms(tone, toneStart, tone.length), 0.02);
+    }
+
+    private static float[] processInFrames(AudioProcessor processor, float[] signal) {
+        float[] output = signal.clone();
+        float[] frame = new float[AudioConstants.SAMPLES_PER_FRAME];
+        for (int offset = 0; offset < output.length; offset += frame.length) {
+            int length = Math.min(frame.length, output.length - offset);
+            System.arraycopy(output, offset, frame, 0, length);
+            processor.process(frame, length);
+            System.arraycopy(frame, 0, output, offset, length);
+        }
+        return output;
+    }
+
+    private static double rms(float[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class HeartbeatMonitorTest {
+
+    private ZelloTransport transport;
+    private InMemoryZelloMetrics metrics;
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private HeartbeatMonitor monitor;
+
+    @BeforeMethod
+    public void setUp() {
+        transport = mock(ZelloTransport.class);
+        when(transport.isOpen()).thenReturn(true);
+        metrics = new InMemoryZelloMetrics();
+        timeouts.set(0);
+        monitor = new HeartbeatMonitor(transport, 1000, 3, metrics, ZelloScheduler.get(), timeouts::incrementAndGet);
+    }
+
+    @Test
+    public void testPong_RecordsRoundTripTime() {
+        monitor.tick();
+        ArgumentCaptor<byte[]> ping = ArgumentCaptor.forClass(byte[].class);
+        verify(transport).sendPing(ping.capture());
+
+        monitor.onPong(ByteBuffer.wrap(ping.getValue()));
+
+        assertTrue(monitor.getLastRttNanos() >= 0);
+        assertEquals(monitor.getSmoothedRttNanos(), monitor.getLastRttNanos());
+        assertEquals(metrics.getHeartbeatRtt().getCount(), 1);
+    }
+
+    @Test
+    public void testSmoothedRtt_MovesAnEighthOfTheWayToEachSample() {
+        long now = System.nanoTime();
+        monitor.onPong(sentAt(now - 8_000_000));
+        monitor.onPong(sentAt(System.nanoTime() - 88_000_000));
+
+        long smoothed = monitor.getSmoothedRttNanos();
+        // 8 ms + (88 ms - 8 ms) / 8 = 18 ms, plus the time taken by the calls themselves.
+        assertTrue(smoothed >= 18_000_000 && smoothed < 25_000_000, "Smoothed RTT " + smoothed);
+    }
+
+    @Test
+    public void testMissedPongs_TriggerTimeoutOnce() {
+        for (int i = 0; i < 3; i++) {
+            monitor.tick();
+        }
+        assertEquals(timeouts.get(), 0);
+
+        monitor.tick();
+        monitor.tick();
+
+        assertEquals(timeouts.get(), 1);
+        verify(transport, times(3)).sendPing(any());
+        assertEquals(metrics.getHeartbeatTimeouts().sum(), 1);
+    }
+
+    @Test
+    public void testPong_ResetsMissedCount() {
+        monitor.tick();
+        monitor.tick();
+        monitor.onPong(sentAt(System.nanoTime()));
+        monitor.tick();
+        monitor.tick();
+
+        monitor.tick();
+
+        assertEquals(timeouts.get(), 0);
+    }
+
+    @Test
+    public void testPongWithForeignPayload_IsIgnored() {
+        monitor.onPong(ByteBuffer.allocate(0));
+        monitor.onPong(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+
+        assertEquals(monitor.getSmoothedRttNanos(), -1);
+        assertEquals(metrics.getHeartbeatRtt().getCount(), 0);
+    }
+
+    private static ByteBuffer sentAt(long nanos) {
+        return ByteBuffer.wrap(ByteBuffer.allocate(Long.BYTES).putLong(nanos).array());
+    }
+
+}
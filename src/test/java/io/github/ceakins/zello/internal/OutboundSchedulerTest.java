@@ -0,0 +1,162 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class OutboundSchedulerTest {
+
+    private ZelloTransport client;
+    private final AtomicBoolean socketBusy = new AtomicBoolean();
+
+    @BeforeMethod
+    public void setUp() {
+        client = mock(ZelloTransport.class);
+        socketBusy.set(false);
+        when(client.isOpen()).thenReturn(true);
+        when(client.hasBufferedData()).thenAnswer(invocation -> socketBusy.get());
+    }
+
+    @Test
+    public void testIdleSocket_SendsOnCallingThread() {
+        OutboundScheduler scheduler = new OutboundScheduler(client, 250, new InMemoryZelloMetrics(), ZelloScheduler.get());
+        byte[] frame = {1};
+
+        assertTrue(scheduler.sendAudio(frame));
+        assertTrue(scheduler.sendControl("{}"));
+
+        verify(client).send(frame);
+        verify(client).send("{}");
+    }
+
+    @Test
+    public void testBusySocket_DrainsAudioBeforeControlBeforeBulk() throws Exception {
+        OutboundScheduler scheduler = new OutboundScheduler(client, 5000, new InMemoryZelloMetrics(), ZelloScheduler.get());
+        byte[] bulk = {2};
+        byte[] frame = {1};
+        socketBusy.set(true);
+
+        scheduler.sendBulk(bulk, 100);
+        scheduler.sendControl("{}");
+        scheduler.sendAudio(frame);
+        scheduler.start();
+        socketBusy.set(false);
+
+        InOrder order = inOrder(client);
+        order.verify(client, timeout(1000)).send(frame);
+        order.verify(client, timeout(1000)).send("{}");
+        order.verify(client, timeout(1000)).send(bulk);
+        scheduler.close();
+    }
+
+    @Test
+    public void testBusySocket_IsPolledLessOftenTheLongerItStaysBusy() {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        OutboundScheduler scheduler = new OutboundScheduler(client, 5000, new InMemoryZelloMetrics(), executor);
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        socketBusy.set(true);
+        scheduler.sendControl("{}");
+        scheduler.start();
+        verify(executor).execute(drain.capture());
+
+        drain.getValue().run();
+        for (long delay : new long[]{1000, 2000, 4000, 8000, 10_000, 10_000}) {
+            verify(executor).schedule(drain.capture(), eq(delay), eq(TimeUnit.MICROSECONDS));
+            clearInvocations(executor);
+            drain.getValue().run();
+        }
+        socketBusy.set(false);
+        drain.getValue().run();
+        verify(client).send("{}");
+
+        socketBusy.set(true);
+        scheduler.sendControl("{}");
+        verify(executor).execute(drain.capture());
+        drain.getValue().run();
+        verify(executor).schedule(any(Runnable.class), eq(1000L), eq(TimeUnit.MICROSECONDS));
+        scheduler.close();
+    }
+
+    @Test
+    public void testStaleAudio_IsDroppedAndCounted() throws Exception {
+        InMemoryZelloMetrics metrics = new InMemoryZelloMetrics();
+        OutboundScheduler scheduler = new OutboundScheduler(client, 0, metrics, ZelloScheduler.get());
+        socketBusy.set(true);
+
+        scheduler.sendAudio(new byte[]{1});
+        scheduler.sendControl("{}");
+        Thread.sleep(5);
+        scheduler.start();
+        socketBusy.set(false);
+
+        verify(client, timeout(1000)).send("{}");
+        verify(client, never()).send(any(byte[].class));
+        assertEquals(scheduler.getExpiredAudioFrameCount(), 1);
+        assertEquals(metrics.getExpiredAudioFrames().sum(), 1);
+        scheduler.close();
+    }
+
+    @Test
+    public void testBulk_BlocksWhileEarlierBulkPacketIsQueued() throws Exception {
+        OutboundScheduler scheduler = new OutboundScheduler(client, 250, new InMemoryZelloMetrics(), ZelloScheduler.get());
+        socketBusy.set(true);
+
+        assertTrue(scheduler.sendBulk(new byte[]{1}, 10));
+        assertFalse(scheduler.sendBulk(new byte[]{2}, 10));
+
+        scheduler.close();
+        assertFalse(scheduler.sendBulk(new byte[]{3}, 10));
+    }
+
+    @Test
+    public void testSharedExecutor_AlternatesBetweenConnections() throws Exception {
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        ZelloTransport other = mock(ZelloTransport.class);
+        when(other.isOpen()).thenReturn(true);
+        when(other.hasBufferedData()).thenAnswer(invocation -> socketBusy.get());
+        doAnswer(invocation -> sent.add("a")).when(client).send(any(String.class));
+        doAnswer(invocation -> sent.add("b")).when(other).send(any(String.class));
+        OutboundScheduler first = new OutboundScheduler(client, 250, new InMemoryZelloMetrics(), executor);
+        OutboundScheduler second = new OutboundScheduler(other, 250, new InMemoryZelloMetrics(), executor);
+        socketBusy.set(true);
+        for (int i = 0; i < 3; i++) {
+            first.sendControl("{}");
+            second.sendControl("{}");
+        }
+        socketBusy.set(false);
+
+        // Hold the executor until both connections have work pending, so neither gets a head start.
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        first.start();
+        second.start();
+        release.countDown();
+
+        verify(other, timeout(1000).times(3)).send("{}");
+        assertEquals(sent, List.of("a", "b", "a", "b", "a", "b"));
+        executor.shutdownNow();
+    }
+
+}
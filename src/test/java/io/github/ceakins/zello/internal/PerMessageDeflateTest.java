@@ -0,0 +1,94 @@
+package io.github.ceakins.zello.internal;
+
+import io.github.ceakins.zello.CompressionConfig;
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class PerMessageDeflateTest {
+
+    private static final byte[] MESSAGE = ("{\"command\":\"send_text_message\",\"seq\":7,\"text\":\"" + "status ok ".repeat(20) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testOffer_ReflectsConfig() {
+        assertEquals(codec(CompressionConfig.builder().build()).offer(), "permessage-deflate");
+
+        CompressionConfig config = CompressionConfig.builder().serverMaxWindowBits(10)
+                .serverNoContextTakeover(true).clientNoContextTakeover(true).build();
+        assertEquals(codec(config).offer(),
+                "permessage-deflate; client_no_context_takeover; server_no_context_takeover; server_max_window_bits=10");
+    }
+
+    @Test
+    public void testAccept_RejectsParametersItCannotHonour() {
+        PerMessageDeflate codec = codec(CompressionConfig.builder().build());
+
+        assertTrue(codec.accept(Map.of("server_no_context_takeover", "", "server_max_window_bits", "12")));
+        assertFalse(codec.accept(Map.of("client_max_window_bits", "10")));
+        assertFalse(codec.accept(Map.of("server_max_window_bits", "7")));
+        assertFalse(codec.accept(Map.of("unknown", "")));
+    }
+
+    @Test
+    public void testCompress_RoundTripsWithContextTakeover() throws Exception {
+        InMemoryZelloMetrics metrics = new InMemoryZelloMetrics();
+        PerMessageDeflate sender = new PerMessageDeflate(CompressionConfig.builder().build(), metrics);
+        PerMessageDeflate receiver = new PerMessageDeflate(CompressionConfig.builder().build(), metrics);
+
+        byte[] first = sender.compress(MESSAGE);
+        byte[] second = sender.compress(MESSAGE);
+
+        assertEquals(receiver.decompress(first, true), MESSAGE);
+        assertEquals(receiver.decompress(second, true), MESSAGE);
+        // The second copy refers back to the first, so it is far smaller.
+        assertTrue(second.length < first.length / 2, first.length + " then " + second.length);
+        assertTrue(metrics.getOutboundCompressionRatio() < 0.5);
+        assertEquals(metrics.getDecompressedBytesIn().sum(), 2L * MESSAGE.length);
+    }
+
+    @Test
+    public void testCompress_WithNoContextTakeover_CompressesEachMessageAlone() throws Exception {
+        PerMessageDeflate sender = codec(CompressionConfig.builder().clientNoContextTakeover(true).build());
+        PerMessageDeflate receiver = codec(CompressionConfig.builder().build());
+        assertTrue(receiver.accept(Map.of("server_no_context_takeover", "")));
+
+        byte[] first = sender.compress(MESSAGE);
+        byte[] second = sender.compress(MESSAGE);
+
+        assertEquals(second, first);
+        assertEquals(receiver.decompress(second, true), MESSAGE);
+    }
+
+    @Test
+    public void testDecompress_ReassemblesFragments() throws Exception {
+        byte[] compressed = codec(CompressionConfig.builder().build()).compress(MESSAGE);
+        PerMessageDeflate receiver = codec(CompressionConfig.builder().build());
+        int split = compressed.length / 2;
+
+        byte[] head = receiver.decompress(Arrays.copyOfRange(compressed, 0, split), false);
+        byte[] tail = receiver.decompress(Arrays.copyOfRange(compressed, split, compressed.length), true);
+
+        byte[] whole = Arrays.copyOf(head, head.length + tail.length);
+        System.arraycopy(tail, 0, whole, head.length, tail.length);
+        assertEquals(whole, MESSAGE);
+    }
+
+    @Test
+    public void testShouldCompress_HonoursThreshold() {
+        PerMessageDeflate codec = codec(CompressionConfig.builder().minMessageBytes(100).build());
+
+        assertFalse(codec.shouldCompress(99));
+        assertTrue(codec.shouldCompress(100));
+    }
+
+    private static PerMessageDeflate codec(CompressionConfig config) {
+        return new PerMessageDeflate(config, new InMemoryZelloMetrics());
+    }
+
+}
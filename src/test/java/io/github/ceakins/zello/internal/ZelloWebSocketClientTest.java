@@ -0,0 +1,76 @@
+package io.github.ceakins.zello.internal;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ZelloWebSocketClientTest {
+
+    private ZelloMessageHandler messageHandler;
+    private ZelloWebSocketClient client;
+
+    @BeforeMethod
+    public void setUp() {
+        messageHandler = mock(ZelloMessageHandler.class);
+        client = new ZelloWebSocketClient(URI.create("wss://localhost"), Collections.emptyMap(), messageHandler);
+    }
+
+    @Test
+    public void testAudioPacket_IsDispatchedToAudioHandler() {
+        client.onMessage(packet(0x01, 42, 7, new byte[]{1, 2, 3}));
+
+        ArgumentCaptor<ByteBuffer> opusData = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(messageHandler).onAudioPacket(eq(42), opusData.capture());
+        byte[] payload = new byte[opusData.getValue().remaining()];
+        opusData.getValue().get(payload);
+        assertEquals(payload, new byte[]{1, 2, 3});
+        verify(messageHandler, never()).onImagePacket(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testImagePacket_NeverReachesAudioHandler() {
+        client.onMessage(packet(0x02, 5, 2, new byte[]{9}));
+
+        verify(messageHandler).onImagePacket(eq(5), eq(2), aryEq(new byte[]{9}));
+        verify(messageHandler, never()).onAudioPacket(anyInt(), any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testUnknownAndMalformedPackets_AreCountedAndSkipped() {
+        client.onMessage(packet(0x7F, 1, 1, new byte[16]));
+        client.onMessage(ByteBuffer.wrap(new byte[]{0x01, 0, 0}));
+
+        assertEquals(client.getUnknownPacketCount(), 1);
+        assertEquals(client.getMalformedPacketCount(), 1);
+        verifyNoInteractions(messageHandler);
+    }
+
+    @Test
+    public void testRegisteredExtensionHandler_ReceivesPacketAfterTypeByte() {
+        AtomicInteger received = new AtomicInteger();
+        client.registerBinaryHandler(0x10, packet -> received.set(packet.getInt()));
+
+        client.onMessage(packet(0x10, 1234, 0, new byte[0]));
+
+        assertEquals(received.get(), 1234);
+        assertEquals(client.getUnknownPacketCount(), 0);
+        verifyNoInteractions(messageHandler);
+    }
+
+    private static ByteBuffer packet(int type, int first, int second, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(9 + payload.length);
+        buffer.put((byte) type).putInt(first).putInt(second).put(payload);
+        return buffer.flip();
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.github.ceakins.zello.internal.audio;
+
+import io.github.ceakins.zello.metrics.InMemoryZelloMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the AudioEngine.
+ * This test does not require a network connection.
+ */
+public class AudioEngineTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioEngineTest.class);
+
+    private AudioEngine audioEngine;
+
+    @BeforeClass
+    public void setup() {
+        try {
+            audioEngine = new AudioEngine();
+        } catch (LinkageError e) {
+            throw new SkipException("The native Opus library is not available on this platform: " + e);
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        if (audioEngine != null) {
+            audioEngine.close();
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeLoopback() {
+        logger.info("Running test: testEncodeDecodeLoopback");
+
+        // Arrange
+        byte[] originalPcmData = new byte[AudioConstants.FRAME_SIZE_BYTES];
+
+        // Act
+        byte[] opusData = audioEngine.encode(originalPcmData);
+
+        // Assert
+        Assert.assertNotNull(opusData, "Encoded Opus data should not be null.");
+        Assert.assertTrue(opusData.length > 0, "Encoded Opus data should not be empty.");
+        logger.info("Encoded {} PCM bytes into {} Opus bytes.", originalPcmData.length, opusData.length);
+
+        // Arrange for decoding
+        int testStreamId = 1;
+        audioEngine.startDecodingSession(testStreamId);
+
+        // Act
+        byte[] decodedPcmData = audioEngine.decode(testStreamId, opusData);
+        audioEngine.stopDecodingSession(testStreamId);
+
+        // Assert
+        Assert.assertNotNull(decodedPcmData, "Decoded PCM data should not be null.");
+        Assert.assertEquals(decodedPcmData.length, originalPcmData.length, "Decoded PCM data length should match the original length.");
+        logger.info("Loopback test successful. Decoded data has the correct length.");
+    }
+
+    @Test
+    public void testNativeMemoryAccounting_TracksDecoders() {
+        InMemoryZelloMetrics metrics = new InMemoryZelloMetrics();
+        AudioEngine engine = new AudioEngine(metrics);
+        Assert.assertEquals(engine.getEncoderCount(), 0);
+        Assert.assertEquals(engine.getEncoderNativeBytes(), 0);
+        Assert.assertNotNull(engine.encode(new byte[AudioConstants.FRAME_SIZE_BYTES]));
+        long encoderBytes = engine.getEncoderNativeBytes();
+        Assert.assertEquals(engine.getEncoderCount(), 1);
+        Assert.assertTrue(encoderBytes > 0);
+
+        engine.startDecodingSession(1);
+        engine.startDecodingSession(2);
+        Assert.assertEquals(engine.getDecoderCount(), 2);
+        Assert.assertTrue(engine.getDecoderNativeBytes() > 0);
+        Assert.assertEquals(metrics.getNativeCodecBytes().sum(), encoderBytes + engine.getDecoderNativeBytes());
+
+        engine.close();
+        Assert.assertEquals(engine.getDecoderCount(), 0);
+        Assert.assertEquals(engine.getEncoderCount(), 0);
+        Assert.assertEquals(metrics.getNativeCodecBytes().sum(), 0);
+    }
+
+    @Test
+    public void testEncodingSessions_HaveTheirOwnEncoders() {
+        AudioEngine engine = new AudioEngine();
+        byte[] pcm = new byte[AudioConstants.FRAME_SIZE_BYTES];
+        byte[] opus = new byte[AudioConstants.MAX_OPUS_PACKET_SIZE];
+
+        int first = engine.startEncodingSession();
+        int second = engine.startEncodingSession();
+        Assert.assertNotEquals(first, second);
+        // Only the sessions hold encoders; the default encoder is never created.
+        Assert.assertEquals(engine.getEncoderCount(), 2);
+        Assert.assertTrue(engine.encode(first, pcm, opus, 0) > 0);
+        Assert.assertTrue(engine.encode(second, pcm, opus, 0) > 0);
+
+        engine.stopEncodingSession(first);
+        Assert.assertEquals(engine.encode(first, pcm, opus, 0), -1);
+        Assert.assertEquals(engine.getEncoderCount(), 1);
+
+        engine.close();
+        Assert.assertEquals(engine.getEncoderCount(), 0);
+        Assert.assertEquals(engine.encode(second, pcm, opus, 0), -1);
+        Assert.assertEquals(engine.encode(pcm, opus, 0), -1);
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.ceakins.zello.internal.audio;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class DecodeStageTest {
+
+    private DecodeStage stage;
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (stage != null) {
+            stage.close();
+        }
+    }
+
+    @Test
+    public void testTasksForOneStream_RunInOrderOnOneThread() throws Exception {
+        stage = new DecodeStage("test", 4, 1000);
+        Map<Integer, List<Integer>> order = new ConcurrentHashMap<>();
+        Map<Integer, Set<Thread>> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(8 * 100);
+
+        for (int i = 0; i < 100; i++) {
+            for (int streamId = 1; streamId <= 8; streamId++) {
+                int stream = streamId;
+                int frame = i;
+                stage.execute(stream, buffers -> {
+                    order.computeIfAbsent(stream, s -> Collections.synchronizedList(new ArrayList<>())).add(frame);
+                    threads.computeIfAbsent(stream, s -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Set<Thread> allThreads = new HashSet<>();
+        for (int streamId = 1; streamId <= 8; streamId++) {
+            List<Integer> frames = order.get(streamId);
+            for (int i = 0; i < frames.size(); i++) {
+                assertEquals(frames.get(i).intValue(), i);
+            }
+            assertEquals(threads.get(streamId).size(), 1);
+            allThreads.addAll(threads.get(streamId));
+        }
+        assertTrue(allThreads.size() > 1, "All streams ran on one worker");
+    }
+
+    @Test
+    public void testFullQueue_RejectsTasks() throws Exception {
+        stage = new DecodeStage("test", 1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        stage.submit(1, buffers -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(stage.submit(1, buffers -> { }));
+        assertTrue(stage.submit(2, buffers -> { }));
+        assertFalse(stage.submit(3, buffers -> { }));
+        assertEquals(stage.getQueuedTaskCount(), 2);
+        release.countDown();
+    }
+
+    @Test
+    public void testClosedStage_IgnoresTasks() {
+        stage = new DecodeStage("test", 1, 2);
+        stage.close();
+
+        assertFalse(stage.submit(1, buffers -> { }));
+        stage.execute(1, buffers -> fail("Ran after close"));
+        assertEquals(stage.getQueuedTaskCount(), 0);
+    }
+
+    @Test
+    public void testClose_RunsTasksQueuedBeforeIt() throws Exception {
+        stage = new DecodeStage("test", 1, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(2);
+        stage.execute(1, buffers -> awaitQuietly(release));
+        stage.execute(1, buffers -> ran.countDown());
+        stage.execute(1, buffers -> ran.countDown());
+
+        release.countDown();
+        stage.close();
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
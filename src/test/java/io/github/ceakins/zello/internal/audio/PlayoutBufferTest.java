@@ -0,0 +1,101 @@
+package io.github.ceakins.zello.internal.audio;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class PlayoutBufferTest {
+
+    private static final int FRAME = AudioConstants.FRAME_SIZE_BYTES;
+
+    private PlayoutBuffer buffer;
+    private byte[] out;
+
+    @BeforeMethod
+    public void setup() {
+        // Target 60ms (3 frames), tolerance 40ms (2 frames), capacity 200ms (10 frames).
+        buffer = new PlayoutBuffer(60, 40, 200);
+        out = new byte[FRAME];
+    }
+
+    @Test
+    public void testRead_BeforePrimed_ReturnsSilence() {
+        buffer.write(loudFrame(), 0, FRAME);
+
+        assertFalse(buffer.read(out));
+        assertEquals(out[0], 0);
+        assertEquals(buffer.getUnderrunCount(), 0, "Priming is not an underrun.");
+    }
+
+    @Test
+    public void testRead_AfterPrimed_PlaysAudioThenCountsUnderrun() {
+        for (int i = 0; i < 3; i++) {
+            buffer.write(loudFrame(), 0, FRAME);
+        }
+
+        assertTrue(buffer.read(out));
+        assertTrue(buffer.read(out));
+        assertTrue(buffer.read(out));
+        assertFalse(buffer.read(out));
+
+        assertEquals(buffer.getUnderrunCount(), 1);
+        assertEquals(buffer.getInsertedSilenceFrameCount(), 1);
+    }
+
+    @Test
+    public void testEndOfStream_DrainsWithoutUnderrun() {
+        buffer.write(loudFrame(), 0, FRAME);
+        buffer.endOfStream();
+
+        assertTrue(buffer.read(out), "A draining buffer plays whatever is left even below the target.");
+        assertFalse(buffer.read(out));
+        assertEquals(buffer.getUnderrunCount(), 0);
+    }
+
+    @Test
+    public void testWrite_BeyondCapacity_DropsOldestAndCountsOverrun() {
+        for (int i = 0; i < 12; i++) {
+            buffer.write(loudFrame(), 0, FRAME);
+        }
+
+        assertEquals(buffer.getOverrunCount(), 2);
+        assertEquals(buffer.getBufferedMs(), 200);
+    }
+
+    @Test
+    public void testRead_AboveHighWatermark_DropsQuietFrames() {
+        byte[] quiet = new byte[FRAME];
+        for (int i = 0; i < 8; i++) {
+            buffer.write(quiet, 0, FRAME);
+        }
+
+        buffer.read(out);
+
+        assertEquals(buffer.getDroppedFrameCount(), 1);
+        assertEquals(buffer.getBufferedMs(), 120);
+    }
+
+    @Test
+    public void testRead_AboveHighWatermark_KeepsLoudFrames() {
+        for (int i = 0; i < 8; i++) {
+            buffer.write(loudFrame(), 0, FRAME);
+        }
+
+        buffer.read(out);
+
+        assertEquals(buffer.getDroppedFrameCount(), 0);
+        assertEquals(buffer.getBufferedMs(), 140);
+    }
+
+    private static byte[] loudFrame() {
+        byte[] frame = new byte[FRAME];
+        for (int i = 0; i < FRAME; i += 2) {
+            short sample = (short) ((i / 2) % 2 == 0 ? 16000 : -16000);
+            frame[i] = (byte) sample;
+            frame[i + 1] = (byte) (sample >> 8);
+        }
+        return frame;
+    }
+
+}
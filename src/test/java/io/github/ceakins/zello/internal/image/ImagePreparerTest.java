@@ -0,0 +1,84 @@
+package io.github.ceakins.zello.internal.image;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class ImagePreparerTest {
+
+    private byte[] largeJpeg;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        // A noisy 1600x1200 image, so JPEG compression cannot make it trivially small.
+        BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillOval(400, 300, 800, 600);
+        graphics.dispose();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", os);
+        largeJpeg = os.toByteArray();
+    }
+
+    @Test
+    public void testPrepare_WithoutBudget_KeepsOriginalAndBuildsThumbnail() throws IOException {
+        PreparedImage prepared = new ImagePreparer(100, 0).prepare(largeJpeg);
+
+        assertEquals(prepared.getWidth(), 1600);
+        assertEquals(prepared.getHeight(), 1200);
+        assertEquals(prepared.getFullImage().openStream().readAllBytes(), largeJpeg);
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(prepared.getThumbnailData()));
+        assertEquals(thumbnail.getWidth(), 100);
+        assertEquals(thumbnail.getHeight(), 75);
+    }
+
+    @Test
+    public void testPrepare_WithBudget_ReencodesToFit() throws IOException {
+        int budget = largeJpeg.length / 10;
+
+        PreparedImage prepared = new ImagePreparer(100, budget).prepare(largeJpeg);
+
+        byte[] fullImageData = prepared.getFullImage().openStream().readAllBytes();
+        assertTrue(fullImageData.length <= budget, "Re-encoded size " + fullImageData.length + " exceeds budget " + budget);
+        BufferedImage full = ImageIO.read(new ByteArrayInputStream(fullImageData));
+        assertEquals(full.getWidth(), prepared.getWidth());
+        assertEquals(full.getHeight(), prepared.getHeight());
+    }
+
+    @Test
+    public void testPrepare_FromSpoolFile_StreamsFromFileAndDeletesOnRelease() throws IOException {
+        Path spoolFile = Files.createTempFile("image-preparer-test-", ".jpg");
+        Files.write(spoolFile, largeJpeg);
+
+        PreparedImage prepared = new ImagePreparer(100, 0).prepare(spoolFile, true);
+
+        assertTrue(prepared.getFullImage() instanceof FileImageSource);
+        assertEquals(prepared.getFullImage().length(), largeJpeg.length);
+        prepared.getFullImage().release();
+        assertFalse(Files.exists(spoolFile));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testPrepare_InvalidData_Throws() throws IOException {
+        new ImagePreparer(100, 0).prepare(new byte[]{1, 2, 3, 4});
+    }
+
+}
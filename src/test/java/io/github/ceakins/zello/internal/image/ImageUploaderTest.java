@@ -0,0 +1,62 @@
+package io.github.ceakins.zello.internal.image;
+
+import io.github.ceakins.zello.internal.OutboundScheduler;
+import io.github.ceakins.zello.internal.ZelloScheduler;
+import io.github.ceakins.zello.internal.ZelloTransport;
+import io.github.ceakins.zello.metrics.NoopZelloMetrics;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public class ImageUploaderTest {
+
+    @Test
+    public void testUpload_SplitsDataIntoBoundedPackets() throws IOException {
+        ZelloTransport client = mock(ZelloTransport.class);
+        when(client.isOpen()).thenReturn(true);
+        byte[] thumbnail = new byte[50];
+        byte[] full = new byte[250];
+        for (int i = 0; i < full.length; i++) {
+            full[i] = (byte) i;
+        }
+
+        new ImageUploader(109, 1000).upload(scheduler(client), 7, thumbnail, new ByteArrayImageSource(full));
+
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(client, times(4)).send(captor.capture());
+        List<byte[]> packets = captor.getAllValues();
+        assertHeader(packets.get(0), 7, ImageUploader.IMAGE_TYPE_THUMBNAIL, 50);
+        assertHeader(packets.get(1), 7, ImageUploader.IMAGE_TYPE_FULL, 100);
+        assertHeader(packets.get(2), 7, ImageUploader.IMAGE_TYPE_FULL, 100);
+        assertHeader(packets.get(3), 7, ImageUploader.IMAGE_TYPE_FULL, 50);
+        assertEquals(packets.get(3)[9], (byte) 200, "The last packet carries the tail of the image.");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUpload_StalledSendBuffer_TimesOut() throws IOException {
+        ZelloTransport client = mock(ZelloTransport.class);
+        when(client.isOpen()).thenReturn(true);
+        when(client.hasBufferedData()).thenReturn(true);
+
+        new ImageUploader(109, 20).upload(scheduler(client), 7, new byte[10], new ByteArrayImageSource(new byte[10]));
+    }
+
+    private static OutboundScheduler scheduler(ZelloTransport client) {
+        return new OutboundScheduler(client, 250, NoopZelloMetrics.INSTANCE, ZelloScheduler.get());
+    }
+
+    private static void assertHeader(byte[] packet, int imageId, int imageType, int dataLength) {
+        ByteBuffer buffer = ByteBuffer.wrap(packet);
+        assertEquals(buffer.get(), (byte) 0x02);
+        assertEquals(buffer.getInt(), imageId);
+        assertEquals(buffer.getInt(), imageType);
+        assertEquals(buffer.remaining(), dataLength);
+    }
+
+}
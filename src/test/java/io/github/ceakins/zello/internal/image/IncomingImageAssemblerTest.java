@@ -0,0 +1,61 @@
+package io.github.ceakins.zello.internal.image;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class IncomingImageAssemblerTest {
+
+    @Test
+    public void testParts_CompleteOnEndOfImageMarkerAcrossPackets() {
+        IncomingImageAssembler assembler = new IncomingImageAssembler(1024, 4096);
+        assembler.onImageAnnounced(7, "alice");
+
+        assertNull(assembler.onImagePacket(7, ImageUploader.IMAGE_TYPE_THUMBNAIL, new byte[]{(byte) 0xFF, (byte) 0xD8, 1, (byte) 0xFF}));
+        IncomingImageAssembler.CompletedImage thumbnail = assembler.onImagePacket(7, ImageUploader.IMAGE_TYPE_THUMBNAIL, new byte[]{(byte) 0xD9});
+
+        assertNotNull(thumbnail);
+        assertTrue(thumbnail.isThumbnail());
+        assertEquals(thumbnail.getFrom(), "alice");
+        assertEquals(thumbnail.getData().length, 5);
+
+        IncomingImageAssembler.CompletedImage full = assembler.onImagePacket(7, ImageUploader.IMAGE_TYPE_FULL, new byte[]{(byte) 0xFF, (byte) 0xD8, 2, (byte) 0xFF, (byte) 0xD9});
+        assertNotNull(full);
+        assertFalse(full.isThumbnail());
+        assertEquals(assembler.getPendingCount(), 0);
+        assertEquals(assembler.getPendingBytes(), 0);
+    }
+
+    @Test
+    public void testOversizedImage_IsDiscarded() {
+        IncomingImageAssembler assembler = new IncomingImageAssembler(4, 4096);
+
+        assertNull(assembler.onImagePacket(1, ImageUploader.IMAGE_TYPE_FULL, new byte[]{1, 2, 3, 4, (byte) 0xFF, (byte) 0xD9}));
+        assertEquals(assembler.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testPendingBytes_AreCappedAcrossImages() {
+        IncomingImageAssembler assembler = new IncomingImageAssembler(1024, 10);
+
+        assertNull(assembler.onImagePacket(1, ImageUploader.IMAGE_TYPE_FULL, new byte[6]));
+        assertNull(assembler.onImagePacket(2, ImageUploader.IMAGE_TYPE_FULL, new byte[6]));
+
+        assertEquals(assembler.getPendingCount(), 1);
+        assertEquals(assembler.getPendingBytes(), 6);
+        assertNotNull(assembler.onImagePacket(1, ImageUploader.IMAGE_TYPE_FULL, new byte[]{(byte) 0xFF, (byte) 0xD9}));
+        assertEquals(assembler.getPendingBytes(), 0);
+    }
+
+    @Test
+    public void testExpiredImages_ReleaseTheirBytes() {
+        IncomingImageAssembler assembler = new IncomingImageAssembler(1024, 4096);
+        assembler.onImagePacket(1, ImageUploader.IMAGE_TYPE_THUMBNAIL, new byte[]{1, 2, 3});
+
+        assembler.expireIdle(-1);
+
+        assertEquals(assembler.getPendingCount(), 0);
+        assertEquals(assembler.getPendingBytes(), 0);
+    }
+
+}
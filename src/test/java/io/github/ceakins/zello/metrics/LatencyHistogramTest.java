@@ -0,0 +1,60 @@
+package io.github.ceakins.zello.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram_ReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getPercentileNanos(99), 0);
+        assertEquals(histogram.getMeanNanos(), 0.0);
+    }
+
+    @Test
+    public void testPercentiles_StayWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMaxNanos(), 1_000_000);
+        assertWithinError(histogram.getPercentileNanos(50), 500_000);
+        assertWithinError(histogram.getPercentileNanos(99), 990_000);
+        assertEquals(histogram.getPercentileNanos(100), 1_000_000);
+        assertEquals(histogram.getMeanNanos(), 500_500.0, 0.1);
+    }
+
+    @Test
+    public void testBucketBounds_AreContiguousAndMonotonic() {
+        long previousUpperBound = -1;
+        for (int i = 0; i < 900; i++) {
+            long upper = LatencyHistogram.upperBoundFor(i);
+            assertEquals(LatencyHistogram.indexFor(previousUpperBound + 1), i, "First value after bucket " + (i - 1));
+            assertEquals(LatencyHistogram.indexFor(upper), i);
+            previousUpperBound = upper;
+        }
+    }
+
+    @Test
+    public void testReset_ClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+
+        histogram.reset();
+
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMaxNanos(), 0);
+    }
+
+    private static void assertWithinError(long actual, long expected) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(error <= 0.0625, "Expected ~" + expected + " but was " + actual);
+    }
+
+}
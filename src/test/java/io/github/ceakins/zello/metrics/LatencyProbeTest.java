@@ -0,0 +1,78 @@
+package io.github.ceakins.zello.metrics;
+
+import io.github.ceakins.zello.internal.audio.AudioConstants;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class LatencyProbeTest {
+
+    @Test
+    public void testIsMarker_DetectsOnlyTheMarkerTone() {
+        LatencyProbe probe = new LatencyProbe(1500);
+
+        assertTrue(probe.isMarker(tone(1500, 0.5)));
+        assertTrue(probe.isMarker(tone(1500, 0.1)));
+        assertFalse(probe.isMarker(tone(1000, 0.5)));
+        assertFalse(probe.isMarker(tone(1500, 0.01)), "Too quiet to be the marker");
+        assertFalse(probe.isMarker(new byte[AudioConstants.FRAME_SIZE_BYTES]));
+        assertFalse(probe.isMarker(noise()));
+    }
+
+    @Test
+    public void testMarker_RecordsTimeSpentInEachObservedStage() {
+        LatencyProbe probe = new LatencyProbe();
+        probe.injectMarker();
+
+        byte[] marker = probe.onCapture(new byte[AudioConstants.FRAME_SIZE_BYTES]);
+        assertTrue(probe.isMarker(marker));
+        assertTrue(probe.observe(LatencyProbe.Stage.ENCODE, marker));
+        assertFalse(probe.observe(LatencyProbe.Stage.ENCODE, marker), "A stage is only stamped once per marker");
+        assertFalse(probe.observe(LatencyProbe.Stage.DECODE, new byte[AudioConstants.FRAME_SIZE_BYTES]));
+        long now = System.nanoTime();
+        probe.stamp(LatencyProbe.Stage.RECEIVE, now);
+        probe.stamp(LatencyProbe.Stage.DECODE, now + 1_000_000);
+        probe.stamp(LatencyProbe.Stage.PLAYOUT, now + 61_000_000);
+
+        assertEquals(probe.getMarkersCompleted(), 1);
+        assertEquals(probe.getStageLatency(LatencyProbe.Stage.DECODE).getCount(), 1);
+        assertEquals(probe.getStageLatency(LatencyProbe.Stage.PLAYOUT).getMaxNanos(), 60_000_000, 60_000_000 / 16);
+        assertEquals(probe.getStageLatency(LatencyProbe.Stage.VOX).getCount(), 0, "Unobserved stages are skipped");
+        assertFalse(probe.isAwaiting(LatencyProbe.Stage.RECEIVE));
+    }
+
+    @Test
+    public void testMarker_IsReplacedForThreeFramesThenCaptureResumes() {
+        LatencyProbe probe = new LatencyProbe();
+        byte[] captured = new byte[AudioConstants.FRAME_SIZE_BYTES];
+        probe.injectMarker();
+
+        for (int i = 0; i < 3; i++) {
+            assertNotSame(probe.onCapture(captured), captured);
+        }
+        assertSame(probe.onCapture(captured), captured);
+        assertEquals(probe.getMarkersSent(), 1);
+    }
+
+    private static byte[] tone(double frequency, double amplitude) {
+        ByteBuffer buffer = ByteBuffer.allocate(AudioConstants.FRAME_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < AudioConstants.SAMPLES_PER_FRAME; i++) {
+            buffer.putShort((short) (amplitude * 32767 * Math.sin(2 * Math.PI * frequency * i / AudioConstants.SAMPLE_RATE)));
+        }
+        return buffer.array();
+    }
+
+    private static byte[] noise() {
+        Random random = new Random(42);
+        ByteBuffer buffer = ByteBuffer.allocate(AudioConstants.FRAME_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < AudioConstants.SAMPLES_PER_FRAME; i++) {
+            buffer.putShort((short) (random.nextGaussian() * 8000));
+        }
+        return buffer.array();
+    }
+
+}
@@ -0,0 +1,404 @@
+package io.github.ceakins.zello.testing;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process WebSocket server implementing enough of the Zello Channels v1 protocol to exercise the
+ * SDK end to end without credentials or network access: logon and {@code on_channel_status},
+ * {@code start_stream}/{@code stop_stream} with server-assigned stream IDs, audio fan-out between
+ * clients in the same channel, text messages, and the {@code send_image} handshake with image data
+ * fan-out.
+ * <p>
+ * Every message the server sends can be delayed by a configurable latency, and failures can be
+ * injected per command, for logon, for audio packets, or by dropping all connections or silently
+ * ignoring pings, as a half-open connection would. The server can
+ * also accept permessage-deflate, compressing every message it sends of 1 KiB or more.
+ * <pre>{@code
+ * try (MockZelloServer server = MockZelloServer.startNew()) {
+ *     ZelloChannelConfig config = ZelloChannelConfig.builder().serverUrl(server.getUrl())...
+ * }
+ * }</pre>
+ */
+public final class MockZelloServer extends WebSocketServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockZelloServer.class);
+
+    private static class Session {
+        private volatile String username;
+        private volatile String channel;
+        private volatile boolean loggedIn;
+        private volatile int streamId = -1;
+    }
+
+    private final Map<WebSocket, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, String> commandFailures = new ConcurrentHashMap<>();
+    private final List<JSONObject> receivedCommands = new CopyOnWriteArrayList<>();
+    private final List<String> extensionOffers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService delivery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Mock-Zello-Server-Delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final AtomicInteger nextStreamId = new AtomicInteger(1000);
+    private final AtomicInteger nextImageId = new AtomicInteger(5000);
+    private final LongAdder audioPacketsReceived = new LongAdder();
+    private final LongAdder audioPacketsDropped = new LongAdder();
+    private final LongAdder imagePacketsReceived = new LongAdder();
+
+    private volatile long latencyMs = 0;
+    private volatile double audioLossRate = 0;
+    private volatile boolean echoAudio = false;
+    private volatile String logonError = null;
+    private volatile boolean answerPings = true;
+
+    /**
+     * Creates a server bound to an ephemeral port on the loopback interface. Call {@link #startAndWait()}.
+     */
+    public MockZelloServer() {
+        this(false);
+    }
+
+    /**
+     * @param permessageDeflate Whether to accept the permessage-deflate extension when a client offers it.
+     */
+    public MockZelloServer(boolean permessageDeflate) {
+        super(new InetSocketAddress("127.0.0.1", 0), List.of(permessageDeflate ? new Draft_6455(new PerMessageDeflateExtension()) : new Draft_6455()));
+        setReuseAddr(true);
+    }
+
+    /**
+     * Creates and starts a server on an ephemeral port.
+     */
+    public static MockZelloServer startNew() throws InterruptedException {
+        return startNew(false);
+    }
+
+    /**
+     * Creates and starts a server on an ephemeral port, optionally accepting permessage-deflate.
+     */
+    public static MockZelloServer startNew(boolean permessageDeflate) throws InterruptedException {
+        MockZelloServer server = new MockZelloServer(permessageDeflate);
+        server.startAndWait();
+        return server;
+    }
+
+    /**
+     * Starts the server and waits until it is accepting connections.
+     */
+    public void startAndWait() throws InterruptedException {
+        start();
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Mock Zello server did not start within 5 seconds.");
+        }
+    }
+
+    /**
+     * @return The URL to use as {@code serverUrl} in the channel configuration.
+     */
+    public String getUrl() {
+        return "ws://127.0.0.1:" + getPort();
+    }
+
+    /**
+     * Delays every message sent by the server by the given one-way latency.
+     */
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * Drops the given fraction (0.0 to 1.0) of incoming audio packets instead of forwarding them.
+     */
+    public void setAudioLossRate(double audioLossRate) {
+        this.audioLossRate = audioLossRate;
+    }
+
+    /**
+     * Whether audio is also sent back to the client that sent it, so a single client can measure a round trip.
+     */
+    public void setEchoAudio(boolean echoAudio) {
+        this.echoAudio = echoAudio;
+    }
+
+    /**
+     * Rejects every logon with the given error, or accepts any credentials when null.
+     */
+    public void setLogonError(String logonError) {
+        this.logonError = logonError;
+    }
+
+    /**
+     * Fails the next command with the given name, e.g. "send_text_message", with the given error.
+     */
+    public void failNextCommand(String command, String error) {
+        commandFailures.put(command, error);
+    }
+
+    /**
+     * Stops or resumes answering WebSocket pings, while everything else keeps working.
+     */
+    public void setAnswerPings(boolean answerPings) {
+        this.answerPings = answerPings;
+    }
+
+    /**
+     * Closes every client connection, as if the server had gone away.
+     */
+    public void dropAllConnections() {
+        for (WebSocket conn : sessions.keySet()) {
+            conn.closeConnection(1001, "Dropped by mock server");
+        }
+    }
+
+    /**
+     * @return A snapshot of every JSON command received, in arrival order.
+     */
+    /**
+     * @return The Sec-WebSocket-Extensions header of each client handshake, empty for clients that offered none.
+     */
+    public List<String> getExtensionOffers() {
+        return extensionOffers;
+    }
+
+    public List<JSONObject> getReceivedCommands() {
+        return new ArrayList<>(receivedCommands);
+    }
+
+    public int getLoggedInCount() {
+        return (int) sessions.values().stream().filter(s -> s.loggedIn).count();
+    }
+
+    public long getAudioPacketsReceived() {
+        return audioPacketsReceived.sum();
+    }
+
+    public long getAudioPacketsDropped() {
+        return audioPacketsDropped.sum();
+    }
+
+    public long getImagePacketsReceived() {
+        return imagePacketsReceived.sum();
+    }
+
+    @Override
+    public void close() {
+        try {
+            stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            delivery.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onStart() {
+        logger.debug("Mock Zello server listening on {}", getUrl());
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        extensionOffers.add(handshake.getFieldValue("Sec-WebSocket-Extensions"));
+        sessions.put(conn, new Session());
+    }
+
+    @Override
+    public void onWebsocketPing(WebSocket conn, Framedata frame) {
+        if (answerPings) {
+            super.onWebsocketPing(conn, frame);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        Session session = sessions.remove(conn);
+        if (session != null && session.streamId != -1) {
+            broadcast(conn, session, streamStop(session), false);
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        logger.warn("Mock Zello server error", ex);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        Session session = sessions.get(conn);
+        if (session == null) {
+            return;
+        }
+        JSONObject command = new JSONObject(message);
+        receivedCommands.add(command);
+        String name = command.optString("command");
+        int seq = command.optInt("seq", 0);
+
+        String failure = commandFailures.remove(name);
+        if ("logon".equals(name) && logonError != null) {
+            failure = logonError;
+        }
+        if (failure != null) {
+            deliver(conn, new JSONObject().put("seq", seq).put("success", false).put("error", failure).toString());
+            return;
+        }
+        if (!"logon".equals(name) && !session.loggedIn) {
+            deliver(conn, new JSONObject().put("seq", seq).put("success", false).put("error", "not authorized").toString());
+            return;
+        }
+
+        switch (name) {
+            case "logon" -> handleLogon(conn, session, command, seq);
+            case "start_stream" -> handleStartStream(conn, session, command, seq);
+            case "stop_stream" -> handleStopStream(conn, session, seq);
+            case "send_text_message" -> handleTextMessage(conn, session, command, seq);
+            case "send_image" -> handleSendImage(conn, session, command, seq);
+            default -> deliver(conn, new JSONObject().put("seq", seq).put("success", false).put("error", "unknown command").toString());
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        Session session = sessions.get(conn);
+        if (session == null || !session.loggedIn || message.remaining() < 9) {
+            return;
+        }
+        message.order(ByteOrder.BIG_ENDIAN);
+        byte type = message.get(message.position());
+        byte[] packet = new byte[message.remaining()];
+        message.get(packet);
+        if (type == 0x01) {
+            audioPacketsReceived.increment();
+            int streamId = ByteBuffer.wrap(packet, 1, 4).getInt();
+            if (streamId != session.streamId) {
+                return;
+            }
+            if (audioLossRate > 0 && ThreadLocalRandom.current().nextDouble() < audioLossRate) {
+                audioPacketsDropped.increment();
+                return;
+            }
+            broadcast(conn, session, packet, echoAudio);
+        } else if (type == 0x02) {
+            imagePacketsReceived.increment();
+            broadcast(conn, session, packet, false);
+        }
+    }
+
+    private void handleLogon(WebSocket conn, Session session, JSONObject command, int seq) {
+        session.username = command.optString("username", "user-" + conn.getRemoteSocketAddress().getPort());
+        session.channel = command.optString("channel");
+        session.loggedIn = true;
+        deliver(conn, new JSONObject().put("seq", seq).put("success", true).put("refresh_token", "mock-refresh-token").toString());
+        long online = sessions.values().stream().filter(s -> s.loggedIn && session.channel.equals(s.channel)).count();
+        deliver(conn, new JSONObject().put("command", "on_channel_status").put("channel", session.channel)
+                .put("status", "online").put("users_online", online).toString());
+    }
+
+    private void handleStartStream(WebSocket conn, Session session, JSONObject command, int seq) {
+        session.streamId = nextStreamId.getAndIncrement();
+        deliver(conn, new JSONObject().put("seq", seq).put("success", true).put("stream_id", session.streamId).toString());
+        JSONObject start = new JSONObject().put("command", "on_stream_start")
+                .put("type", command.optString("type", "audio"))
+                .put("codec", command.optString("codec", "opus"))
+                .put("codec_header", command.optString("codec_header"))
+                .put("packet_duration", command.optInt("packet_duration"))
+                .put("stream_id", session.streamId)
+                .put("channel", session.channel)
+                .put("from", session.username);
+        broadcast(conn, session, start.toString(), echoAudio);
+    }
+
+    private void handleStopStream(WebSocket conn, Session session, int seq) {
+        deliver(conn, new JSONObject().put("seq", seq).put("success", true).toString());
+        if (session.streamId != -1) {
+            broadcast(conn, session, streamStop(session), echoAudio);
+            session.streamId = -1;
+        }
+    }
+
+    private void handleTextMessage(WebSocket conn, Session session, JSONObject command, int seq) {
+        deliver(conn, new JSONObject().put("seq", seq).put("success", true).toString());
+        JSONObject text = new JSONObject().put("command", "on_text_message")
+                .put("channel", session.channel)
+                .put("from", session.username)
+                .put("message_id", seq)
+                .put("text", command.optString("text"));
+        broadcast(conn, session, text.toString(), false);
+    }
+
+    private void handleSendImage(WebSocket conn, Session session, JSONObject command, int seq) {
+        int imageId = nextImageId.getAndIncrement();
+        deliver(conn, new JSONObject().put("seq", seq).put("success", true).put("image_id", imageId).toString());
+        JSONObject image = new JSONObject().put("command", "on_image")
+                .put("channel", session.channel)
+                .put("from", session.username)
+                .put("message_id", seq)
+                .put("image_id", imageId)
+                .put("type", command.optString("type", "jpeg"))
+                .put("width", command.optInt("width"))
+                .put("height", command.optInt("height"))
+                .put("source", command.optString("source", "library"));
+        broadcast(conn, session, image.toString(), false);
+    }
+
+    private String streamStop(Session session) {
+        return new JSONObject().put("command", "on_stream_stop").put("stream_id", session.streamId)
+                .put("channel", session.channel).put("from", session.username).toString();
+    }
+
+    private void broadcast(WebSocket sender, Session senderSession, Object message, boolean includeSender) {
+        sessions.forEach((conn, session) -> {
+            if ((conn != sender || includeSender) && session.loggedIn && senderSession.channel.equals(session.channel)) {
+                deliver(conn, message);
+            }
+        });
+    }
+
+    /**
+     * Sends a message after the configured latency. All delivery goes through one thread so that messages
+     * to a client keep their order.
+     */
+    private void deliver(WebSocket conn, Object message) {
+        Runnable send = () -> {
+            if (!conn.isOpen()) {
+                return;
+            }
+            if (message instanceof String text) {
+                conn.send(text);
+            } else {
+                conn.send((byte[]) message);
+            }
+        };
+        long latency = latencyMs;
+        if (latency > 0) {
+            delivery.schedule(send, latency, TimeUnit.MILLISECONDS);
+        } else {
+            delivery.execute(send);
+        }
+    }
+}